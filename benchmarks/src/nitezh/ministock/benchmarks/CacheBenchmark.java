@@ -0,0 +1,175 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import nitezh.ministock.Storage;
+import nitezh.ministock.utils.Cache;
+import nitezh.ministock.utils.IndexedStorageCache;
+import nitezh.ministock.utils.StorageCache;
+
+
+/**
+ * Gets and puts cache entries holding recorded quote lines, comparing the
+ * JSON document cache with the indexed cache as the number of entries grows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+    private static final int TTL = 300;
+
+    @Param({"storage", "indexed"})
+    public String implementation;
+
+    @Param({"16", "128", "1024"})
+    public int entryCount;
+
+    private Cache cache;
+    private String[] keys;
+    private String[] values;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        // Each combination of parameters runs in its own fork, so the static caches start empty
+        Storage storage = new MemoryStorage();
+        if (this.implementation.equals("indexed")) {
+            IndexedStorageCache.setLimits(this.entryCount, Long.MAX_VALUE);
+            this.cache = new IndexedStorageCache(storage);
+        } else {
+            this.cache = new StorageCache(storage);
+        }
+
+        String[] lines = Fixtures.read(Fixtures.YAHOO_QUOTES).split("\r\n");
+        this.keys = new String[this.entryCount];
+        this.values = new String[this.entryCount];
+        for (int i = 0; i < this.entryCount; i++) {
+            this.keys[i] = "http://download.finance.yahoo.com/d/quotes.csv?s=" + i;
+            this.values[i] = lines[i % lines.length];
+            this.cache.put(this.keys[i], this.values[i], TTL);
+        }
+    }
+
+    @Benchmark
+    public String get() {
+        this.next = (this.next + 1) % this.entryCount;
+        return this.cache.get(this.keys[this.next]);
+    }
+
+    @Benchmark
+    public void put() {
+        this.next = (this.next + 1) % this.entryCount;
+        this.cache.put(this.keys[this.next], this.values[this.next], TTL);
+    }
+
+    private static class MemoryStorage implements Storage {
+
+        private final HashMap<String, Object> values = new HashMap<>();
+
+        @Override
+        public HashMap<String, ?> getAll() {
+            return this.values;
+        }
+
+        @Override
+        public int getInt(String key, int defaultVal) {
+            Object value = this.values.get(key);
+            return value != null ? (Integer) value : defaultVal;
+        }
+
+        @Override
+        public String getString(String key, String defaultVal) {
+            Object value = this.values.get(key);
+            return value != null ? (String) value : defaultVal;
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defaultVal) {
+            Object value = this.values.get(key);
+            return value != null ? (Boolean) value : defaultVal;
+        }
+
+        @Override
+        public Storage putInt(String key, int value) {
+            this.values.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Storage putString(String key, String value) {
+            this.values.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Storage putBoolean(String key, Boolean value) {
+            this.values.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Storage putFloat(String key, Float value) {
+            this.values.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Storage putLong(String key, Long value) {
+            this.values.put(key, value);
+            return this;
+        }
+
+        @Override
+        public void apply() {
+        }
+
+        @Override
+        public void beginBatch() {
+        }
+
+        @Override
+        public void endBatch() {
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import nitezh.ministock.dataaccess.YahooCsvQuoteDecoder;
+
+
+/**
+ * Recorded provider payloads the benchmarks run against, read from the
+ * fixtures directory on the benchmark classpath.
+ */
+public class Fixtures {
+
+    // A Yahoo quotes.csv response for the symbols of several full widgets
+    public static final String YAHOO_QUOTES = "yahoo_quotes.csv";
+    // The portfolio JSON as saved in preferences
+    public static final String PORTFOLIO = "portfolio.json";
+
+    private Fixtures() {
+    }
+
+    public static String read(String name) {
+        InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IllegalStateException("Missing fixture " + name);
+        }
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toString("UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable fixture " + name, e);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * @return the fields of every record in a quotes CSV fixture
+     */
+    public static List<String[]> readYahooRecords(String csv) {
+        List<String[]> records = new ArrayList<>();
+        YahooCsvQuoteDecoder decoder = new YahooCsvQuoteDecoder(new StringReader(csv));
+        try {
+            int count;
+            while ((count = decoder.nextRecord()) >= 0) {
+                String[] fields = new String[count];
+                for (int i = 0; i < count; i++) {
+                    fields[i] = decoder.getField(i);
+                }
+                records.add(fields);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable quotes fixture", e);
+        }
+        return records;
+    }
+
+    public static List<String> getSymbols(List<String[]> records) {
+        List<String> symbols = new ArrayList<>();
+        for (String[] record : records) {
+            symbols.add(record[YahooCsvQuoteDecoder.FIELD_SYMBOL]);
+        }
+        return symbols;
+    }
+}
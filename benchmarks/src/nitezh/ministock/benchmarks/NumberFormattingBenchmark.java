@@ -0,0 +1,152 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import nitezh.ministock.dataaccess.YahooCsvQuoteDecoder;
+import nitezh.ministock.utils.FixedPointFormat;
+import nitezh.ministock.utils.NumberTools;
+
+
+/**
+ * Formats and parses the prices and changes of the recorded quotes with
+ * FixedPointFormat and with the String.format and NumberFormat calls it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NumberFormattingBenchmark {
+
+    private double[] values;
+    private String[] texts;
+
+    @Setup
+    public void setUp() {
+        List<String[]> records = Fixtures.readYahooRecords(Fixtures.read(Fixtures.YAHOO_QUOTES));
+        this.values = new double[records.size() * 2];
+        this.texts = new String[records.size() * 2];
+        for (int i = 0; i < records.size(); i++) {
+            this.texts[i * 2] = records.get(i)[YahooCsvQuoteDecoder.FIELD_PRICE];
+            this.texts[i * 2 + 1] = records.get(i)[YahooCsvQuoteDecoder.FIELD_CHANGE];
+        }
+        for (int i = 0; i < this.texts.length; i++) {
+            this.values[i] = Double.parseDouble(this.texts[i]);
+        }
+    }
+
+    @Benchmark
+    public void legacyFormat(Blackhole blackhole) {
+        for (double value : this.values) {
+            blackhole.consume(String.format("%." + 2 + "f", value));
+            blackhole.consume(String.format("%.1f", value) + "%");
+        }
+    }
+
+    @Benchmark
+    public void fixedPointFormat(Blackhole blackhole) {
+        for (double value : this.values) {
+            blackhole.consume(FixedPointFormat.format(value, 2));
+            blackhole.consume(FixedPointFormat.format(value, 1) + "%");
+        }
+    }
+
+    @Benchmark
+    public void legacyTrimmedDouble(Blackhole blackhole) {
+        for (double value : this.values) {
+            blackhole.consume(legacyGetTrimmedDouble(value, 6, 4));
+        }
+    }
+
+    @Benchmark
+    public void trimmedDouble(Blackhole blackhole) {
+        for (double value : this.values) {
+            blackhole.consume(NumberTools.getTrimmedDouble(value, 6, 4));
+        }
+    }
+
+    @Benchmark
+    public void legacyParse(Blackhole blackhole) {
+        for (String text : this.texts) {
+            blackhole.consume(legacyParseDouble(text));
+        }
+    }
+
+    @Benchmark
+    public void fixedPointParse(Blackhole blackhole) {
+        for (String text : this.texts) {
+            blackhole.consume(NumberTools.parseDouble(text));
+        }
+    }
+
+    private static String legacyGetTrimmedDouble(double number, int digits, Integer maxPrecision) {
+        String numberAsString = Double.toString(number);
+        int decimalPos = numberAsString.indexOf(".");
+        if (decimalPos == -1) {
+            return numberAsString;
+        }
+        if (digits < decimalPos) {
+            return String.format("%.0f", number);
+        }
+        if ((Math.abs(number) >= 10 || maxPrecision == null) && (numberAsString.length() - 1 < digits)) {
+            return String.format("%.2f", number);
+        }
+        int precision = digits - decimalPos;
+        if (Math.abs(number) >= 10 || maxPrecision == null) {
+            precision = Math.min(precision, 2);
+        }
+        if (maxPrecision == null)
+            maxPrecision = precision;
+        return String.format("%." + Math.min(precision, maxPrecision) + "f", number);
+    }
+
+    private static Double legacyParseDouble(String value) {
+        try {
+            char separator = new DecimalFormatSymbols().getDecimalSeparator();
+            value = value.replace('.', separator);
+            return NumberFormat.getInstance().parse(value).doubleValue();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
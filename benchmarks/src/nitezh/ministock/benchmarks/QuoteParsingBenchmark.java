@@ -0,0 +1,97 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import nitezh.ministock.dataaccess.YahooStockQuoteRepository;
+import nitezh.ministock.domain.StockQuote;
+
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.FIELD_CHANGE;
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.FIELD_EXCHANGE;
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.FIELD_NAME;
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.FIELD_PERCENT;
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.FIELD_PRICE;
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.FIELD_SYMBOL;
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.FIELD_VOLUME;
+
+
+/**
+ * Parses the recorded Yahoo response into JSON the way retrieveQuotesAsJson
+ * does, and builds a StockQuote from each of its records.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuoteParsingBenchmark {
+
+    private String csv;
+    private List<String> symbols;
+    private List<String[]> records;
+
+    @Setup
+    public void setUp() {
+        this.csv = Fixtures.read(Fixtures.YAHOO_QUOTES);
+        this.records = Fixtures.readYahooRecords(this.csv);
+        this.symbols = Fixtures.getSymbols(this.records);
+    }
+
+    @Benchmark
+    public JSONArray retrieveQuotesAsJson() throws JSONException {
+        return YahooStockQuoteRepository.parseQuotesAsJson(this.csv, this.symbols);
+    }
+
+    @Benchmark
+    public void stockQuoteConstruction(Blackhole blackhole) {
+        for (String[] record : this.records) {
+            blackhole.consume(new StockQuote(
+                    record[FIELD_SYMBOL],
+                    record[FIELD_PRICE],
+                    record[FIELD_CHANGE],
+                    record[FIELD_PERCENT],
+                    record[FIELD_EXCHANGE],
+                    record[FIELD_VOLUME],
+                    record[FIELD_NAME]));
+        }
+    }
+}
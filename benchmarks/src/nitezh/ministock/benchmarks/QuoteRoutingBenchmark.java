@@ -0,0 +1,173 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import nitezh.ministock.dataaccess.QuoteProvider;
+import nitezh.ministock.dataaccess.QuoteProviderRouter;
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.utils.Cache;
+
+
+/**
+ * Compares routing symbols through QuoteProviderRouter with the list based
+ * split that StockQuoteRepository used before providers were pluggable.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QuoteRoutingBenchmark {
+
+    private static final List<String> GOOGLE_SYMBOLS = Arrays.asList(".DJI", ".IXIC");
+
+    @Param({"16", "64", "256"})
+    public int symbolCount;
+
+    private List<String> symbols;
+    private QuoteProviderRouter router;
+
+    @Setup
+    public void setUp() {
+        this.symbols = new ArrayList<>();
+        this.symbols.add("^DJI");
+        this.symbols.add("^IXIC");
+        for (int i = 0; this.symbols.size() < this.symbolCount; i++) {
+            switch (i % 4) {
+                case 0:
+                    this.symbols.add("SYM" + i);
+                    break;
+                case 1:
+                    this.symbols.add("SYM" + i + ".L");
+                    break;
+                case 2:
+                    this.symbols.add("EUR" + i + "=X");
+                    break;
+                default:
+                    this.symbols.add("^IDX" + i);
+                    break;
+            }
+        }
+
+        QuoteProvider yahoo = new StubProvider("");
+        QuoteProvider google = new StubProvider(".");
+        this.router = new QuoteProviderRouter(yahoo)
+                .addExact("^DJI", google)
+                .addExact("^IXIC", google)
+                .addFragment("=X", yahoo)
+                .addPrefix("^", yahoo);
+    }
+
+    @Benchmark
+    public List<List<String>> legacyListSplit() {
+        List<String> converted = new ArrayList<>();
+        for (String symbol : this.symbols) {
+            converted.add(symbol
+                    .replace("^DJI", ".DJI")
+                    .replace("^IXIC", ".IXIC"));
+        }
+        List<String> yahooSymbols = new ArrayList<>(converted);
+        List<String> googleSymbols = new ArrayList<>(converted);
+        yahooSymbols.removeAll(GOOGLE_SYMBOLS);
+        googleSymbols.retainAll(GOOGLE_SYMBOLS);
+        return Arrays.asList(yahooSymbols, googleSymbols);
+    }
+
+    @Benchmark
+    public List<List<String>> routerSplit() {
+        List<List<String>> requests = new ArrayList<>();
+        for (Map.Entry<QuoteProvider, List<String>> route : this.router.route(this.symbols).entrySet()) {
+            QuoteProvider provider = route.getKey();
+            List<String> providerSymbols = new ArrayList<>();
+            for (String symbol : route.getValue()) {
+                providerSymbols.add(provider.toProviderSymbol(symbol));
+            }
+            requests.add(providerSymbols);
+        }
+        return requests;
+    }
+
+    private static class StubProvider implements QuoteProvider {
+
+        private final String indexPrefix;
+
+        StubProvider(String indexPrefix) {
+            this.indexPrefix = indexPrefix;
+        }
+
+        @Override
+        public HashMap<String, StockQuote> getQuotes(Cache cache, List<String> symbols) {
+            return new HashMap<>();
+        }
+
+        @Override
+        public String toProviderSymbol(String symbol) {
+            if (!this.indexPrefix.isEmpty() && symbol.startsWith("^")) {
+                return this.indexPrefix + symbol.substring(1);
+            }
+            return symbol;
+        }
+
+        @Override
+        public String fromProviderSymbol(String providerSymbol) {
+            return providerSymbol;
+        }
+
+        @Override
+        public int getMaxSymbolsPerRequest() {
+            return 200;
+        }
+
+        @Override
+        public int getMaxUrlLength() {
+            return 2000;
+        }
+
+        @Override
+        public String buildRequestUrl(List<String> symbols) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.benchmarks;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import nitezh.ministock.dataaccess.YahooCsvQuoteDecoder;
+import nitezh.ministock.domain.PortfolioStock;
+import nitezh.ministock.domain.PortfolioStockDecoder;
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.domain.WidgetStock;
+
+
+/**
+ * Computes the widget values of every recorded quote, with the portfolio
+ * details of the symbols the recorded portfolio holds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WidgetStockBenchmark {
+
+    private HashMap<String, StockQuote> quotes;
+    private HashMap<String, PortfolioStock> portfolioStocks;
+
+    @Setup
+    public void setUp() throws JSONException {
+        String csv = Fixtures.read(Fixtures.YAHOO_QUOTES);
+        List<String> symbols = Fixtures.getSymbols(Fixtures.readYahooRecords(csv));
+        this.quotes = YahooCsvQuoteDecoder.decodeQuotes(csv, symbols, null);
+
+        this.portfolioStocks = new HashMap<>();
+        PortfolioStockDecoder.decode(new JSONObject(Fixtures.read(Fixtures.PORTFOLIO)),
+                this.portfolioStocks);
+    }
+
+    @Benchmark
+    public void widgetStocks(Blackhole blackhole) {
+        for (Map.Entry<String, StockQuote> entry : this.quotes.entrySet()) {
+            blackhole.consume(new WidgetStock(entry.getValue(),
+                    this.portfolioStocks.get(entry.getKey())));
+        }
+    }
+}
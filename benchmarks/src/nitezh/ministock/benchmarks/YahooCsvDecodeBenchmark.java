@@ -0,0 +1,126 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import nitezh.ministock.dataaccess.YahooCsvQuoteDecoder;
+import nitezh.ministock.domain.StockQuote;
+
+
+/**
+ * Compares the streaming CSV decoder with the previous split, JSON and
+ * optString path of YahooStockQuoteRepository.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class YahooCsvDecodeBenchmark {
+
+    private static final int COUNT_FIELDS = 9;
+
+    @Param({"16", "64", "256"})
+    public int quoteCount;
+
+    private List<String> symbols;
+    private String csv;
+
+    @Setup
+    public void setUp() {
+        this.symbols = new ArrayList<>();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < this.quoteCount; i++) {
+            String symbol = "SYM" + i;
+            this.symbols.add(symbol);
+            builder.append(String.format(
+                    "\"%s\",\"6/5/2015\",\"4:00pm\",%d.25,-0.70,\"-0.54%%\",\"NMS\",%d,\"Company %d Inc.\"\r\n",
+                    symbol, 100 + i, 38205012 + i, i));
+        }
+        this.csv = builder.toString();
+    }
+
+    @Benchmark
+    public HashMap<String, StockQuote> legacyJsonPath() throws JSONException {
+        JSONArray jsonArray = new JSONArray();
+        for (String line : this.csv.split("\n")) {
+            String[] values = line.replace("\"", "").split(",", COUNT_FIELDS);
+            if ((values.length < COUNT_FIELDS) || (!this.symbols.contains(values[0]))) {
+                continue;
+            }
+
+            JSONObject data = new JSONObject();
+            data.put("symbol", values[0]);
+            data.put("price", values[3]);
+            data.put("change", values[4]);
+            data.put("percent", values[5]);
+            data.put("exchange", values[6]);
+            data.put("volume", values[7]);
+            data.put("name", values[8]);
+            jsonArray.put(data);
+        }
+
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        for (int i = 0; i < jsonArray.length(); i++) {
+            JSONObject quoteJson = jsonArray.getJSONObject(i);
+            StockQuote quote = new StockQuote(
+                    quoteJson.optString("symbol"),
+                    quoteJson.optString("price"),
+                    quoteJson.optString("change"),
+                    quoteJson.optString("percent"),
+                    quoteJson.optString("exchange"),
+                    quoteJson.optString("volume"),
+                    quoteJson.optString("name"),
+                    null);
+            quotes.put(quote.getSymbol(), quote);
+        }
+        return quotes;
+    }
+
+    @Benchmark
+    public HashMap<String, StockQuote> streamingDecoder() {
+        return YahooCsvQuoteDecoder.decodeQuotes(this.csv, this.symbols, null);
+    }
+}
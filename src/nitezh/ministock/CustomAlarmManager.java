@@ -30,19 +30,27 @@ import android.content.Context;
 import android.content.Intent;
 
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Set;
 
+import nitezh.ministock.domain.AndroidWidgetRepository;
+import nitezh.ministock.domain.MarketHours;
+import nitezh.ministock.domain.StockQuoteRepository;
 import nitezh.ministock.utils.DateTools;
 
 public class CustomAlarmManager {
 
     public static final String ALARM_UPDATE = "nitezh.ministock.ALARM_UPDATE";
+    // Unchanged polls double the interval, up to this many times
+    private static final int MAX_BACKOFF_STEPS = 2;
+    private final Context context;
     private final PreferenceStorage appStorage;
     private final AlarmManager alarmManager;
     private final PendingIntent pendingIntent;
 
     public CustomAlarmManager(Context context) {
+        this.context = context;
         this.appStorage = PreferenceStorage.getInstance(context);
         this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
         this.pendingIntent = PendingIntent.getBroadcast(context.getApplicationContext(), 0,
@@ -54,6 +62,15 @@ public class CustomAlarmManager {
                 Long.toString(AlarmManager.INTERVAL_HALF_HOUR))));
     }
 
+    private Long getBackedOffInterval(Long updateInterval) {
+        int unchangedPolls = this.appStorage.getInt(StockQuoteRepository.UNCHANGED_POLLS, 0);
+        return updateInterval << Math.min(unchangedPolls, MAX_BACKOFF_STEPS);
+    }
+
+    private Set<String> getWidgetSymbols() {
+        return new AndroidWidgetRepository(this.context).getWidgetsStockSymbols();
+    }
+
     private int getTimeToNextUpdate(Long updateInterval) {
         Double timeToNextUpdate = updateInterval.doubleValue();
         Double elapsedTime = DateTools.elapsedTime(this.appStorage.getString("last_update1", null));
@@ -70,15 +87,25 @@ public class CustomAlarmManager {
         this.appStorage.apply();
     }
 
+    /**
+     * Returns when the next update is due, sleeping until a market opens if all are closed
+     */
+    public static long getNextUpdate(MarketHours marketHours, Collection<String> symbols,
+                                     long now, long timeToNextUpdate) {
+        return Math.max(now + timeToNextUpdate, marketHours.getNextOpen(symbols, now));
+    }
+
     public void reinitialize() {
         this.cancel();
 
-        Long updateInterval = getUpdateInterval();
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTimeInMillis(System.currentTimeMillis());
-        calendar.add(Calendar.MILLISECOND, this.getTimeToNextUpdate(updateInterval));
-        alarmManager.setInexactRepeating(AlarmManager.RTC, calendar.getTimeInMillis(),
-                updateInterval, pendingIntent);
+        // Each update moves the alarm on. It keeps repeating in case the process
+        // dies before the next update re-arms it.
+        long now = System.currentTimeMillis();
+        Long updateInterval = this.getBackedOffInterval(getUpdateInterval());
+        long nextUpdate = getNextUpdate(MarketHours.getInstance(), this.getWidgetSymbols(),
+                now, this.getTimeToNextUpdate(updateInterval));
+        alarmManager.setInexactRepeating(AlarmManager.RTC, nextUpdate, updateInterval,
+                pendingIntent);
     }
 
     public void cancel() {
@@ -29,22 +29,79 @@ import android.content.Context;
 import android.content.SharedPreferences;
 
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PreferenceStorage implements Storage {
 
+    // One handle per preferences file, shared by every thread in the process
+    private static final IdentityHashMap<SharedPreferences, PreferenceStorage> sInstances =
+            new IdentityHashMap<>();
+
+    private final AtomicInteger version = new AtomicInteger();
+    private final SharedPreferences.OnSharedPreferenceChangeListener listener =
+            new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences preferences, String key) {
+                    version.incrementAndGet();
+                }
+            };
+    // Handles are shared, so each thread writes to its own editor and batch
+    private final ThreadLocal<Pending> pending = new ThreadLocal<Pending>() {
+        @Override
+        protected Pending initialValue() {
+            return new Pending();
+        }
+    };
     private SharedPreferences preferences;
-    private SharedPreferences.Editor editor;
 
     public PreferenceStorage(SharedPreferences preferences) {
         this.preferences = preferences;
+        if (preferences != null) {
+            // Preferences only hold weak references to listeners, so this keeps it alive
+            preferences.registerOnSharedPreferenceChangeListener(this.listener);
+        }
     }
 
     public static PreferenceStorage getInstance(Context context) {
-        return new PreferenceStorage(context.getSharedPreferences(
+        return getInstance(context.getSharedPreferences(
                 context.getString(R.string.prefs_name), 0));
     }
 
+    public static PreferenceStorage getInstance(SharedPreferences preferences) {
+        synchronized (sInstances) {
+            PreferenceStorage storage = sInstances.get(preferences);
+            if (storage == null) {
+                storage = new PreferenceStorage(preferences);
+                sInstances.put(preferences, storage);
+            }
+            return storage;
+        }
+    }
+
+    /**
+     * Drops the shared handle of preferences that are no longer used, such as
+     * those of a deleted widget
+     */
+    public static void forgetInstance(SharedPreferences preferences) {
+        PreferenceStorage storage;
+        synchronized (sInstances) {
+            storage = sInstances.remove(preferences);
+        }
+        if (storage != null) {
+            preferences.unregisterOnSharedPreferenceChangeListener(storage.listener);
+        }
+    }
+
+    /**
+     * @return a number that changes whenever these preferences are written, by
+     * this handle or through any other editor
+     */
+    public int getVersion() {
+        return this.version.get();
+    }
+
     @Override
     public int getInt(String key, int defaultVal) {
         return this.preferences.getInt(key, defaultVal);
@@ -60,17 +117,43 @@ public class PreferenceStorage implements Storage {
         return this.preferences.getBoolean(key, defaultVal);
     }
 
+    private SharedPreferences.Editor getEditor() {
+        Pending pending = this.pending.get();
+        if (pending.editor == null) pending.editor = this.preferences.edit();
+        return pending.editor;
+    }
+
     @Override
     public Storage putInt(String key, int value) {
-        if (this.editor == null) this.editor = this.preferences.edit();
-        this.editor.putInt(key, value);
+        this.getEditor().putInt(key, value);
         return this;
     }
 
     @Override
     public void apply() {
-        if (this.editor != null) this.editor.apply();
-        this.editor = null;
+        // Writes in a batch share the one editor, applied when the batch ends
+        Pending pending = this.pending.get();
+        if (pending.batchDepth > 0) return;
+        if (pending.editor != null) {
+            pending.editor.apply();
+            this.version.incrementAndGet();
+        }
+        pending.editor = null;
+    }
+
+    @Override
+    public void beginBatch() {
+        this.pending.get().batchDepth++;
+    }
+
+    @Override
+    public void endBatch() {
+        Pending pending = this.pending.get();
+        if (pending.batchDepth == 0) {
+            throw new IllegalStateException("endBatch called without beginBatch");
+        }
+        pending.batchDepth--;
+        this.apply();
     }
 
     @Override
@@ -85,29 +168,30 @@ public class PreferenceStorage implements Storage {
 
     @Override
     public Storage putString(String key, String value) {
-        if (this.editor == null) this.editor = this.preferences.edit();
-        this.editor.putString(key, value);
+        this.getEditor().putString(key, value);
         return this;
     }
 
     @Override
     public Storage putBoolean(String key, Boolean value) {
-        if (this.editor == null) this.editor = this.preferences.edit();
-        this.editor.putBoolean(key, value);
+        this.getEditor().putBoolean(key, value);
         return this;
     }
 
     @Override
     public Storage putFloat(String key, Float value) {
-        if (this.editor == null) this.editor = this.preferences.edit();
-        this.editor.putFloat(key, value);
+        this.getEditor().putFloat(key, value);
         return this;
     }
 
     @Override
     public Storage putLong(String key, Long value) {
-        if (this.editor == null) this.editor = this.preferences.edit();
-        this.editor.putFloat(key, value);
+        this.getEditor().putFloat(key, value);
         return this;
     }
+
+    private static class Pending {
+        SharedPreferences.Editor editor;
+        int batchDepth = 0;
+    }
 }
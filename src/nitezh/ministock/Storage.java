@@ -48,4 +48,13 @@ public interface Storage {
     public Storage putLong(String key, Long value);
 
     void apply();
+
+    /**
+     * Starts a batch, in which apply only takes effect once the outermost
+     * batch ends, so a group of writes is committed to disk once.
+     * Batches may be nested, and each must be closed with endBatch.
+     */
+    void beginBatch();
+
+    void endBatch();
 }
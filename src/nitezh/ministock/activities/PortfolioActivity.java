@@ -41,6 +41,7 @@ import android.widget.EditText;
 import android.widget.ListView;
 import android.widget.SimpleAdapter;
 
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
@@ -50,12 +51,13 @@ import java.util.concurrent.Callable;
 
 import nitezh.ministock.DialogTools;
 import nitezh.ministock.Storage;
-import nitezh.ministock.utils.StorageCache;
+import nitezh.ministock.utils.IndexedStorageCache;
 import nitezh.ministock.PreferenceStorage;
 import nitezh.ministock.R;
 import nitezh.ministock.activities.widget.WidgetProviderBase;
 import nitezh.ministock.domain.AndroidWidgetRepository;
 import nitezh.ministock.domain.PortfolioStockRepository;
+import nitezh.ministock.domain.QuoteSnapshotStore;
 import nitezh.ministock.domain.StockQuote;
 
 
@@ -72,8 +74,9 @@ public class PortfolioActivity extends Activity {
         Storage storage = PreferenceStorage.getInstance(this);
         this.portfolioRepository = new PortfolioStockRepository(
                 storage,
-                new StorageCache(storage),
-                new AndroidWidgetRepository(this)
+                new IndexedStorageCache(storage),
+                new AndroidWidgetRepository(this),
+                new File(getFilesDir(), QuoteSnapshotStore.FILE_NAME)
         );
         this.refreshView();
     }
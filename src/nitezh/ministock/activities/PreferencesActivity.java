@@ -32,6 +32,7 @@ import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.Bundle;
+import android.util.Log;
 import android.preference.CheckBoxPreference;
 import android.preference.ListPreference;
 import android.preference.Preference;
@@ -47,6 +48,7 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 
+import java.io.File;
 import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -69,9 +71,11 @@ import nitezh.ministock.UserData;
 import nitezh.ministock.activities.widget.WidgetProviderBase;
 import nitezh.ministock.domain.AndroidWidgetRepository;
 import nitezh.ministock.domain.PortfolioStockRepository;
+import nitezh.ministock.domain.QuoteSnapshotStore;
 import nitezh.ministock.domain.WidgetRepository;
 import nitezh.ministock.utils.DateTools;
-import nitezh.ministock.utils.StorageCache;
+import nitezh.ministock.utils.IndexedStorageCache;
+import nitezh.ministock.utils.Metrics;
 import nitezh.ministock.utils.VersionTools;
 
 import static android.content.SharedPreferences.Editor;
@@ -159,7 +163,7 @@ public class PreferencesActivity extends PreferenceActivity implements OnSharedP
             return;
         }
         // Cleanup preferences files
-        Storage appStorage = new PreferenceStorage(getAppPreferences());
+        Storage appStorage = PreferenceStorage.getInstance(getAppPreferences());
         UserData.cleanupPreferenceFiles(getApplicationContext());
         @SuppressWarnings("rawtypes") Callable callable = new Callable() {
             @Override
@@ -701,6 +705,16 @@ public class PreferencesActivity extends PreferenceActivity implements OnSharedP
             }
         });
 
+        // Hook up the refresh metrics preference
+        Preference refreshMetrics = findPreference("refresh_metrics");
+        refreshMetrics.setOnPreferenceClickListener(new OnPreferenceClickListener() {
+            @Override
+            public boolean onPreferenceClick(Preference preference) {
+                showRefreshMetrics();
+                return true;
+            }
+        });
+
         // Hook the Update preference to the Help activity
         Preference updateNow = findPreference("update_now");
         updateNow.setOnPreferenceClickListener(new OnPreferenceClickListener() {
@@ -737,9 +751,9 @@ public class PreferencesActivity extends PreferenceActivity implements OnSharedP
                     @Override
                     public Object call() throws Exception {
                         Storage storage = PreferenceStorage.getInstance(PreferencesActivity.this);
-                        Cache cache = new StorageCache(storage);
+                        Cache cache = new IndexedStorageCache(storage);
                         WidgetRepository widgetRepository = new AndroidWidgetRepository(PreferencesActivity.this);
-                        new PortfolioStockRepository(storage, cache, widgetRepository).backupPortfolio(PreferencesActivity.this, this.getInputValue());
+                        new PortfolioStockRepository(storage, cache, widgetRepository, getSnapshotFile()).backupPortfolio(PreferencesActivity.this, this.getInputValue());
                         return new Object();
                     }
                 };
@@ -768,9 +782,9 @@ public class PreferencesActivity extends PreferenceActivity implements OnSharedP
                     @Override
                     public Object call() throws Exception {
                         Storage storage = PreferenceStorage.getInstance(PreferencesActivity.this);
-                        Cache cache = new StorageCache(storage);
+                        Cache cache = new IndexedStorageCache(storage);
                         WidgetRepository widgetRepository = new AndroidWidgetRepository(PreferencesActivity.this);
-                        new PortfolioStockRepository(storage, cache, widgetRepository).restorePortfolio(PreferencesActivity.this, this.getInputValue());
+                        new PortfolioStockRepository(storage, cache, widgetRepository, getSnapshotFile()).restorePortfolio(PreferencesActivity.this, this.getInputValue());
                         return new Object();
                     }
                 };
@@ -789,9 +803,9 @@ public class PreferencesActivity extends PreferenceActivity implements OnSharedP
                     @Override
                     public Object call() throws Exception {
                         Storage storage = PreferenceStorage.getInstance(PreferencesActivity.this);
-                        Cache cache = new StorageCache(storage);
+                        Cache cache = new IndexedStorageCache(storage);
                         WidgetRepository widgetRepository = new AndroidWidgetRepository(PreferencesActivity.this);
-                        new PortfolioStockRepository(storage, cache, widgetRepository).backupWidget(PreferencesActivity.this, this.getInputValue());
+                        new PortfolioStockRepository(storage, cache, widgetRepository, getSnapshotFile()).backupWidget(PreferencesActivity.this, this.getInputValue());
                         return new Object();
                     }
                 };
@@ -818,9 +832,9 @@ public class PreferencesActivity extends PreferenceActivity implements OnSharedP
                     @Override
                     public Object call() throws Exception {
                         Storage storage = PreferenceStorage.getInstance(PreferencesActivity.this);
-                        Cache cache = new StorageCache(storage);
+                        Cache cache = new IndexedStorageCache(storage);
                         WidgetRepository widgetRepository = new AndroidWidgetRepository(PreferencesActivity.this);
-                        new PortfolioStockRepository(storage, cache, widgetRepository).restoreWidget(PreferencesActivity.this, this.getInputValue());
+                        new PortfolioStockRepository(storage, cache, widgetRepository, getSnapshotFile()).restoreWidget(PreferencesActivity.this, this.getInputValue());
                         return new Object();
                     }
                 };
@@ -1112,6 +1126,24 @@ public class PreferencesActivity extends PreferenceActivity implements OnSharedP
         DialogTools.showSimpleDialog(this, title, body);
     }
 
+    private File getSnapshotFile() {
+        return new File(getFilesDir(), QuoteSnapshotStore.FILE_NAME);
+    }
+
+    private void showRefreshMetrics() {
+        // Also written to logcat and a file, so they can be collected from a device
+        File file = new File(getFilesDir(), "metrics.txt");
+        Metrics.getInstance().dump(file);
+
+        StringBuilder body = new StringBuilder();
+        for (String line : Metrics.getInstance().report()) {
+            Log.i("Metrics", line);
+            body.append(line).append("<br/>");
+        }
+        body.append("<br/>Saved to ").append(file.getAbsolutePath());
+        DialogTools.showSimpleDialog(this, "Refresh metrics", body.toString());
+    }
+
     private void showChangeLog() {
         String title = "BUILD " + VersionTools.BUILD;
         String body = CHANGE_LOG;
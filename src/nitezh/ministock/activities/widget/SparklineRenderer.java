@@ -0,0 +1,238 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.activities.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import nitezh.ministock.domain.TickSeries;
+
+
+/**
+ * Draws the recent prices of symbols into small bitmaps for the visual stockboard.
+ * <p/>
+ * A symbol keeps its bitmap and is only drawn again when its series has new
+ * ticks, so unchanged rows send nothing in a partial update. New ticks are
+ * drawn into another bitmap that replaces the old one, because a bitmap that
+ * was handed out may still be waiting to be sent to a widget.
+ * <p/>
+ * Widget updates run between beginFrame and endFrame. Replaced bitmaps are
+ * held back until no update is in progress, by which time the views holding
+ * them have been sent, and then go to a pool of bitmaps of their size.
+ */
+public class SparklineRenderer {
+
+    private static final int MAX_SYMBOLS = 64;
+    private static final int MAX_POOLED = 16;
+    private static final int LINE_COLOR = 0xc0ffffff;
+
+    private final int width;
+    private final int height;
+    private final LinkedHashMap<String, Sparkline> sparklines;
+    private final HashMap<Long, ArrayList<Bitmap>> pool = new HashMap<>();
+    private final ArrayList<Bitmap> retired = new ArrayList<>();
+    private int activeFrames = 0;
+    private final Path path = new Path();
+    private final Paint paint;
+    private long drawCount = 0;
+
+    public SparklineRenderer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.sparklines = new LinkedHashMap<String, Sparkline>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Sparkline> eldest) {
+                if (this.size() > MAX_SYMBOLS) {
+                    retire(eldest.getValue().bitmap);
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        this.paint.setStyle(Paint.Style.STROKE);
+        this.paint.setStrokeWidth(Math.max(1f, height / 12f));
+        this.paint.setColor(LINE_COLOR);
+    }
+
+    /**
+     * Starts a widget update, bitmaps replaced from now on are not reused until it ends
+     */
+    public synchronized void beginFrame() {
+        this.activeFrames++;
+    }
+
+    /**
+     * Ends a widget update once its views have been sent
+     */
+    public synchronized void endFrame() {
+        if (this.activeFrames == 0) {
+            throw new IllegalStateException("endFrame without beginFrame");
+        }
+        this.activeFrames--;
+        if (this.activeFrames == 0) {
+            for (Bitmap bitmap : this.retired) {
+                this.release(bitmap);
+            }
+            this.retired.clear();
+        }
+    }
+
+    /**
+     * @return the sparkline of the symbol, or null if it has too few ticks to draw
+     */
+    public synchronized Sparkline get(String symbol, TickSeries ticks) {
+        if (ticks == null || ticks.size() < 2) {
+            return null;
+        }
+
+        long lastTime = ticks.getTime(ticks.size() - 1);
+        Sparkline sparkline = this.sparklines.get(symbol);
+        if (sparkline != null && sparkline.seriesVersion == ticks.getVersion()
+                && sparkline.lastTime == lastTime) {
+            return sparkline;
+        }
+
+        Bitmap bitmap = this.obtain(this.width, this.height);
+        this.draw(bitmap, ticks);
+        if (sparkline != null) {
+            this.retire(sparkline.bitmap);
+        }
+        sparkline = new Sparkline(bitmap, ++this.drawCount, ticks.getVersion(), lastTime);
+        this.sparklines.put(symbol, sparkline);
+        return sparkline;
+    }
+
+    private void draw(Bitmap bitmap, TickSeries ticks) {
+        float[] points = getPoints(ticks.getPrices(), this.width, this.height,
+                this.paint.getStrokeWidth());
+        this.path.reset();
+        this.path.moveTo(points[0], points[1]);
+        for (int i = 2; i < points.length; i += 2) {
+            this.path.lineTo(points[i], points[i + 1]);
+        }
+
+        bitmap.eraseColor(Color.TRANSPARENT);
+        new Canvas(bitmap).drawPath(this.path, this.paint);
+    }
+
+    private static long getSizeKey(int width, int height) {
+        return ((long) width << 32) | (height & 0xffffffffL);
+    }
+
+    private Bitmap obtain(int width, int height) {
+        ArrayList<Bitmap> bitmaps = this.pool.get(getSizeKey(width, height));
+        if (bitmaps != null && !bitmaps.isEmpty()) {
+            return bitmaps.remove(bitmaps.size() - 1);
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private void retire(Bitmap bitmap) {
+        if (this.activeFrames > 0) {
+            this.retired.add(bitmap);
+        } else {
+            this.release(bitmap);
+        }
+    }
+
+    private void release(Bitmap bitmap) {
+        long key = getSizeKey(bitmap.getWidth(), bitmap.getHeight());
+        ArrayList<Bitmap> bitmaps = this.pool.get(key);
+        if (bitmaps == null) {
+            bitmaps = new ArrayList<>();
+            this.pool.put(key, bitmaps);
+        }
+        if (bitmaps.size() < MAX_POOLED) {
+            bitmaps.add(bitmap);
+        }
+    }
+
+    /**
+     * Scales the prices to fill the width, and the height less a margin
+     *
+     * @return the x and y of each price in turn
+     */
+    public static float[] getPoints(double[] prices, int width, int height, float margin) {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (double price : prices) {
+            min = Math.min(min, price);
+            max = Math.max(max, price);
+        }
+
+        // A flat series is drawn across the middle
+        float top = margin / 2;
+        float range = height - margin;
+        float[] points = new float[prices.length * 2];
+        for (int i = 0; i < prices.length; i++) {
+            points[i * 2] = prices.length > 1 ? (float) i * (width - 1) / (prices.length - 1) : 0;
+            points[i * 2 + 1] = max > min
+                    ? top + (float) ((max - prices[i]) / (max - min)) * range
+                    : top + range / 2;
+        }
+        return points;
+    }
+
+    public static class Sparkline {
+
+        private final Bitmap bitmap;
+        private final long drawVersion;
+        private final long seriesVersion;
+        private final long lastTime;
+
+        Sparkline(Bitmap bitmap, long drawVersion, long seriesVersion, long lastTime) {
+            this.bitmap = bitmap;
+            this.drawVersion = drawVersion;
+            this.seriesVersion = seriesVersion;
+            this.lastTime = lastTime;
+        }
+
+        /**
+         * @return the drawn bitmap, which may be reused once the current frame ends
+         */
+        public Bitmap getBitmap() {
+            return this.bitmap;
+        }
+
+        /**
+         * @return a number that changes whenever the bitmap is drawn again
+         */
+        public long getDrawVersion() {
+            return this.drawVersion;
+        }
+    }
+}
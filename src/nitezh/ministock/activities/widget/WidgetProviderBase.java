@@ -28,59 +28,183 @@ import android.appwidget.AppWidgetManager;
 import android.appwidget.AppWidgetProvider;
 import android.content.Context;
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.widget.RemoteViews;
 
+import java.io.File;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
-import java.util.concurrent.RejectedExecutionException;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import nitezh.ministock.CustomAlarmManager;
 import nitezh.ministock.PreferenceStorage;
 import nitezh.ministock.Storage;
-import nitezh.ministock.utils.StorageCache;
+import nitezh.ministock.utils.IndexedStorageCache;
 import nitezh.ministock.UserData;
 import nitezh.ministock.activities.PreferencesActivity;
 import nitezh.ministock.domain.AndroidWidgetRepository;
-import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.domain.MarketSnapshot;
+import nitezh.ministock.domain.QuoteRefreshCoordinator;
+import nitezh.ministock.domain.QuoteSnapshotStore;
 import nitezh.ministock.domain.StockQuoteRepository;
 import nitezh.ministock.domain.WidgetRepository;
 import nitezh.ministock.utils.DateTools;
+import nitezh.ministock.utils.Metrics;
+import nitezh.ministock.utils.RefreshScheduler;
 
 
 public class WidgetProviderBase extends AppWidgetProvider {
 
+    private static final String CHANGED_WIDGETS_KEY = "changedWidgets";
+
+    // The state each widget was last rendered with, so updates only send changes
+    private static final HashMap<Integer, WidgetRenderState> sRenderedStates = new HashMap<>();
+    private static final RefreshScheduler sScheduler = new RefreshScheduler(2, "WidgetRefresh");
+    private static final Metrics.Timer RENDER_TIMER = Metrics.getInstance().timer("widget.render");
+    private static final Metrics.Timer PUSH_TIMER = Metrics.getInstance().timer("widget.push");
+    private static final Metrics.Timer TASK_TIMER = Metrics.getInstance().timer("refresh.task");
+    private static final Metrics.Counter PARTIAL_COUNTER = Metrics.getInstance().counter("widget.partial");
+    private static final Metrics.Counter FULL_COUNTER = Metrics.getInstance().counter("widget.full");
+    private static final Metrics.Counter UNCHANGED_COUNTER = Metrics.getInstance().counter("widget.unchanged");
+
+    static {
+        Metrics metrics = Metrics.getInstance();
+        metrics.gauge("refresh.queue", new Metrics.Gauge() {
+            @Override
+            public long getValue() {
+                return sScheduler.getStats().getQueueDepth();
+            }
+        });
+        metrics.gauge("refresh.queue.max", new Metrics.Gauge() {
+            @Override
+            public long getValue() {
+                return sScheduler.getStats().getMaxQueueDepth();
+            }
+        });
+        metrics.gauge("refresh.coalesced", new Metrics.Gauge() {
+            @Override
+            public long getValue() {
+                return sScheduler.getStats().getCoalescedCount();
+            }
+        });
+        metrics.gauge("refresh.failed", new Metrics.Gauge() {
+            @Override
+            public long getValue() {
+                return sScheduler.getStats().getFailedCount();
+            }
+        });
+    }
+
     private static void applyUpdate(Context context, int appWidgetId, UpdateType updateMode,
-                                    HashMap<String, StockQuote> quotes, String quotesTimeStamp) {
-        WidgetView widgetView = new WidgetView(context, appWidgetId, updateMode,
-                quotes, quotesTimeStamp);
-        widgetView.setOnClickPendingIntents();
-        if (widgetView.hasPendingChanges()) {
-            widgetView.applyPendingChanges();
-            AppWidgetManager.getInstance(context).updateAppWidget(appWidgetId, widgetView.getRemoteViews());
+                                    MarketSnapshot snapshot) {
+        // Sparkline bitmaps are only reused after the views holding them have been sent,
+        // the widget manager copies them before it returns
+        SparklineRenderer sparklines = WidgetView.getSparklines(context);
+        sparklines.beginFrame();
+        try {
+            WidgetView widgetView = new WidgetView(context, appWidgetId, updateMode, snapshot);
+            if (widgetView.hasPendingChanges()) {
+                long start = Metrics.now();
+                widgetView.applyPendingChanges();
+                RENDER_TIMER.stop(start);
+
+                start = Metrics.now();
+                pushUpdate(context, appWidgetId, widgetView);
+                PUSH_TIMER.stop(start);
+            } else {
+                UNCHANGED_COUNTER.increment();
+            }
+        } finally {
+            sparklines.endFrame();
         }
     }
 
-    public static void updateWidgetAsync(Context context, int appWidgetId, UpdateType updateType) {
-        try {
-            new GetDataTask().build(context, appWidgetId, updateType).execute();
+    private static void pushUpdate(Context context, int appWidgetId, WidgetView widgetView) {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        WidgetRenderState renderState = widgetView.getRenderState();
+        synchronized (sRenderedStates) {
+            WidgetRenderState previous = sRenderedStates.get(appWidgetId);
+            if (renderState.canUpdatePartially(previous)) {
+                RemoteViews changes = widgetView.getChangedRemoteViews(previous);
+                if (changes != null) {
+                    appWidgetManager.partiallyUpdateAppWidget(appWidgetId, changes);
+                    PARTIAL_COUNTER.increment();
+                } else {
+                    UNCHANGED_COUNTER.increment();
+                }
+            } else {
+                appWidgetManager.updateAppWidget(appWidgetId, widgetView.getRemoteViews());
+                FULL_COUNTER.increment();
+            }
+            sRenderedStates.put(appWidgetId, renderState);
         }
-        // usually occurs when queued tasks = 128
-        catch (RejectedExecutionException ignored) {
+    }
+
+    private static void forgetRenderedStates(int[] appWidgetIds) {
+        synchronized (sRenderedStates) {
+            for (int appWidgetId : appWidgetIds) {
+                sRenderedStates.remove(appWidgetId);
+            }
         }
     }
 
+    public static RefreshScheduler.Stats getRefreshStats() {
+        return sScheduler.getStats();
+    }
+
+    public static void updateWidgetAsync(Context context, int appWidgetId, UpdateType updateType) {
+        updateWidgetAsync(context, appWidgetId, updateType,
+                QuoteRefreshCoordinator.getInstance().nextGeneration(),
+                RefreshScheduler.PRIORITY_USER);
+    }
+
+    private static void updateWidgetAsync(Context context, int appWidgetId, UpdateType updateType,
+                                          long refreshGeneration, int priority) {
+        // A waiting update of the same kind for this widget is replaced by this newer one
+        sScheduler.schedule(Arrays.asList(appWidgetId, updateType), priority,
+                new RefreshTask(context, appWidgetId, updateType, refreshGeneration));
+    }
+
     public static void updateWidgets(Context context, UpdateType updateType) {
+        updateWidgets(context, updateType, RefreshScheduler.PRIORITY_USER);
+    }
+
+    private static void updateWidgets(Context context, UpdateType updateType, int priority) {
+        // All widgets updated in this pass share one quote refresh
+        long refreshGeneration = QuoteRefreshCoordinator.getInstance().nextGeneration();
         WidgetRepository widgetRepository = new AndroidWidgetRepository(context);
         for (int appWidgetId : widgetRepository.getIds()) {
-            WidgetProviderBase.updateWidgetAsync(context, appWidgetId, updateType);
+            WidgetProviderBase.updateWidgetAsync(context, appWidgetId, updateType,
+                    refreshGeneration, priority);
         }
+        rescheduleAlarm(context);
+    }
+
+    /**
+     * Refreshes the quotes once, then only renders the widgets that show a changed quote
+     */
+    private static void updateChangedWidgets(Context context) {
+        long refreshGeneration = QuoteRefreshCoordinator.getInstance().nextGeneration();
+        sScheduler.schedule(CHANGED_WIDGETS_KEY, RefreshScheduler.PRIORITY_BACKGROUND,
+                new ChangedWidgetsTask(context, refreshGeneration));
+        rescheduleAlarm(context);
+    }
 
+    private static void rescheduleAlarm(Context context) {
         CustomAlarmManager alarmManager = new CustomAlarmManager(context);
         alarmManager.setUpdateTimestamp();
         alarmManager.reinitialize();
     }
 
+    private static StockQuoteRepository newQuoteRepository(Context context) {
+        WidgetRepository widgetRepository = new AndroidWidgetRepository(context);
+        Storage storage = PreferenceStorage.getInstance(context);
+        return new StockQuoteRepository(storage, new IndexedStorageCache(storage),
+                widgetRepository, new File(context.getFilesDir(), QuoteSnapshotStore.FILE_NAME));
+    }
+
     private static void doScheduledUpdates(Context context) {
         boolean doUpdates = true;
         Storage prefs = PreferenceStorage.getInstance(context);
@@ -110,7 +234,11 @@ public class WidgetProviderBase extends AppWidgetProvider {
             }
         }
 
-        updateWidgets(context, doUpdates ? UpdateType.VIEW_UPDATE : UpdateType.VIEW_NO_UPDATE);
+        if (doUpdates) {
+            updateChangedWidgets(context);
+        } else {
+            updateWidgets(context, UpdateType.VIEW_NO_UPDATE, RefreshScheduler.PRIORITY_BACKGROUND);
+        }
     }
 
     public void handleTouch(Context context, int appWidgetId, String action) {
@@ -155,13 +283,18 @@ public class WidgetProviderBase extends AppWidgetProvider {
     }
 
     public void updateWidgetsFromCache(Context context) {
+        // The widgets are all drawn from one snapshot of the cached quotes
+        long refreshGeneration = QuoteRefreshCoordinator.getInstance().nextGeneration();
         for (int id : new AndroidWidgetRepository(context).getIds()) {
-            updateWidgetAsync(context, id, UpdateType.VIEW_NO_UPDATE);
+            updateWidgetAsync(context, id, UpdateType.VIEW_NO_UPDATE, refreshGeneration,
+                    RefreshScheduler.PRIORITY_USER);
         }
     }
 
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        // The host is asking for the views, so send them in full
+        forgetRenderedStates(appWidgetIds);
         new CustomAlarmManager(context).reinitialize();
         updateWidgetsFromCache(context);
     }
@@ -176,6 +309,7 @@ public class WidgetProviderBase extends AppWidgetProvider {
     @Override
     public void onDeleted(Context context, int[] appWidgetIds) {
         super.onDeleted(context, appWidgetIds);
+        forgetRenderedStates(appWidgetIds);
 
         WidgetRepository widgetRepository = new AndroidWidgetRepository(context);
         for (int appWidgetId : appWidgetIds) {
@@ -207,41 +341,123 @@ public class WidgetProviderBase extends AppWidgetProvider {
         VIEW_CHANGE
     }
 
-    private static class GetDataTask extends AsyncTask<Object, Void, Void> {
-        private Context context;
-        private Integer appWidgetId;
-        private UpdateType updateType;
-        private HashMap<String, StockQuote> quotes;
-        private String timeStamp;
+    private static class RefreshTask implements Runnable {
+        private final Context context;
+        private final int appWidgetId;
+        private final UpdateType updateType;
+        private final long refreshGeneration;
 
-        public GetDataTask build(Context context, Integer appWidgetId, UpdateType updateType) {
+        RefreshTask(Context context, int appWidgetId, UpdateType updateType,
+                    long refreshGeneration) {
             this.context = context;
             this.appWidgetId = appWidgetId;
             this.updateType = updateType;
-
-            return this;
+            this.refreshGeneration = refreshGeneration;
         }
 
         @Override
-        protected Void doInBackground(Object... params) {
-            WidgetRepository widgetRepository = new AndroidWidgetRepository(this.context);
-            Storage storage = PreferenceStorage.getInstance(this.context);
-            StockQuoteRepository quoteRepository = new StockQuoteRepository(
-                    PreferenceStorage.getInstance(this.context), new StorageCache(storage),
-                    widgetRepository);
+        public void run() {
+            long start = Metrics.now();
+            try {
+                this.refresh();
+            } finally {
+                TASK_TIMER.stop(start);
+            }
+        }
+
+        private void refresh() {
+            final StockQuoteRepository quoteRepository = newQuoteRepository(this.context);
+
+            // Widgets refreshed in the same generation share one snapshot
+            final boolean noCache = this.updateType == UpdateType.VIEW_UPDATE;
+            final long generation = this.refreshGeneration;
+            if (noCache) {
+                // Show the saved quotes straight away while the refresh runs
+                MarketSnapshot stale = QuoteRefreshCoordinator.getInstance().getStaleSnapshot(
+                        generation, new Callable<MarketSnapshot>() {
+                            @Override
+                            public MarketSnapshot call() {
+                                return quoteRepository.getStaleMarketSnapshot(generation);
+                            }
+                        });
+                if (!stale.getQuotes().isEmpty()) {
+                    applyUpdate(this.context, this.appWidgetId, this.updateType, stale);
+                }
+            }
+
+            MarketSnapshot snapshot = QuoteRefreshCoordinator.getInstance().getSnapshot(generation,
+                    noCache, new Callable<MarketSnapshot>() {
+                        @Override
+                        public MarketSnapshot call() {
+                            return quoteRepository.getMarketSnapshot(noCache, generation);
+                        }
+                    });
 
-            this.quotes = quoteRepository.getQuotes(
-                    widgetRepository.getWidget(this.appWidgetId).getSymbols(),
-                    updateType == UpdateType.VIEW_UPDATE);
-            this.timeStamp = quoteRepository.getTimeStamp();
+            // Only the rows that changed since the stale render are sent
+            applyUpdate(this.context, this.appWidgetId, this.updateType, snapshot);
+        }
+    }
 
-            return null;
+    private static class ChangedWidgetsTask implements Runnable {
+        private final Context context;
+        private final long refreshGeneration;
+
+        ChangedWidgetsTask(Context context, long refreshGeneration) {
+            this.context = context;
+            this.refreshGeneration = refreshGeneration;
         }
 
         @Override
-        protected void onPostExecute(Void result) {
-            applyUpdate(this.context, this.appWidgetId, this.updateType, this.quotes,
-                    this.timeStamp);
+        public void run() {
+            long start = Metrics.now();
+            try {
+                this.refresh();
+            } finally {
+                TASK_TIMER.stop(start);
+            }
+        }
+
+        private void refresh() {
+            final StockQuoteRepository quoteRepository = newQuoteRepository(this.context);
+            final long generation = this.refreshGeneration;
+
+            // The saved quotes are read before the refresh replaces them
+            MarketSnapshot previous = QuoteRefreshCoordinator.getInstance().getStaleSnapshot(
+                    generation, new Callable<MarketSnapshot>() {
+                        @Override
+                        public MarketSnapshot call() {
+                            return quoteRepository.getStaleMarketSnapshot(generation);
+                        }
+                    });
+            final MarketSnapshot snapshot = QuoteRefreshCoordinator.getInstance().getSnapshot(
+                    generation, true, new Callable<MarketSnapshot>() {
+                        @Override
+                        public MarketSnapshot call() {
+                            return quoteRepository.getMarketSnapshot(true, generation);
+                        }
+                    });
+
+            WidgetRepository widgetRepository = new AndroidWidgetRepository(this.context);
+            Set<Integer> ids = widgetRepository.getWidgetIds(snapshot.getChangedSymbols(previous));
+
+            // Widgets this process has not drawn yet may show older quotes than were saved
+            synchronized (sRenderedStates) {
+                for (int appWidgetId : widgetRepository.getIds()) {
+                    if (!sRenderedStates.containsKey(appWidgetId)) {
+                        ids.add(appWidgetId);
+                    }
+                }
+            }
+
+            for (final int appWidgetId : ids) {
+                sScheduler.schedule(Arrays.asList(appWidgetId, UpdateType.VIEW_UPDATE),
+                        RefreshScheduler.PRIORITY_BACKGROUND, new Runnable() {
+                            @Override
+                            public void run() {
+                                applyUpdate(context, appWidgetId, UpdateType.VIEW_UPDATE, snapshot);
+                            }
+                        });
+            }
         }
     }
 }
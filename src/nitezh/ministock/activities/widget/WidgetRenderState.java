@@ -0,0 +1,212 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.activities.widget;
+
+import android.graphics.Bitmap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * The view properties a widget was last rendered with, keyed by view id.
+ * <p/>
+ * Comparing the state of two renders gives the properties that changed, so
+ * an update only needs to send those. Setting a property twice keeps the
+ * last value, which also drops the redundant writes made while a frame is
+ * built.
+ */
+public class WidgetRenderState {
+
+    public static final int TEXT = 0;
+    public static final int TEXT_COLOR = 1;
+    public static final int BACKGROUND_COLOR = 2;
+    public static final int VISIBILITY = 3;
+    public static final int IMAGE_RESOURCE = 4;
+    public static final int IMAGE_BITMAP = 5;
+
+    private final int layoutId;
+    private final String styleKey;
+    private final LinkedHashMap<Long, Object> properties = new LinkedHashMap<>();
+
+    /**
+     * @param layoutId the layout the views are rendered into
+     * @param styleKey a key for the settings that change how text is styled
+     */
+    public WidgetRenderState(int layoutId, String styleKey) {
+        this.layoutId = layoutId;
+        this.styleKey = styleKey;
+    }
+
+    private static long getKey(int viewId, int property) {
+        return ((long) viewId << 3) | property;
+    }
+
+    public int getLayoutId() {
+        return this.layoutId;
+    }
+
+    public int size() {
+        return this.properties.size();
+    }
+
+    public void setText(int viewId, String text) {
+        this.put(viewId, TEXT, text);
+    }
+
+    public void setTextColor(int viewId, int color) {
+        this.put(viewId, TEXT_COLOR, color);
+    }
+
+    public void setBackgroundColor(int viewId, int color) {
+        this.put(viewId, BACKGROUND_COLOR, color);
+    }
+
+    public void setVisibility(int viewId, int visibility) {
+        this.put(viewId, VISIBILITY, visibility);
+    }
+
+    public void setImageResource(int viewId, int resourceId) {
+        this.put(viewId, IMAGE_RESOURCE, resourceId);
+    }
+
+    /**
+     * @param version changes whenever the content of the bitmap is drawn again,
+     *                as a bitmap may be redrawn in place between renders
+     */
+    public void setImageBitmap(int viewId, Bitmap bitmap, long version) {
+        this.put(viewId, IMAGE_BITMAP, bitmap != null ? new BitmapValue(bitmap, version) : null);
+    }
+
+    private void put(int viewId, int property, Object value) {
+        // Views missing from the layout and unset values are ignored
+        if (viewId <= 0 || value == null) {
+            return;
+        }
+        this.properties.put(getKey(viewId, property), value);
+    }
+
+    /**
+     * A partial update is only possible when the previous render used the
+     * same layout and styling, and set no property this one leaves out.
+     */
+    public boolean canUpdatePartially(WidgetRenderState previous) {
+        return previous != null
+                && previous.layoutId == this.layoutId
+                && previous.styleKey.equals(this.styleKey)
+                && this.properties.keySet().containsAll(previous.properties.keySet());
+    }
+
+    /**
+     * Renders every property
+     *
+     * @return the number of properties rendered
+     */
+    public int render(Renderer renderer) {
+        return this.render(null, renderer);
+    }
+
+    /**
+     * Renders only the properties that differ from the previous state
+     *
+     * @return the number of properties rendered
+     */
+    public int renderChanges(WidgetRenderState previous, Renderer renderer) {
+        return this.render(previous, renderer);
+    }
+
+    private int render(WidgetRenderState previous, Renderer renderer) {
+        int count = 0;
+        for (Map.Entry<Long, Object> property : this.properties.entrySet()) {
+            long key = property.getKey();
+            Object value = property.getValue();
+            if (previous != null && value.equals(previous.properties.get(key))) {
+                continue;
+            }
+
+            int viewId = (int) (key >> 3);
+            switch ((int) (key & 7)) {
+                case TEXT:
+                    renderer.setText(viewId, (String) value);
+                    break;
+                case TEXT_COLOR:
+                    renderer.setTextColor(viewId, (Integer) value);
+                    break;
+                case BACKGROUND_COLOR:
+                    renderer.setBackgroundColor(viewId, (Integer) value);
+                    break;
+                case VISIBILITY:
+                    renderer.setVisibility(viewId, (Integer) value);
+                    break;
+                case IMAGE_RESOURCE:
+                    renderer.setImageResource(viewId, (Integer) value);
+                    break;
+                case IMAGE_BITMAP:
+                    renderer.setImageBitmap(viewId, ((BitmapValue) value).bitmap);
+                    break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    public interface Renderer {
+
+        void setText(int viewId, String text);
+
+        void setTextColor(int viewId, int color);
+
+        void setBackgroundColor(int viewId, int color);
+
+        void setVisibility(int viewId, int visibility);
+
+        void setImageResource(int viewId, int resourceId);
+
+        void setImageBitmap(int viewId, Bitmap bitmap);
+    }
+
+    private static class BitmapValue {
+
+        private final Bitmap bitmap;
+        private final long version;
+
+        BitmapValue(Bitmap bitmap, long version) {
+            this.bitmap = bitmap;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof BitmapValue
+                    && ((BitmapValue) other).bitmap == this.bitmap
+                    && ((BitmapValue) other).version == this.version;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.bitmap) * 31 + (int) this.version;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import android.app.PendingIntent;
 import android.appwidget.AppWidgetManager;
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.graphics.Typeface;
 import android.text.SpannableString;
@@ -41,16 +42,14 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 
-import nitezh.ministock.PreferenceStorage;
 import nitezh.ministock.R;
-import nitezh.ministock.Storage;
 import nitezh.ministock.activities.PreferencesActivity;
-import nitezh.ministock.utils.StorageCache;
 import nitezh.ministock.WidgetProvider;
 import nitezh.ministock.domain.AndroidWidgetRepository;
 import nitezh.ministock.domain.PortfolioStock;
-import nitezh.ministock.domain.PortfolioStockRepository;
+import nitezh.ministock.domain.MarketSnapshot;
 import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.domain.TickSeries;
 import nitezh.ministock.domain.Widget;
 import nitezh.ministock.domain.WidgetRepository;
 import nitezh.ministock.domain.WidgetStock;
@@ -63,7 +62,7 @@ import static nitezh.ministock.activities.widget.WidgetProviderBase.ViewType;
 
 public class WidgetView {
 
-    private final RemoteViews remoteViews;
+    private final WidgetRenderState renderState;
     private final Widget widget;
     private final boolean hasPortfolioData;
     private final List<String> symbols;
@@ -71,42 +70,55 @@ public class WidgetView {
     private final HashMap<String, StockQuote> quotes;
     private final UpdateType updateMode;
     private final String quotesTimeStamp;
+    private final boolean isStale;
+    private final HashMap<String, TickSeries> ticks = new HashMap<>();
     private final Context context;
     private HashMap<ViewType, Boolean> enabledViews;
+    // Appended to the footer time while the quotes shown are out of date
+    private static final String STALE_MARKER = "*";
     // The amount of stock preferences in preferences.xml
     private static final int MAX_STOCKS = PreferencesActivity.MAX_STOCKS;
+    // Size in dp of the sparklines on the visual stockboard panels
+    private static final int SPARKLINE_WIDTH = 48;
+    private static final int SPARKLINE_HEIGHT = 8;
+    private static SparklineRenderer sSparklines;
 
     public WidgetView(Context context, int appWidgetId, UpdateType updateMode,
-                      HashMap<String, StockQuote> quotes, String quotesTimeStamp) {
+                      MarketSnapshot snapshot) {
         WidgetRepository widgetRepository = new AndroidWidgetRepository(context);
 
         this.context = context;
         this.widget = widgetRepository.getWidget(appWidgetId);
-        this.quotes = quotes;
-        this.quotesTimeStamp = quotesTimeStamp;
         this.updateMode = updateMode;
         this.symbols = widget.getSymbols();
 
-        Storage storage = PreferenceStorage.getInstance(context);
-        this.portfolioStocks = new PortfolioStockRepository(PreferenceStorage.getInstance(context),
-                new StorageCache(storage), widgetRepository).getStocksForSymbols(symbols);
+        // Every widget in a refresh reads from the same snapshot
+        this.quotes = snapshot.getQuotes(this.symbols);
+        this.quotesTimeStamp = snapshot.getTimeStamp();
+        this.isStale = snapshot.isStale();
+        this.portfolioStocks = snapshot.getPortfolioStocks(this.symbols);
         this.hasPortfolioData = !portfolioStocks.isEmpty();
+        for (String symbol : this.symbols) {
+            TickSeries series = snapshot.getTicks(symbol);
+            if (series != null) {
+                this.ticks.put(symbol, series);
+            }
+        }
 
-        this.remoteViews = this.getBlankRemoteViews(this.widget, context.getPackageName());
+        this.renderState = this.getBlankRenderState(this.widget);
         this.enabledViews = this.calculateEnabledViews(this.widget);
     }
 
     /**
-     * Returns the remote views for this widget
+     * Returns the initial render state for this widget
      *
      * @param widget the current widget
-     * @param packageName the name of this application's package
-     * @return RemoteViews of this widget
+     * @return WidgetRenderState with the background and row visibility set
      */
-    private RemoteViews getBlankRemoteViews(Widget widget, String packageName) {
+    private WidgetRenderState getBlankRenderState(Widget widget) {
         String backgroundStyle = widget.getBackgroundStyle();
         boolean useLargeFont = widget.useLargeFont();
-        RemoteViews views;
+        int layoutId;
 
         //Load layout depending on whether visual stockboard and uselargefont are enabled
         if (widget.isVisual()) {
@@ -114,61 +126,65 @@ public class WidgetView {
             useLargeFont = widget.useVsLargeFont();
             if (widget.getSize() == 1) {
                 if (useLargeFont) {
-                    views = new RemoteViews(packageName, R.layout.widget_visual_1x4_large);
+                    layoutId = R.layout.widget_visual_1x4_large;
                 } else {
-                    views = new RemoteViews(packageName, R.layout.widget_visual_1x4);
+                    layoutId = R.layout.widget_visual_1x4;
                 }
             } else if (widget.getSize() == 2) {
                 if (useLargeFont) {
-                    views = new RemoteViews(packageName, R.layout.widget_visual_2x2_large);
+                    layoutId = R.layout.widget_visual_2x2_large;
                 } else {
-                    views = new RemoteViews(packageName, R.layout.widget_visual_2x2);
+                    layoutId = R.layout.widget_visual_2x2;
                 }
             } else if (widget.getSize() == 3) {
                 if (useLargeFont) {
-                    views = new RemoteViews(packageName, R.layout.widget_visual_2x4_large);
+                    layoutId = R.layout.widget_visual_2x4_large;
                 } else {
-                    views = new RemoteViews(packageName, R.layout.widget_visual_2x4);
+                    layoutId = R.layout.widget_visual_2x4;
                 }
             } else {
                 if (useLargeFont) {
-                    views = new RemoteViews(packageName, R.layout.widget_visual_1x2_large);
+                    layoutId = R.layout.widget_visual_1x2_large;
                 } else {
-                    views = new RemoteViews(packageName, R.layout.widget_visual_1x2);
+                    layoutId = R.layout.widget_visual_1x2;
                 }
             }
         } else {
             if (widget.getSize() == 1) {
                 if (useLargeFont) {
-                    views = new RemoteViews(packageName, R.layout.widget_1x4_large);
+                    layoutId = R.layout.widget_1x4_large;
                 } else {
-                    views = new RemoteViews(packageName, R.layout.widget_1x4);
+                    layoutId = R.layout.widget_1x4;
                 }
             } else if (widget.getSize() == 2) {
                 if (useLargeFont) {
-                    views = new RemoteViews(packageName, R.layout.widget_2x2_large);
+                    layoutId = R.layout.widget_2x2_large;
                 } else {
-                    views = new RemoteViews(packageName, R.layout.widget_2x2);
+                    layoutId = R.layout.widget_2x2;
                 }
             } else if (widget.getSize() == 3) {
                 if (useLargeFont) {
-                    views = new RemoteViews(packageName, R.layout.widget_2x4_large);
+                    layoutId = R.layout.widget_2x4_large;
                 } else {
-                    views = new RemoteViews(packageName, R.layout.widget_2x4);
+                    layoutId = R.layout.widget_2x4;
                 }
             } else {
                 if (useLargeFont) {
-                    views = new RemoteViews(packageName, R.layout.widget_1x2_large);
+                    layoutId = R.layout.widget_1x2_large;
                 } else {
-                    views = new RemoteViews(packageName, R.layout.widget_1x2);
+                    layoutId = R.layout.widget_1x2;
                 }
             }
         }
 
-        views.setImageViewResource(R.id.widget_bg,
+        // Text styling is not part of the state, so a change to it needs a full update
+        String styleKey = widget.isVisual() + ":" + widget.getVsFont() + ":"
+                + widget.getVsTextStyle() + ":" + widget.getTextStyle();
+        WidgetRenderState state = new WidgetRenderState(layoutId, styleKey);
+        state.setImageResource(R.id.widget_bg,
                 getImageViewSrcId(backgroundStyle, useLargeFont));
-        this.hideUnusedStocks(views, widget.getSymbolCount());
-        return views;
+        this.hideUnusedStocks(state, widget.getSymbolCount());
+        return state;
     }
 
     /**
@@ -239,17 +255,17 @@ public class WidgetView {
         return span;
     }
 
-    public void setOnClickPendingIntents() {
+    private void setOnClickPendingIntents(RemoteViews remoteViews) {
         Intent leftTouchIntent = new Intent(this.context, WidgetProvider.class);
         leftTouchIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, this.widget.getId());
         leftTouchIntent.setAction("LEFT");
-        this.remoteViews.setOnClickPendingIntent(R.id.widget_left,
+        remoteViews.setOnClickPendingIntent(R.id.widget_left,
                 PendingIntent.getBroadcast(this.context, this.widget.getId(), leftTouchIntent, 0));
 
         Intent rightTouchIntent = new Intent(this.context, WidgetProvider.class);
         rightTouchIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, this.widget.getId());
         rightTouchIntent.setAction("RIGHT");
-        this.remoteViews.setOnClickPendingIntent(R.id.widget_right,
+        remoteViews.setOnClickPendingIntent(R.id.widget_right,
                 PendingIntent.getBroadcast(this.context, this.widget.getId(), rightTouchIntent, 0));
     }
 
@@ -663,27 +679,27 @@ public class WidgetView {
      * Set visibility for unused Stocks
      * Makes every Stock invisible, then makes only used stocks visible again
      *
-     * @param views RemoteViews of this widget
+     * @param views render state of this widget
      * @param count the amount of used stocks in this widget
      */
-    private void hideUnusedStocks(RemoteViews views, int count) {
+    private void hideUnusedStocks(WidgetRenderState views, int count) {
         for (int i = 0; i <= MAX_STOCKS; i++) {
             int viewId;
             if (!widget.isVisual()) {
                 //Enable rows for non-visual view
                 viewId = ReflectionTools.getFieldId("line" + i);
                 if (viewId > 0) {
-                    views.setViewVisibility(ReflectionTools.getFieldId("line" + i), View.GONE);
+                    views.setVisibility(ReflectionTools.getFieldId("line" + i), View.GONE);
                 }
                 // Set used rows visible
                 for (int j = 1; j < count + 1; j++) {
-                    views.setViewVisibility(ReflectionTools.getFieldId("line" + j), View.VISIBLE);
+                    views.setVisibility(ReflectionTools.getFieldId("line" + j), View.VISIBLE);
                 }
             } else {
                 //Enable panels for visual view
                 viewId = ReflectionTools.getFieldId("Panel" + i);
                 if (viewId > 0) {
-                    views.setViewVisibility(ReflectionTools.getFieldId("Panel" + i), View.INVISIBLE);
+                    views.setVisibility(ReflectionTools.getFieldId("Panel" + i), View.INVISIBLE);
                 }
 
                 // Find used Symbols
@@ -695,16 +711,43 @@ public class WidgetView {
 
                 // Set used Panels visible
                 for (int j = 1; j <= usedSymbols; j++) {
-                    views.setViewVisibility(ReflectionTools.getFieldId("Panel" + j), View.VISIBLE);
+                    views.setVisibility(ReflectionTools.getFieldId("Panel" + j), View.VISIBLE);
                 }
             }
         }
     }
 
+    public WidgetRenderState getRenderState() {
+        return this.renderState;
+    }
+
+    /**
+     * Returns RemoteViews with everything set, for a full update
+     *
+     * @return RemoteViews of this widget
+     */
     public RemoteViews getRemoteViews() {
+        RemoteViews remoteViews = new RemoteViews(
+                this.context.getPackageName(), this.renderState.getLayoutId());
+        this.renderState.render(new RemoteViewsRenderer(remoteViews));
+        this.setOnClickPendingIntents(remoteViews);
         return remoteViews;
     }
 
+    /**
+     * Returns RemoteViews with only what changed since the previous render,
+     * for a partial update
+     *
+     * @param previous the state the widget was last rendered with
+     * @return RemoteViews of the changes, or null if nothing changed
+     */
+    public RemoteViews getChangedRemoteViews(WidgetRenderState previous) {
+        RemoteViews remoteViews = new RemoteViews(
+                this.context.getPackageName(), this.renderState.getLayoutId());
+        int changes = this.renderState.renderChanges(previous, new RemoteViewsRenderer(remoteViews));
+        return changes > 0 ? remoteViews : null;
+    }
+
     public int getNextView(UpdateType updateMode) {
         int currentView = this.widget.getPreviousView();
         if (updateMode == UpdateType.VIEW_CHANGE) {
@@ -729,16 +772,37 @@ public class WidgetView {
     }
 
     public void setStockRowItemText(int row, int col, Object text) {
-        try {
-            this.remoteViews.setTextViewText(
-                    ReflectionTools.getFieldId("text" + row + col),
-                    !text.equals("") ? applyFormatting((String) text) : "");
-        } catch (Exception ignored) {
+        if (text instanceof String) {
+            this.renderState.setText(ReflectionTools.getFieldId("text" + row + col), (String) text);
         }
     }
 
     public void setStockRowItemColor(int row, int col, int color) {
-        this.remoteViews.setTextColor(ReflectionTools.getFieldId("text" + row + col), color);
+        this.renderState.setTextColor(ReflectionTools.getFieldId("text" + row + col), color);
+    }
+
+    static synchronized SparklineRenderer getSparklines(Context context) {
+        if (sSparklines == null) {
+            float density = context.getResources().getDisplayMetrics().density;
+            sSparklines = new SparklineRenderer(Math.round(SPARKLINE_WIDTH * density),
+                    Math.round(SPARKLINE_HEIGHT * density));
+        }
+        return sSparklines;
+    }
+
+    /**
+     * Shows the recent prices of the symbol on its panel, once there are enough
+     */
+    private void setStockRowSparkline(int row, String symbol) {
+        int viewId = ReflectionTools.getFieldId("spark" + row);
+        SparklineRenderer.Sparkline sparkline =
+                getSparklines(this.context).get(symbol, this.ticks.get(symbol));
+        if (sparkline != null) {
+            this.renderState.setImageBitmap(viewId, sparkline.getBitmap(), sparkline.getDrawVersion());
+            this.renderState.setVisibility(viewId, View.VISIBLE);
+        } else {
+            this.renderState.setVisibility(viewId, View.INVISIBLE);
+        }
     }
 
     /**
@@ -813,7 +877,8 @@ public class WidgetView {
                 setStockRowItemColor(lineNo, 6, rowInfo.getStockInfoExtraColor());
 
                 int panelInt = ReflectionTools.getFieldId("Panel" + lineNo);
-                remoteViews.setInt(panelInt, "setBackgroundColor", Color.parseColor(rowInfo.getVisualColor()));
+                renderState.setBackgroundColor(panelInt, Color.parseColor(rowInfo.getVisualColor()));
+                setStockRowSparkline(lineNo, symbol);
             }
         }
 
@@ -821,49 +886,49 @@ public class WidgetView {
         if (widget.getStorage().getBoolean("visual_stockboard", false)) {
 
             if (this.widget.getVsFooterVisibility().equals("invisible"))
-                remoteViews.setViewVisibility(R.id.text_footer, View.INVISIBLE);
+                renderState.setVisibility(R.id.text_footer, View.INVISIBLE);
             else {
-                remoteViews.setViewVisibility(R.id.text_footer, View.VISIBLE);
+                renderState.setVisibility(R.id.text_footer, View.VISIBLE);
 
                 // Set time stamp
                 int footerColor = this.getFooterColor();
                 try {
-                    remoteViews.setTextViewText(R.id.text5, applyFormatting(this.getVsTimeStamp()));
+                    renderState.setText(R.id.text5, this.getVsTimeStamp());
                 } catch (ArrayIndexOutOfBoundsException e) {
                     e.printStackTrace();
                 }
-                remoteViews.setTextColor(R.id.text5, footerColor);
+                renderState.setTextColor(R.id.text5, footerColor);
 
                 // Set the view label
-                remoteViews.setTextViewText(R.id.text6, applyFormatting(this.getLabel(widgetDisplay)));
-                remoteViews.setTextColor(R.id.text6, footerColor);
+                renderState.setText(R.id.text6, this.getLabel(widgetDisplay));
+                renderState.setTextColor(R.id.text6, footerColor);
             }
         } else {
 
             switch (this.widget.getFooterVisibility()) {
                 case "remove":
-                    remoteViews.setViewVisibility(R.id.text_footer, View.GONE);
+                    renderState.setVisibility(R.id.text_footer, View.GONE);
                     break;
 
                 case "invisible":
-                    remoteViews.setViewVisibility(R.id.text_footer, View.INVISIBLE);
+                    renderState.setVisibility(R.id.text_footer, View.INVISIBLE);
                     break;
 
                 default:
-                    remoteViews.setViewVisibility(R.id.text_footer, View.VISIBLE);
+                    renderState.setVisibility(R.id.text_footer, View.VISIBLE);
 
                     // Set time stamp
                     int footerColor = this.getFooterColor();
                     try {
-                        remoteViews.setTextViewText(R.id.text5, applyFormatting(this.getTimeStamp()));
+                        renderState.setText(R.id.text5, this.getTimeStamp());
                     } catch (ArrayIndexOutOfBoundsException e) {
                         e.printStackTrace();
                     }
-                    remoteViews.setTextColor(R.id.text5, footerColor);
+                    renderState.setTextColor(R.id.text5, footerColor);
 
                     // Set the view label
-                    remoteViews.setTextViewText(R.id.text6, applyFormatting(this.getLabel(widgetDisplay)));
-                    remoteViews.setTextColor(R.id.text6, footerColor);
+                    renderState.setText(R.id.text6, this.getLabel(widgetDisplay));
+                    renderState.setTextColor(R.id.text6, footerColor);
                     break;
             }
         }
@@ -1005,6 +1070,9 @@ public class WidgetView {
             }
         }
 
+        if (this.isStale) {
+            timeStamp += STALE_MARKER;
+        }
         return timeStamp;
     }
 
@@ -1028,6 +1096,9 @@ public class WidgetView {
             }
         }
 
+        if (this.isStale) {
+            timeStamp += STALE_MARKER;
+        }
         return timeStamp;
     }
 
@@ -1044,4 +1115,43 @@ public class WidgetView {
     public boolean hasPendingChanges() {
         return (!this.quotes.isEmpty() || this.canChangeView());
     }
-}
\ No newline at end of file
+
+    private class RemoteViewsRenderer implements WidgetRenderState.Renderer {
+
+        private final RemoteViews remoteViews;
+
+        RemoteViewsRenderer(RemoteViews remoteViews) {
+            this.remoteViews = remoteViews;
+        }
+
+        @Override
+        public void setText(int viewId, String text) {
+            this.remoteViews.setTextViewText(viewId, !text.equals("") ? applyFormatting(text) : "");
+        }
+
+        @Override
+        public void setTextColor(int viewId, int color) {
+            this.remoteViews.setTextColor(viewId, color);
+        }
+
+        @Override
+        public void setBackgroundColor(int viewId, int color) {
+            this.remoteViews.setInt(viewId, "setBackgroundColor", color);
+        }
+
+        @Override
+        public void setVisibility(int viewId, int visibility) {
+            this.remoteViews.setViewVisibility(viewId, visibility);
+        }
+
+        @Override
+        public void setImageResource(int viewId, int resourceId) {
+            this.remoteViews.setImageViewResource(viewId, resourceId);
+        }
+
+        @Override
+        public void setImageBitmap(int viewId, Bitmap bitmap) {
+            this.remoteViews.setImageViewBitmap(viewId, bitmap);
+        }
+    }
+}
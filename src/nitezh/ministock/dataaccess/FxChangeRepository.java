@@ -39,7 +39,7 @@ public class FxChangeRepository {
 
     private static final String BASE_URL = "http://ministocks-app-hrd.appspot.com/getcurrencydata";
 
-    private boolean hasFxSymbols(List<String> symbols) {
+    boolean hasFxSymbols(List<String> symbols) {
         for (String s : symbols) {
             if (s.contains("=")) {
                 return true;
@@ -32,20 +32,53 @@ import java.util.HashMap;
 import java.util.List;
 
 import nitezh.ministock.utils.Cache;
+import nitezh.ministock.utils.Metrics;
 import nitezh.ministock.utils.UrlDataTools;
 import nitezh.ministock.domain.StockQuote;
 
 
-public class GoogleStockQuoteRepository {
+public class GoogleStockQuoteRepository implements QuoteProvider {
 
     private static final String BASE_URL = "http://finance.google.com/finance/info?client=ig&q=";
+    private static final int MAX_SYMBOLS_PER_REQUEST = 100;
+    private static final int MAX_URL_LENGTH = 2000;
+    private static final Metrics.Timer DECODE_TIMER = Metrics.getInstance().timer("quotes.decode");
 
+    @Override
+    public String toProviderSymbol(String symbol) {
+        // Google prefixes indices with . rather than ^
+        if (symbol.startsWith("^")) {
+            return "." + symbol.substring(1);
+        }
+        return symbol;
+    }
+
+    @Override
+    public String fromProviderSymbol(String providerSymbol) {
+        if (providerSymbol.startsWith(".")) {
+            return "^" + providerSymbol.substring(1);
+        }
+        return providerSymbol;
+    }
+
+    @Override
+    public int getMaxSymbolsPerRequest() {
+        return MAX_SYMBOLS_PER_REQUEST;
+    }
+
+    @Override
+    public int getMaxUrlLength() {
+        return MAX_URL_LENGTH;
+    }
+
+    @Override
     public HashMap<String, StockQuote> getQuotes(Cache cache, List<String> symbols) {
         HashMap<String, StockQuote> quotes = new HashMap<>();
         JSONArray jsonArray;
         JSONObject quoteJson;
         try {
             jsonArray = this.retrieveQuotesAsJson(cache, symbols);
+            long start = Metrics.now();
             for (int i = 0; i < jsonArray.length(); i++) {
                 quoteJson = jsonArray.getJSONObject(i);
                 StockQuote quote = new StockQuote(
@@ -58,6 +91,7 @@ public class GoogleStockQuoteRepository {
                         quoteJson.optString("e"));
                 quotes.put(quote.getSymbol(), quote);
             }
+            DECODE_TIMER.stop(start);
         } catch (JSONException e) {
             return null;
         }
@@ -65,7 +99,8 @@ public class GoogleStockQuoteRepository {
         return quotes;
     }
 
-    private String buildRequestUrl(List<String> symbols) {
+    @Override
+    public String buildRequestUrl(List<String> symbols) {
         StringBuilder sQuery = new StringBuilder();
         for (String s : symbols) {
             if (!s.equals("")) {
@@ -80,6 +115,7 @@ public class GoogleStockQuoteRepository {
 
     public JSONArray retrieveQuotesAsJson(Cache cache, List<String> symbols) throws JSONException {
         String url = this.buildRequestUrl(symbols);
-        return new JSONArray(UrlDataTools.getCachedUrlData(url, cache, 300).replace("//", ""));
+        // Freshness is tracked per symbol by the repository, so do not cache by URL
+        return new JSONArray(UrlDataTools.getCachedUrlData(url, cache, null).replace("//", ""));
     }
 }
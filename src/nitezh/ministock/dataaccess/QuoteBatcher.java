@@ -0,0 +1,113 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.dataaccess;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.utils.Cache;
+import nitezh.ministock.utils.FetchExecutor;
+
+
+/**
+ * Splits a quote request into chunks the provider will accept.
+ * <p/>
+ * Chunks respect both the provider's symbol count and URL length limits and
+ * are fetched in parallel. A chunk that fails only loses the quotes for its
+ * own symbols, the quotes from the other chunks are still returned.
+ */
+public class QuoteBatcher {
+
+    // Every symbol is followed or preceded by a one character separator
+    private static final int SEPARATOR_LENGTH = 1;
+
+    private QuoteBatcher() {
+    }
+
+    public static List<List<String>> split(QuoteProvider provider, List<String> symbols) {
+        int maxSymbols = provider.getMaxSymbolsPerRequest();
+        int maxLength = provider.getMaxUrlLength();
+        int baseLength = provider.buildRequestUrl(new ArrayList<String>()).length();
+
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> chunk = new ArrayList<>();
+        int length = baseLength;
+        for (String symbol : symbols) {
+            if (symbol.equals("")) {
+                continue;
+            }
+
+            int symbolLength = symbol.length() + SEPARATOR_LENGTH;
+            if (!chunk.isEmpty() && (chunk.size() >= maxSymbols
+                    || length + symbolLength > maxLength)) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                length = baseLength;
+            }
+
+            // A symbol too long for any request still goes in a chunk of its own
+            chunk.add(symbol);
+            length += symbolLength;
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Fetches the quotes in provider sized chunks, returns null only if every
+     * chunk failed
+     */
+    public static HashMap<String, StockQuote> getQuotes(final QuoteProvider provider,
+                                                        final Cache cache, List<String> symbols) {
+        List<Callable<HashMap<String, StockQuote>>> fetches = new ArrayList<>();
+        for (final List<String> chunk : split(provider, symbols)) {
+            fetches.add(new Callable<HashMap<String, StockQuote>>() {
+                @Override
+                public HashMap<String, StockQuote> call() {
+                    return provider.getQuotes(cache, chunk);
+                }
+            });
+        }
+        if (fetches.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        HashMap<String, StockQuote> quotes = null;
+        for (HashMap<String, StockQuote> chunkQuotes : FetchExecutor.invokeAll(fetches)) {
+            if (chunkQuotes != null) {
+                if (quotes == null) {
+                    quotes = new HashMap<>();
+                }
+                quotes.putAll(chunkQuotes);
+            }
+        }
+        return quotes;
+    }
+}
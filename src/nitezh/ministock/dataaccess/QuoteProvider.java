@@ -0,0 +1,55 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.dataaccess;
+
+import java.util.HashMap;
+import java.util.List;
+
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.utils.Cache;
+
+
+/**
+ * A source of stock quotes.
+ * <p/>
+ * Symbols are passed to and returned from getQuotes in the provider's own
+ * notation, use toProviderSymbol and fromProviderSymbol to convert from and
+ * to the symbols used in the rest of the app. Large requests are split to fit
+ * the limits below by QuoteBatcher.
+ */
+public interface QuoteProvider {
+
+    HashMap<String, StockQuote> getQuotes(Cache cache, List<String> symbols);
+
+    String toProviderSymbol(String symbol);
+
+    String fromProviderSymbol(String providerSymbol);
+
+    int getMaxSymbolsPerRequest();
+
+    int getMaxUrlLength();
+
+    String buildRequestUrl(List<String> symbols);
+}
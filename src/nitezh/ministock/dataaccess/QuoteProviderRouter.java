@@ -0,0 +1,131 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.dataaccess;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+
+/**
+ * Routing table that decides which provider serves each symbol.
+ * <p/>
+ * Routes are matched in this order: exact symbols, suffixes (e.g. ".L"),
+ * fragments (e.g. "=X" for FX pairs) and prefixes (e.g. "^" for indices).
+ * Within each kind the first route added wins. Symbols that match no route
+ * go to the default provider.
+ */
+public class QuoteProviderRouter {
+
+    private final QuoteProvider defaultProvider;
+    private final HashMap<String, QuoteProvider> exactRoutes = new HashMap<>();
+    private final List<Route> suffixRoutes = new ArrayList<>();
+    private final List<Route> fragmentRoutes = new ArrayList<>();
+    private final List<Route> prefixRoutes = new ArrayList<>();
+
+    public QuoteProviderRouter(QuoteProvider defaultProvider) {
+        this.defaultProvider = defaultProvider;
+    }
+
+    public QuoteProviderRouter addExact(String symbol, QuoteProvider provider) {
+        if (!this.exactRoutes.containsKey(symbol)) {
+            this.exactRoutes.put(symbol, provider);
+        }
+        return this;
+    }
+
+    public QuoteProviderRouter addSuffix(String suffix, QuoteProvider provider) {
+        this.suffixRoutes.add(new Route(suffix, provider));
+        return this;
+    }
+
+    public QuoteProviderRouter addFragment(String fragment, QuoteProvider provider) {
+        this.fragmentRoutes.add(new Route(fragment, provider));
+        return this;
+    }
+
+    public QuoteProviderRouter addPrefix(String prefix, QuoteProvider provider) {
+        this.prefixRoutes.add(new Route(prefix, provider));
+        return this;
+    }
+
+    public QuoteProvider getDefaultProvider() {
+        return this.defaultProvider;
+    }
+
+    public QuoteProvider route(String symbol) {
+        QuoteProvider provider = this.exactRoutes.get(symbol);
+        if (provider != null) {
+            return provider;
+        }
+        for (Route route : this.suffixRoutes) {
+            if (symbol.endsWith(route.pattern)) {
+                return route.provider;
+            }
+        }
+        for (Route route : this.fragmentRoutes) {
+            if (symbol.contains(route.pattern)) {
+                return route.provider;
+            }
+        }
+        for (Route route : this.prefixRoutes) {
+            if (symbol.startsWith(route.pattern)) {
+                return route.provider;
+            }
+        }
+        return this.defaultProvider;
+    }
+
+    /**
+     * Groups symbols by the provider that serves them, keeping request order
+     */
+    public LinkedHashMap<QuoteProvider, List<String>> route(List<String> symbols) {
+        LinkedHashMap<QuoteProvider, List<String>> routes = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            if (symbol.equals("")) {
+                continue;
+            }
+            QuoteProvider provider = this.route(symbol);
+            List<String> providerSymbols = routes.get(provider);
+            if (providerSymbols == null) {
+                providerSymbols = new ArrayList<>();
+                routes.put(provider, providerSymbols);
+            }
+            providerSymbols.add(symbol);
+        }
+        return routes;
+    }
+
+    private static class Route {
+        final String pattern;
+        final QuoteProvider provider;
+
+        Route(String pattern, QuoteProvider provider) {
+            this.pattern = pattern;
+            this.provider = provider;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.dataaccess;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.utils.Metrics;
+
+
+/**
+ * Streaming decoder for the Yahoo quotes CSV (format sd1t1l1c1p2xvn).
+ * <p/>
+ * Reads one record at a time into a reused field array. Quoted fields may
+ * contain commas and doubled quotes, and any separators beyond the last
+ * field are kept as part of it, as the name is the last column.
+ */
+public class YahooCsvQuoteDecoder {
+
+    public static final int COUNT_FIELDS = 9;
+    public static final int FIELD_SYMBOL = 0;
+    public static final int FIELD_PRICE = 3;
+    public static final int FIELD_CHANGE = 4;
+    public static final int FIELD_PERCENT = 5;
+    public static final int FIELD_EXCHANGE = 6;
+    public static final int FIELD_VOLUME = 7;
+    public static final int FIELD_NAME = 8;
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final Metrics.Timer DECODE_TIMER = Metrics.getInstance().timer("quotes.decode");
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder(64);
+    private final String[] fields = new String[COUNT_FIELDS];
+    private int position = 0;
+    private int limit = 0;
+
+    public YahooCsvQuoteDecoder(Reader reader) {
+        this.reader = reader;
+    }
+
+    public YahooCsvQuoteDecoder(InputStream stream) throws UnsupportedEncodingException {
+        this(new InputStreamReader(stream, "UTF-8"));
+    }
+
+    public static HashMap<String, StockQuote> decodeQuotes(
+            String csv, Collection<String> symbols, Map<String, String> fxChanges) {
+        try {
+            return decodeQuotes(new YahooCsvQuoteDecoder(new StringReader(csv)), symbols, fxChanges);
+        } catch (IOException e) {
+            return new HashMap<>();
+        }
+    }
+
+    public static HashMap<String, StockQuote> decodeQuotes(
+            YahooCsvQuoteDecoder decoder, Collection<String> symbols,
+            Map<String, String> fxChanges) throws IOException {
+        long start = Metrics.now();
+        Set<String> requested = symbols instanceof Set
+                ? (Set<String>) symbols : new HashSet<>(symbols);
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        int count;
+        while ((count = decoder.nextRecord()) >= 0) {
+            String symbol = decoder.getField(FIELD_SYMBOL);
+            if (count < COUNT_FIELDS || !requested.contains(symbol)) {
+                continue;
+            }
+            quotes.put(symbol, new StockQuote(
+                    symbol,
+                    decoder.getField(FIELD_PRICE),
+                    decoder.getField(FIELD_CHANGE),
+                    decoder.getField(FIELD_PERCENT),
+                    decoder.getField(FIELD_EXCHANGE),
+                    decoder.getField(FIELD_VOLUME),
+                    decoder.getField(FIELD_NAME),
+                    fxChanges != null ? fxChanges.get(symbol) : null));
+        }
+        DECODE_TIMER.stop(start);
+        return quotes;
+    }
+
+    public String getField(int index) {
+        return this.fields[index];
+    }
+
+    /**
+     * Reads the next line, returning the number of fields found or -1 at the end of input
+     */
+    public int nextRecord() throws IOException {
+        int c = this.read();
+
+        // Skip blank lines
+        while (c == '\n' || c == '\r') {
+            c = this.read();
+        }
+        if (c < 0) {
+            return -1;
+        }
+
+        int count = 0;
+        boolean quoted = false;
+        boolean fieldStart = true;
+        this.field.setLength(0);
+        while (c >= 0) {
+            if (quoted) {
+                if (c == '"') {
+                    if (this.peek() == '"') {
+                        this.read();
+                        this.field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    this.field.append((char) c);
+                }
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                // Dropped so that CRLF line endings read like LF
+            } else if (c == '"' && fieldStart) {
+                quoted = true;
+            } else if (c == ',' && count < COUNT_FIELDS - 1) {
+                this.fields[count++] = this.field.toString();
+                this.field.setLength(0);
+                fieldStart = true;
+                c = this.read();
+                continue;
+            } else {
+                this.field.append((char) c);
+            }
+            fieldStart = false;
+            c = this.read();
+        }
+
+        this.fields[count++] = this.field.toString();
+        for (int i = count; i < COUNT_FIELDS; i++) {
+            this.fields[i] = "";
+        }
+        return count;
+    }
+
+    private int read() throws IOException {
+        if (this.position >= this.limit && !this.fill()) {
+            return -1;
+        }
+        return this.buffer[this.position++];
+    }
+
+    private int peek() throws IOException {
+        if (this.position >= this.limit && !this.fill()) {
+            return -1;
+        }
+        return this.buffer[this.position];
+    }
+
+    private boolean fill() throws IOException {
+        int read = this.reader.read(this.buffer, 0, BUFFER_SIZE);
+        if (read <= 0) {
+            return false;
+        }
+        this.position = 0;
+        this.limit = read;
+        return true;
+    }
+}
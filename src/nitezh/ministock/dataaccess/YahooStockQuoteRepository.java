@@ -28,56 +28,104 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import nitezh.ministock.utils.Cache;
 import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.utils.FetchExecutor;
 import nitezh.ministock.utils.UrlDataTools;
 
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.COUNT_FIELDS;
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.FIELD_CHANGE;
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.FIELD_EXCHANGE;
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.FIELD_NAME;
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.FIELD_PERCENT;
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.FIELD_PRICE;
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.FIELD_SYMBOL;
+import static nitezh.ministock.dataaccess.YahooCsvQuoteDecoder.FIELD_VOLUME;
 
-public class YahooStockQuoteRepository {
+
+public class YahooStockQuoteRepository implements QuoteProvider {
 
     private static final String BASE_URL = "http://download.finance.yahoo.com/d/quotes.csv";
     private static final String FORMAT = "sd1t1l1c1p2xvn";
-    private static final int COUNT_FIELDS = 9;
+    private static final int MAX_SYMBOLS_PER_REQUEST = 200;
+    private static final int MAX_URL_LENGTH = 2000;
     private final FxChangeRepository fxChangeRepository;
 
+    // The FX changes request shared by the chunks of the batch being fetched
+    private final Object fxChangesLock = new Object();
+    private Future<HashMap<String, String>> fxChangesFuture;
+
     public YahooStockQuoteRepository(FxChangeRepository fxChangeRepository) {
         this.fxChangeRepository = fxChangeRepository;
     }
 
+    @Override
+    public String toProviderSymbol(String symbol) {
+        return symbol;
+    }
+
+    @Override
+    public String fromProviderSymbol(String providerSymbol) {
+        return providerSymbol;
+    }
+
+    @Override
+    public int getMaxSymbolsPerRequest() {
+        return MAX_SYMBOLS_PER_REQUEST;
+    }
+
+    @Override
+    public int getMaxUrlLength() {
+        return MAX_URL_LENGTH;
+    }
+
+    @Override
     public HashMap<String, StockQuote> getQuotes(Cache cache, List<String> symbols) {
-        HashMap<String, StockQuote> quotes = new HashMap<>();
-        HashMap<String, String> fxChanges = this.fxChangeRepository.getChanges(cache, symbols);
-        JSONArray jsonArray;
-        JSONObject quoteJson;
+        // Fetch the FX changes while the quotes are being fetched
+        Future<HashMap<String, String>> fxChangesFuture = null;
+        if (this.fxChangeRepository.hasFxSymbols(symbols)) {
+            fxChangesFuture = this.getFxChangesFuture(cache, symbols);
+        }
 
-        try {
-            jsonArray = this.retrieveQuotesAsJson(cache, symbols);
-            if (jsonArray != null) {
-                for (int i = 0; i < jsonArray.length(); i++) {
-                    quoteJson = jsonArray.getJSONObject(i);
-                    StockQuote quote = new StockQuote(
-                            quoteJson.optString("symbol"),
-                            quoteJson.optString("price"),
-                            quoteJson.optString("change"),
-                            quoteJson.optString("percent"),
-                            quoteJson.optString("exchange"),
-                            quoteJson.optString("volume"),
-                            quoteJson.optString("name"),
-                            fxChanges.get(quoteJson.optString("symbol")));
-                    quotes.put(quote.getSymbol(), quote);
-                }
-            }
-        } catch (JSONException e) {
-            return null;
+        String csvText = this.getQuotesCsv(cache, symbols);
+        HashMap<String, String> fxChanges = null;
+        if (fxChangesFuture != null) {
+            fxChanges = FetchExecutor.await(fxChangesFuture);
         }
+        if (isDataInvalid(csvText)) {
+            return new HashMap<>();
+        }
+        return YahooCsvQuoteDecoder.decodeQuotes(csvText, symbols, fxChanges);
+    }
 
-        return quotes;
+    /**
+     * Chunks fetched at the same time wait on one FX changes request
+     */
+    private Future<HashMap<String, String>> getFxChangesFuture(final Cache cache,
+                                                               final List<String> symbols) {
+        synchronized (this.fxChangesLock) {
+            if (this.fxChangesFuture == null || this.fxChangesFuture.isDone()) {
+                this.fxChangesFuture = FetchExecutor.submit(
+                        new Callable<HashMap<String, String>>() {
+                            @Override
+                            public HashMap<String, String> call() {
+                                return fxChangeRepository.getChanges(cache, symbols);
+                            }
+                        });
+            }
+            return this.fxChangesFuture;
+        }
     }
 
-    private String buildRequestUrl(List<String> symbols) {
+    @Override
+    public String buildRequestUrl(List<String> symbols) {
         StringBuilder sQuery = new StringBuilder();
         for (String s : symbols) {
             if (!s.equals("")) {
@@ -92,43 +140,47 @@ public class YahooStockQuoteRepository {
 
     private String getQuotesCsv(Cache cache, List<String> symbols) {
         String url = this.buildRequestUrl(symbols);
-        return UrlDataTools.getCachedUrlData(url, cache, 300);
+        // Freshness is tracked per symbol by the repository, so do not cache by URL
+        return UrlDataTools.getCachedUrlData(url, cache, null);
     }
 
     private boolean isDataInvalid(String quotesCsv) {
         return (quotesCsv.equals("Missing Symbols List.") || quotesCsv.equals(""));
     }
 
-    private String[] parseCsvLine(String line) {
-        return line.replace("\"", "").split(",", COUNT_FIELDS);
-    }
-
-    private boolean isCsvLineInvalid(String[] values, List<String> symbols) {
-        return (values.length < COUNT_FIELDS) || (!symbols.contains(values[0]));
-    }
-
     public JSONArray retrieveQuotesAsJson(Cache cache, List<String> symbols) throws JSONException {
         String csvText = getQuotesCsv(cache, symbols);
         if (isDataInvalid(csvText)) {
             return null;
         }
+        return parseQuotesAsJson(csvText, symbols);
+    }
 
+    /**
+     * Decodes the quotes CSV into one JSON object per requested symbol
+     */
+    public static JSONArray parseQuotesAsJson(String csvText, List<String> symbols)
+            throws JSONException {
         JSONArray quotes = new JSONArray();
-        for (String line : csvText.split("\n")) {
-            String[] values = parseCsvLine(line);
-            if (isCsvLineInvalid(values, symbols)) {
-                continue;
-            }
+        YahooCsvQuoteDecoder decoder = new YahooCsvQuoteDecoder(new StringReader(csvText));
+        try {
+            int count;
+            while ((count = decoder.nextRecord()) >= 0) {
+                if (count < COUNT_FIELDS || !symbols.contains(decoder.getField(FIELD_SYMBOL))) {
+                    continue;
+                }
 
-            JSONObject data = new JSONObject();
-            data.put("symbol", values[0]);
-            data.put("price", values[3]);
-            data.put("change", values[4]);
-            data.put("percent", values[5]);
-            data.put("exchange", values[6]);
-            data.put("volume", values[7]);
-            data.put("name", values[8]);
-            quotes.put(data);
+                JSONObject data = new JSONObject();
+                data.put("symbol", decoder.getField(FIELD_SYMBOL));
+                data.put("price", decoder.getField(FIELD_PRICE));
+                data.put("change", decoder.getField(FIELD_CHANGE));
+                data.put("percent", decoder.getField(FIELD_PERCENT));
+                data.put("exchange", decoder.getField(FIELD_EXCHANGE));
+                data.put("volume", decoder.getField(FIELD_VOLUME));
+                data.put("name", decoder.getField(FIELD_NAME));
+                quotes.put(data);
+            }
+        } catch (IOException ignored) {
         }
 
         return quotes;
@@ -32,18 +32,20 @@ import android.content.res.Resources;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import nitezh.ministock.PreferenceStorage;
 import nitezh.ministock.R;
-import nitezh.ministock.Storage;
 
 public class AndroidWidget implements Widget {
 
-    private final Storage storage;
+    // The config of each widget, reloaded once its preferences have changed
+    private static final HashMap<Integer, WidgetConfig> sConfigs = new HashMap<>();
+
+    private final PreferenceStorage storage;
     private final Context context;
     private final int id;
     private int size;
@@ -57,14 +59,43 @@ public class AndroidWidget implements Widget {
     }
 
     @Override
-    public Storage getStorage() {
+    public PreferenceStorage getStorage() {
         SharedPreferences widgetPreferences = null;
         try {
             widgetPreferences = context.getSharedPreferences(context.getString(R.string.prefs_name) + this.id, 0);
         } catch (Resources.NotFoundException ignored) {
         }
 
-        return new PreferenceStorage(widgetPreferences);
+        if (widgetPreferences == null) {
+            return new PreferenceStorage(null);
+        }
+        return PreferenceStorage.getInstance(widgetPreferences);
+    }
+
+    /**
+     * Drops the config of a deleted widget
+     */
+    static void forgetConfig(int id) {
+        synchronized (sConfigs) {
+            sConfigs.remove(id);
+        }
+    }
+
+    public WidgetConfig getConfig() {
+        synchronized (sConfigs) {
+            WidgetConfig config = sConfigs.get(this.id);
+            int version = this.storage.getVersion();
+            if (config == null || config.getVersion() != version) {
+                config = new WidgetConfig(this.storage, version);
+                sConfigs.put(this.id, config);
+
+                WidgetRegistry registry = AndroidWidgetRepository.getLoadedRegistry();
+                if (registry != null) {
+                    registry.setSymbols(this.id, config.getStocks());
+                }
+            }
+            return config;
+        }
     }
 
     @Override
@@ -151,16 +182,16 @@ public class AndroidWidget implements Widget {
     }
 
     public boolean isVisual() {
-        return storage.getBoolean("visual_stockboard", false);
+        return this.getConfig().isVisual();
     }
 
     public int _getSize() {
-        return this.storage.getInt("widgetSize", 0);
+        return this.getConfig().getSize();
     }
 
     @Override
     public String getStock(int i) {
-        return this.storage.getString("Stock" + (i + 1), "");
+        return this.getConfig().getStock(i);
     }
 
     @Override
@@ -178,45 +209,12 @@ public class AndroidWidget implements Widget {
 
     @Override
     public List<String> getSymbols() {
-        boolean found = false;
-        List<String> symbols = new ArrayList<>();
-        String s;
-        for (int i = 0; i < this.getSymbolCount(); i++) {
-            s = this.getStock(i);
-            symbols.add(s);
-            if (!s.equals("")) {
-                found = true;
-            }
-        }
-
-        if (!found) {
-            symbols.add("^DJI");
-        }
-        return symbols;
+        return this.getConfig().getSymbols(this.getSymbolCount());
     }
 
     @Override
     public int getSymbolCount() {
-        int size = this.getSize();
-        int count = 0;
-        if (!this.isVisual()) {
-            if (size == 0 || size == 1) {
-                count = 4;
-            } else if (size == 2 || size == 3) {
-                count = 10;
-            }
-        } else {
-            if (size == 0) {
-                count = 4;
-            } else if (size == 1) {
-                count = 8;
-            } else if (size == 2) {
-                count = 8;
-            } else if (size == 3) {
-                count = 16;
-            }
-        }
-        return count;
+        return WidgetConfig.getSymbolCount(this.getSize(), this.isVisual());
     }
 
     @Override
@@ -302,56 +300,56 @@ public class AndroidWidget implements Widget {
 
     @Override
     public boolean hasDailyChangeView() {
-        return this.storage.getBoolean("show_absolute_change", false);
+        return this.getConfig().hasDailyChangeView();
     }
 
     @Override
     public boolean hasDailyPercentView() {
-        return this.storage.getBoolean("show_percent_change", false)
+        return this.getConfig().hasDailyPercentView()
                 && (size == 0 || size == 2);
     }
 
     @Override
     public boolean hasTotalChangeView() {
-        return this.storage.getBoolean("show_portfolio_abs", false);
+        return this.getConfig().hasTotalChangeView();
     }
 
     @Override
     public boolean hasTotalPercentView() {
-        return this.storage.getBoolean("show_portfolio_change", false)
+        return this.getConfig().hasTotalPercentView()
                 && (size == 0 || size == 2);
     }
 
     @Override
     public boolean hasTotalChangeAerView() {
-        return this.storage.getBoolean("show_portfolio_aer", false);
+        return this.getConfig().hasTotalChangeAerView();
     }
 
     @Override
     public boolean hasDailyPlChangeView() {
-        return this.storage.getBoolean("show_profit_daily_abs", false);
+        return this.getConfig().hasDailyPlChangeView();
     }
 
     @Override
     public boolean hasDailyPlPercentView() {
-        return this.storage.getBoolean("show_profit_daily_change", false)
+        return this.getConfig().hasDailyPlPercentView()
                 && (size == 0 || size == 2);
     }
 
     @Override
     public boolean hasTotalPlChangeView() {
-        return this.storage.getBoolean("show_profit_abs", false);
+        return this.getConfig().hasTotalPlChangeView();
     }
 
     @Override
     public boolean hasTotalPlPercentView() {
-        return this.storage.getBoolean("show_profit_change", false)
+        return this.getConfig().hasTotalPlPercentView()
                 && (size == 0 || size == 2);
     }
 
     @Override
     public boolean hasTotalPlPercentAerView() {
-        return this.storage.getBoolean("show_profit_aer", false);
+        return this.getConfig().hasTotalPlPercentAerView();
     }
 
 }
@@ -28,17 +28,21 @@ import android.content.Context;
 import android.text.TextUtils;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
 import nitezh.ministock.PreferenceStorage;
+import nitezh.ministock.R;
 import nitezh.ministock.Storage;
 import nitezh.ministock.activities.PreferencesActivity;
 
 
 public class AndroidWidgetRepository implements WidgetRepository {
 
+    // Built from storage once per process, then kept up to date as widgets change
+    private static volatile WidgetRegistry sRegistry;
+
     private final Context context;
     private final Storage appStorage;
     // The amount of stock preferences in preferences.xml
@@ -49,13 +53,37 @@ public class AndroidWidgetRepository implements WidgetRepository {
         this.appStorage = PreferenceStorage.getInstance(context);
     }
 
+    /**
+     * @return the registry if it has been built, so widgets can update its symbols
+     */
+    static WidgetRegistry getLoadedRegistry() {
+        return sRegistry;
+    }
+
+    private WidgetRegistry getRegistry() {
+        WidgetRegistry registry = sRegistry;
+        if (registry != null) {
+            return registry;
+        }
+
+        synchronized (AndroidWidgetRepository.class) {
+            if (sRegistry == null) {
+                registry = new WidgetRegistry(this.loadIds());
+                for (int id : registry.getIds()) {
+                    registry.setSymbols(id, new AndroidWidget(this.context, id).getConfig().getStocks());
+                }
+                sRegistry = registry;
+            }
+            return sRegistry;
+        }
+    }
+
     @Override
     public Widget getWidget(int id) {
         return new AndroidWidget(this.context, id);
     }
 
-    @Override
-    public List<Integer> getIds() {
+    private List<Integer> loadIds() {
         List<Integer> ids = new ArrayList<>();
         for (String rawId : this.appStorage.getString("appWidgetIds", "").split(",")) {
             if (!rawId.equals("")) {
@@ -66,6 +94,11 @@ public class AndroidWidgetRepository implements WidgetRepository {
         return ids;
     }
 
+    @Override
+    public List<Integer> getIds() {
+        return this.getRegistry().getIds();
+    }
+
     private void setIds(List<Integer> ids) {
         List<String> rawIds = new ArrayList<>();
         for (Integer id : ids) {
@@ -75,23 +108,15 @@ public class AndroidWidgetRepository implements WidgetRepository {
         this.appStorage.apply();
     }
 
-    private void addWidgetId(int newId) {
-        List<Integer> ids = this.getIds();
-        if (ids.contains(newId)) {
-            return;
-        }
-        ids.add(newId);
-        this.setIds(ids);
-    }
-
     @Override
     public Widget addWidget(int id, int size) {
         Widget widget = getWidget(id);
-        if (this.getIds().contains(id)) {
+        WidgetRegistry registry = this.getRegistry();
+        if (!registry.add(id)) {
             return widget;
         }
 
-        this.addWidgetId(id);
+        this.setIds(registry.getIds());
         widget.setSize(size);
         widget.enableDailyChangeView();
         if (widget.isNarrow()) {
@@ -107,33 +132,33 @@ public class AndroidWidgetRepository implements WidgetRepository {
 
     @Override
     public void delWidget(int oldId) {
-        List<Integer> ids = this.getIds();
-        if (!ids.contains(oldId)) {
-            return;
+        WidgetRegistry registry = this.getRegistry();
+        if (registry.remove(oldId)) {
+            this.setIds(registry.getIds());
         }
-        ids.remove((Integer) oldId);  // Need to cast otherwise 'remove' uses location
-        this.setIds(ids);
+        AndroidWidget.forgetConfig(oldId);
+        PreferenceStorage.forgetInstance(this.context.getSharedPreferences(
+                this.context.getString(R.string.prefs_name) + oldId, 0));
     }
 
     @Override
     public boolean isEmpty() {
-        return this.getIds().isEmpty();
+        return this.getRegistry().isEmpty();
     }
 
     @Override
     public Set<String> getWidgetsStockSymbols() {
-        Storage widgetPreferences;
-        Set<String> widgetStockSymbols = new HashSet<>();
-        for (int appWidgetId : this.getIds()) {
-            widgetPreferences = this.getWidget(appWidgetId).getStorage();
-            if (widgetPreferences != null) {
-                for (int i = 1; i <= MAX_STOCKS; i++) {
-                    String stockSymbol = widgetPreferences.getString("Stock" + i, "");
-                    if (!stockSymbol.equals("")) widgetStockSymbols.add(stockSymbol);
-                }
-            }
+        WidgetRegistry registry = this.getRegistry();
+
+        // Reloads the config of any widget whose preferences changed, which reindexes it
+        for (int appWidgetId : registry.getIds()) {
+            new AndroidWidget(this.context, appWidgetId).getConfig();
         }
+        return registry.getSymbols();
+    }
 
-        return widgetStockSymbols;
+    @Override
+    public Set<Integer> getWidgetIds(Collection<String> symbols) {
+        return this.getRegistry().getWidgetIds(symbols);
     }
 }
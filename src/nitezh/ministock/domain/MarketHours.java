@@ -0,0 +1,261 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.domain;
+
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.TimeZone;
+
+
+/**
+ * Trading sessions of the exchanges quotes come from.
+ * <p/>
+ * The exchange is found from the symbol suffix (e.g. ".L" for London), the
+ * same suffixes CurrencyTools uses. Symbols without a suffix trade in New
+ * York, FX pairs and futures trade around the clock on weekdays and symbols
+ * with an unknown suffix are treated as always open so they keep updating.
+ * Sessions end a grace period after the close so the closing quotes, which
+ * are often delayed, are still fetched. Holidays are not known.
+ */
+public class MarketHours {
+
+    private static final int GRACE_MINUTES = 20;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int WEEKDAYS = days(Calendar.MONDAY, Calendar.TUESDAY,
+            Calendar.WEDNESDAY, Calendar.THURSDAY, Calendar.FRIDAY);
+    private static final int SUNDAY_TO_THURSDAY = days(Calendar.SUNDAY, Calendar.MONDAY,
+            Calendar.TUESDAY, Calendar.WEDNESDAY, Calendar.THURSDAY);
+
+    private static final int ALL_DAYS = WEEKDAYS | days(Calendar.SATURDAY, Calendar.SUNDAY);
+
+    private static final Session ALWAYS_OPEN = new Session("UTC", 0, MINUTES_PER_DAY, ALL_DAYS);
+    private static final Session NEW_YORK = new Session("America/New_York", 9 * 60 + 30, 16 * 60, WEEKDAYS);
+    private static final Session AROUND_THE_CLOCK = new Session("America/New_York", 0, MINUTES_PER_DAY, WEEKDAYS);
+
+    // Created after the sessions above, which it uses
+    private static final MarketHours INSTANCE = new MarketHours();
+
+    private final HashMap<String, Session> suffixSessions = new HashMap<>();
+    private final HashMap<String, Session> indexSessions = new HashMap<>();
+
+    MarketHours() {
+        Session toronto = new Session("America/Toronto", 9 * 60 + 30, 16 * 60, WEEKDAYS);
+        Session london = new Session("Europe/London", 8 * 60, 16 * 60 + 30, WEEKDAYS);
+        Session europe = new Session("Europe/Paris", 9 * 60, 17 * 60 + 30, WEEKDAYS);
+        Session germanRegional = new Session("Europe/Berlin", 8 * 60, 20 * 60, WEEKDAYS);
+        Session india = new Session("Asia/Kolkata", 9 * 60 + 15, 15 * 60 + 30, WEEKDAYS);
+        Session hongKong = new Session("Asia/Hong_Kong", 9 * 60 + 30, 16 * 60, WEEKDAYS);
+        Session china = new Session("Asia/Shanghai", 9 * 60 + 30, 15 * 60, WEEKDAYS);
+        Session taiwan = new Session("Asia/Taipei", 9 * 60, 13 * 60 + 30, WEEKDAYS);
+        Session korea = new Session("Asia/Seoul", 9 * 60, 15 * 60 + 30, WEEKDAYS);
+        Session australia = new Session("Australia/Sydney", 10 * 60, 16 * 60, WEEKDAYS);
+
+        this.addSuffixes(NEW_YORK, ".OB", ".PK");
+        this.addSuffixes(AROUND_THE_CLOCK, ".CBT", ".CME", ".CMX", ".NYB", ".NYM");
+        this.addSuffixes(toronto, ".TO", ".V");
+        this.addSuffixes(new Session("America/Mexico_City", 8 * 60 + 30, 15 * 60, WEEKDAYS), ".MX");
+        this.addSuffixes(new Session("America/Sao_Paulo", 10 * 60, 17 * 60, WEEKDAYS), ".SA");
+        this.addSuffixes(new Session("America/Argentina/Buenos_Aires", 11 * 60, 17 * 60, WEEKDAYS), ".BA");
+        this.addSuffixes(new Session("America/Santiago", 9 * 60 + 30, 16 * 60, WEEKDAYS), ".SN");
+        this.addSuffixes(london, ".L");
+        this.addSuffixes(europe, ".AS", ".BC", ".BI", ".BM", ".CO", ".DE", ".MA", ".MC", ".MF",
+                ".MI", ".NX", ".OL", ".PA", ".ST", ".SW", ".VI");
+        this.addSuffixes(germanRegional, ".BE", ".DU", ".F", ".HA", ".HM", ".MU", ".SG");
+        this.addSuffixes(new Session("Asia/Jerusalem", 9 * 60 + 59, 17 * 60 + 25, SUNDAY_TO_THURSDAY), ".TA");
+        this.addSuffixes(india, ".BO", ".NS");
+        this.addSuffixes(hongKong, ".HK");
+        this.addSuffixes(china, ".SS", ".SZ");
+        this.addSuffixes(taiwan, ".TW", ".TWO");
+        this.addSuffixes(korea, ".KQ", ".KS");
+        this.addSuffixes(new Session("Asia/Jakarta", 9 * 60, 16 * 60, WEEKDAYS), ".JK");
+        this.addSuffixes(new Session("Asia/Singapore", 9 * 60, 17 * 60, WEEKDAYS), ".SI");
+        this.addSuffixes(australia, ".AX");
+        this.addSuffixes(new Session("Pacific/Auckland", 10 * 60, 16 * 60 + 45, WEEKDAYS), ".NZ");
+
+        // Indices trade in New York unless they are listed here
+        this.indexSessions.put("^FTSE", london);
+        this.indexSessions.put("^GDAXI", europe);
+        this.indexSessions.put("^FCHI", europe);
+        this.indexSessions.put("^STOXX50E", europe);
+        this.indexSessions.put("^N225", new Session("Asia/Tokyo", 9 * 60, 15 * 60, WEEKDAYS));
+        this.indexSessions.put("^HSI", hongKong);
+        this.indexSessions.put("^AXJO", australia);
+        this.indexSessions.put("^AORD", australia);
+        this.indexSessions.put("^GSPTSE", toronto);
+        this.indexSessions.put("^BSESN", india);
+        this.indexSessions.put("^NSEI", india);
+        this.indexSessions.put("^KS11", korea);
+        this.indexSessions.put("^TWII", taiwan);
+        this.indexSessions.put("000001.SS", china);
+    }
+
+    public static MarketHours getInstance() {
+        return INSTANCE;
+    }
+
+    private static int days(int... days) {
+        int mask = 0;
+        for (int day : days) {
+            mask |= 1 << day;
+        }
+        return mask;
+    }
+
+    private void addSuffixes(Session session, String... suffixes) {
+        for (String suffix : suffixes) {
+            this.suffixSessions.put(suffix, session);
+        }
+    }
+
+    private Session getSession(String symbol) {
+        Session session = this.indexSessions.get(symbol);
+        if (session != null) {
+            return session;
+        }
+        if (symbol.contains("=X")) {
+            return AROUND_THE_CLOCK;
+        }
+
+        int index = symbol.lastIndexOf('.');
+        if (index < 0 || symbol.startsWith("^")) {
+            return NEW_YORK;
+        }
+        session = this.suffixSessions.get(symbol.substring(index));
+        return session != null ? session : ALWAYS_OPEN;
+    }
+
+    public boolean isOpen(String symbol, long time) {
+        return this.getSession(symbol).isOpen(time);
+    }
+
+    public boolean isAnyOpen(Collection<String> symbols, long time) {
+        for (String symbol : symbols) {
+            if (this.isOpen(symbol, time)) {
+                return true;
+            }
+        }
+        return symbols.isEmpty();
+    }
+
+    /**
+     * Returns when the first of the markets next opens, or the given time if
+     * any is open now
+     */
+    public long getNextOpen(Collection<String> symbols, long time) {
+        long nextOpen = Long.MAX_VALUE;
+        for (String symbol : symbols) {
+            nextOpen = Math.min(nextOpen, this.getSession(symbol).getNextOpen(time));
+        }
+        return symbols.isEmpty() ? time : nextOpen;
+    }
+
+    /**
+     * Returns when the session of the symbol last ended, including the grace
+     * period, quotes fetched after this are final until the next open
+     */
+    public long getLastClose(String symbol, long time) {
+        return this.getSession(symbol).getLastClose(time);
+    }
+
+    private static class Session {
+        private final TimeZone timeZone;
+        private final int openMinute;
+        private final int closeMinute;
+        private final int days;
+
+        Session(String timeZoneId, int openMinute, int closeMinute, int days) {
+            this.timeZone = TimeZone.getTimeZone(timeZoneId);
+            this.openMinute = openMinute;
+            this.closeMinute = Math.min(closeMinute + GRACE_MINUTES, MINUTES_PER_DAY);
+            this.days = days;
+        }
+
+        private boolean isAlwaysOpen() {
+            return this.openMinute == 0 && this.closeMinute == MINUTES_PER_DAY && this.days == ALL_DAYS;
+        }
+
+        private Calendar getCalendar(long time) {
+            Calendar calendar = Calendar.getInstance(this.timeZone);
+            calendar.setTimeInMillis(time);
+            return calendar;
+        }
+
+        private boolean isTradingDay(Calendar calendar) {
+            return (this.days & (1 << calendar.get(Calendar.DAY_OF_WEEK))) != 0;
+        }
+
+        private static long atMinute(Calendar day, int minute) {
+            Calendar calendar = (Calendar) day.clone();
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            calendar.add(Calendar.MINUTE, minute);
+            return calendar.getTimeInMillis();
+        }
+
+        boolean isOpen(long time) {
+            Calendar calendar = this.getCalendar(time);
+            if (!this.isTradingDay(calendar)) {
+                return false;
+            }
+            return time >= atMinute(calendar, this.openMinute)
+                    && time < atMinute(calendar, this.closeMinute);
+        }
+
+        long getNextOpen(long time) {
+            if (this.isOpen(time)) {
+                return time;
+            }
+
+            Calendar day = this.getCalendar(time);
+            for (int i = 0; i < 8; i++) {
+                long open = atMinute(day, this.openMinute);
+                if (this.isTradingDay(day) && open > time) {
+                    return open;
+                }
+                day.add(Calendar.DAY_OF_MONTH, 1);
+            }
+            return time;
+        }
+
+        long getLastClose(long time) {
+            if (this.isAlwaysOpen()) {
+                return time;
+            }
+
+            Calendar day = this.getCalendar(time);
+            for (int i = 0; i < 8; i++) {
+                long close = atMinute(day, this.closeMinute);
+                if (this.isTradingDay(day) && close <= time) {
+                    return close;
+                }
+                day.add(Calendar.DAY_OF_MONTH, -1);
+            }
+            return time;
+        }
+    }
+}
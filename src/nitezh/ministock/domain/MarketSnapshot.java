@@ -0,0 +1,159 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.domain;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Immutable view of the market for one refresh generation.
+ * <p/>
+ * Holds the quotes, the portfolio and the symbols on every widget, so each
+ * widget rendered in a refresh reads the same data without going back to
+ * preferences or the portfolio JSON. A stale snapshot holds the last saved
+ * quotes rather than the result of the refresh that was asked for.
+ */
+public class MarketSnapshot {
+
+    private final long generation;
+    private final Map<String, StockQuote> quotes;
+    private final String timeStamp;
+    private final Map<String, PortfolioStock> portfolioStocks;
+    private final Set<String> widgetSymbols;
+    private final boolean isStale;
+    private final Map<String, TickSeries> ticks;
+
+    public MarketSnapshot(long generation, Map<String, StockQuote> quotes, String timeStamp,
+                          Map<String, PortfolioStock> portfolioStocks, Set<String> widgetSymbols) {
+        this(generation, quotes, timeStamp, portfolioStocks, widgetSymbols, false);
+    }
+
+    public MarketSnapshot(long generation, Map<String, StockQuote> quotes, String timeStamp,
+                          Map<String, PortfolioStock> portfolioStocks, Set<String> widgetSymbols,
+                          boolean isStale) {
+        this(generation, quotes, timeStamp, portfolioStocks, widgetSymbols, isStale,
+                new HashMap<String, TickSeries>());
+    }
+
+    /**
+     * @param ticks copies of the recent prices of the symbols, by symbol
+     */
+    public MarketSnapshot(long generation, Map<String, StockQuote> quotes, String timeStamp,
+                          Map<String, PortfolioStock> portfolioStocks, Set<String> widgetSymbols,
+                          boolean isStale, Map<String, TickSeries> ticks) {
+        this.generation = generation;
+        this.isStale = isStale;
+        this.ticks = Collections.unmodifiableMap(new HashMap<>(ticks));
+        this.quotes = Collections.unmodifiableMap(new HashMap<>(quotes));
+        this.timeStamp = timeStamp;
+        this.widgetSymbols = Collections.unmodifiableSet(new HashSet<>(widgetSymbols));
+
+        // Only stocks with portfolio details are of interest to widgets
+        HashMap<String, PortfolioStock> stocks = new HashMap<>();
+        for (Map.Entry<String, PortfolioStock> entry : portfolioStocks.entrySet()) {
+            PortfolioStock stock = entry.getValue();
+            if (stock != null && !stock.isEmpty()) {
+                stocks.put(entry.getKey(), stock);
+            }
+        }
+        this.portfolioStocks = Collections.unmodifiableMap(stocks);
+    }
+
+    public static MarketSnapshot empty(long generation) {
+        return new MarketSnapshot(generation, new HashMap<String, StockQuote>(), "",
+                new HashMap<String, PortfolioStock>(), new HashSet<String>());
+    }
+
+    public long getGeneration() {
+        return this.generation;
+    }
+
+    public boolean isStale() {
+        return this.isStale;
+    }
+
+    public String getTimeStamp() {
+        return this.timeStamp;
+    }
+
+    public Map<String, StockQuote> getQuotes() {
+        return this.quotes;
+    }
+
+    public Map<String, PortfolioStock> getPortfolioStocks() {
+        return this.portfolioStocks;
+    }
+
+    public Set<String> getWidgetSymbols() {
+        return this.widgetSymbols;
+    }
+
+    /**
+     * @return the recent prices of the symbol or null if there are none
+     */
+    public TickSeries getTicks(String symbol) {
+        return this.ticks.get(symbol);
+    }
+
+    /**
+     * @return the symbols whose quote is new or differs from the one in the other snapshot
+     */
+    public Set<String> getChangedSymbols(MarketSnapshot previous) {
+        Set<String> symbols = new HashSet<>();
+        for (Map.Entry<String, StockQuote> entry : this.quotes.entrySet()) {
+            if (!entry.getValue().hasSameValues(previous.quotes.get(entry.getKey()))) {
+                symbols.add(entry.getKey());
+            }
+        }
+        return symbols;
+    }
+
+    public HashMap<String, StockQuote> getQuotes(Collection<String> symbols) {
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        for (String symbol : symbols) {
+            StockQuote quote = this.quotes.get(symbol);
+            if (quote != null) {
+                quotes.put(symbol, quote);
+            }
+        }
+        return quotes;
+    }
+
+    public HashMap<String, PortfolioStock> getPortfolioStocks(Collection<String> symbols) {
+        HashMap<String, PortfolioStock> stocks = new HashMap<>();
+        for (String symbol : symbols) {
+            PortfolioStock stock = this.portfolioStocks.get(symbol);
+            if (stock != null) {
+                stocks.put(symbol, stock);
+            }
+        }
+        return stocks;
+    }
+}
@@ -27,8 +27,6 @@ package nitezh.ministock.domain;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import static nitezh.ministock.domain.PortfolioStockRepository.PortfolioField;
-
 public class PortfolioStock {
 
     private final String symbol;
@@ -0,0 +1,78 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.domain;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+import java.util.Map;
+
+
+/**
+ * Decodes the portfolio JSON saved in preferences into PortfolioStocks.
+ * <p/>
+ * Each symbol maps to an object of PortfolioField values, where "empty"
+ * stands for a value that was not set.
+ */
+public class PortfolioStockDecoder {
+
+    private PortfolioStockDecoder() {
+    }
+
+    /**
+     * Adds a PortfolioStock for every symbol in the JSON to the given map
+     */
+    public static void decode(JSONObject json, Map<String, PortfolioStock> stocks) {
+        Iterator keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next().toString();
+            JSONObject itemJson = json.optJSONObject(key);
+            if (itemJson == null) {
+                itemJson = new JSONObject();
+            }
+
+            stocks.put(key, new PortfolioStock(key,
+                    getValue(itemJson, PortfolioField.PRICE),
+                    getValue(itemJson, PortfolioField.DATE),
+                    getValue(itemJson, PortfolioField.QUANTITY),
+                    getValue(itemJson, PortfolioField.LIMIT_HIGH),
+                    getValue(itemJson, PortfolioField.LIMIT_LOW),
+                    getValue(itemJson, PortfolioField.CUSTOM_DISPLAY),
+                    getValue(itemJson, PortfolioField.SYMBOL_2)));
+        }
+    }
+
+    private static String getValue(JSONObject itemJson, PortfolioField field) {
+        try {
+            Object value = itemJson.get(field.name());
+            if (!value.equals("empty")) {
+                return value.toString();
+            }
+        } catch (JSONException ignored) {
+        }
+        return "";
+    }
+}
@@ -30,7 +30,7 @@ import android.os.AsyncTask;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.text.NumberFormat;
+import java.io.File;
 import java.text.ParseException;
 import java.text.RuleBasedCollator;
 import java.util.ArrayList;
@@ -67,10 +67,25 @@ public class PortfolioStockRepository {
 
     private static Set<String> widgetStocks;
     private Context context = null;
+    private File snapshotFile = null;
 
 
+    public PortfolioStockRepository(Storage appStorage) {
+        this.mAppStorage = appStorage;
+    }
+
     public PortfolioStockRepository(Storage appStorage, Cache cache, WidgetRepository widgetRepository) {
+        this(appStorage, cache, widgetRepository, null);
+    }
+
+    /**
+     * @param snapshotFile the saved quotes to show, as the quotes saved in
+     *                     preferences are cleared once a snapshot is written
+     */
+    public PortfolioStockRepository(Storage appStorage, Cache cache, WidgetRepository widgetRepository,
+                                    File snapshotFile) {
         this.mAppStorage = appStorage;
+        this.snapshotFile = snapshotFile;
 
         this.widgetsStockSymbols = widgetRepository.getWidgetsStockSymbols();
         this.portfolioStocksInfo = getPortfolioStocksInfo(widgetsStockSymbols);
@@ -82,6 +97,7 @@ public class PortfolioStockRepository {
     public PortfolioStockRepository(Context context, Storage appStorage, Cache cache, WidgetRepository widgetRepository) {
         this.context = context;
         this.mAppStorage = appStorage;
+        this.snapshotFile = new File(context.getFilesDir(), QuoteSnapshotStore.FILE_NAME);
 
         this.widgetsStockSymbols = widgetRepository.getWidgetsStockSymbols();
         this.portfolioStocksInfo = getPortfolioStocksInfo(widgetsStockSymbols);
@@ -93,7 +109,7 @@ public class PortfolioStockRepository {
     private HashMap<String, StockQuote> getStocksQuotes(Storage appStorage, Cache cache, WidgetRepository widgetRepository) {
         Set<String> symbolSet = portfolioStocksInfo.keySet();
 
-        return new StockQuoteRepository(appStorage, cache, widgetRepository)
+        return new StockQuoteRepository(appStorage, cache, widgetRepository, this.snapshotFile)
                 .getQuotes(Arrays.asList(symbolSet.toArray(new String[symbolSet.size()])), false);
     }
 
@@ -108,8 +124,6 @@ public class PortfolioStockRepository {
     }
 
     public List<Map<String, String>> getDisplayInfo() {
-        NumberFormat numberFormat = NumberFormat.getInstance();
-
         List<Map<String, String>> info = new ArrayList<>();
         for (String symbol : this.getSortedSymbols()) {
             StockQuote quote = this.stocksQuotes.get(symbol);
@@ -119,7 +133,7 @@ public class PortfolioStockRepository {
             populateDisplayNames(quote, stock, itemInfo);
 
             // Get the current price if we have the data
-            String currentPrice = populateDisplayCurrentPrice(quote, itemInfo);
+            populateDisplayCurrentPrice(quote, itemInfo);
 
             if (hasInfoForStock(stock)) {
                 String buyPrice = stock.getPrice();
@@ -132,9 +146,9 @@ public class PortfolioStockRepository {
 
                 itemInfo.put("quantity", stock.getQuantity());
 
-                populateDisplayLastChange(numberFormat, symbol, quote, stock, itemInfo);
-                populateDisplayTotalChange(numberFormat, symbol, stock, itemInfo, currentPrice, buyPrice);
-                populateDisplayHoldingValue(numberFormat, symbol, stock, itemInfo, currentPrice);
+                populateDisplayLastChange(symbol, quote, stock, itemInfo);
+                populateDisplayTotalChange(symbol, quote, stock, itemInfo, buyPrice);
+                populateDisplayHoldingValue(symbol, quote, stock, itemInfo);
             }
             itemInfo.put("symbol", symbol);
             info.add(itemInfo);
@@ -158,24 +172,24 @@ public class PortfolioStockRepository {
         itemInfo.put("limitLow", limitLow);
     }
 
-    private void populateDisplayHoldingValue(NumberFormat numberFormat, String symbol, PortfolioStock stock, Map<String, String> itemInfo, String currentPrice) {
+    private void populateDisplayHoldingValue(String symbol, StockQuote quote, PortfolioStock stock, Map<String, String> itemInfo) {
         String holdingValue = "";
         try {
             Double holdingQuanta = NumberTools.parseDouble(stock.getQuantity());
-            Double holdingPrice = numberFormat.parse(currentPrice).doubleValue();
+            Double holdingPrice = getPriceValue(quote);
             holdingValue = CurrencyTools.addCurrencyToSymbol(String.format("%.0f", (holdingQuanta * holdingPrice)), symbol);
         } catch (Exception ignored) {
         }
         itemInfo.put("holdingValue", holdingValue);
     }
 
-    private void populateDisplayLastChange(NumberFormat numberFormat, String symbol, StockQuote quote, PortfolioStock stock, Map<String, String> itemInfo) {
+    private void populateDisplayLastChange(String symbol, StockQuote quote, PortfolioStock stock, Map<String, String> itemInfo) {
         String lastChange = "";
         try {
             if (quote != null) {
                 lastChange = quote.getPercent();
                 try {
-                    Double change = numberFormat.parse(quote.getChange()).doubleValue();
+                    Double change = getChangeValue(quote);
                     Double totalChange = NumberTools.parseDouble(stock.getQuantity()) * change;
                     lastChange += " / " + CurrencyTools.addCurrencyToSymbol(String.format("%.0f", (totalChange)), symbol);
                 } catch (Exception ignored) {
@@ -186,11 +200,11 @@ public class PortfolioStockRepository {
         itemInfo.put("lastChange", lastChange);
     }
 
-    private void populateDisplayTotalChange(NumberFormat numberFormat, String symbol, PortfolioStock stock, Map<String, String> itemInfo, String currentPrice, String buyPrice) {
+    private void populateDisplayTotalChange(String symbol, StockQuote quote, PortfolioStock stock, Map<String, String> itemInfo, String buyPrice) {
         // Calculate total change, including percentage
         String totalChange = "";
         try {
-            Double price = numberFormat.parse(currentPrice).doubleValue();
+            Double price = getPriceValue(quote);
             Double buy = Double.parseDouble(buyPrice);
             Double totalPercentChange = price - buy;
             totalChange = String.format("%.0f", 100 * totalPercentChange / buy) + "%";
@@ -206,13 +220,25 @@ public class PortfolioStockRepository {
         itemInfo.put("totalChange", totalChange);
     }
 
-    private String populateDisplayCurrentPrice(StockQuote quote, Map<String, String> itemInfo) {
+    private Double getPriceValue(StockQuote quote) {
+        if (quote == null || !quote.hasPrice()) {
+            return null;
+        }
+        return quote.getPriceValue();
+    }
+
+    private Double getChangeValue(StockQuote quote) {
+        if (Double.isNaN(quote.getChangeValue())) {
+            return null;
+        }
+        return quote.getChangeValue();
+    }
+
+    private void populateDisplayCurrentPrice(StockQuote quote, Map<String, String> itemInfo) {
         String currentPrice = "";
         if (quote != null)
             currentPrice = quote.getPrice();
         itemInfo.put("currentPrice", currentPrice);
-
-        return currentPrice;
     }
 
     private void populateDisplayNames(StockQuote quote, PortfolioStock stock, Map<String, String> itemInfo) {
@@ -364,39 +390,7 @@ public class PortfolioStockRepository {
      * @return HashMap with Portfolio and Stocks information created from json.
      */
     public HashMap<String, PortfolioStock> getStocksFromJson(JSONObject json) {
-
-        Iterator keys;
-        keys = json.keys();
-        while (keys.hasNext()) {
-            String key = keys.next().toString();
-            JSONObject itemJson = new JSONObject();
-            try {
-                itemJson = json.getJSONObject(key);
-            } catch (JSONException ignored) {
-            }
-
-            HashMap<PortfolioField, String> stockInfoMap = new HashMap<>();
-            for (PortfolioField f : PortfolioField.values()) {
-                String data = "";
-                try {
-                    if (!itemJson.get(f.name()).equals("empty")) {
-                        data = itemJson.get(f.name()).toString();
-                    }
-                } catch (JSONException ignored) {
-                }
-                stockInfoMap.put(f, data);
-            }
-
-            PortfolioStock stock = new PortfolioStock(key,
-                    stockInfoMap.get(PortfolioField.PRICE),
-                    stockInfoMap.get(PortfolioField.DATE),
-                    stockInfoMap.get(PortfolioField.QUANTITY),
-                    stockInfoMap.get(PortfolioField.LIMIT_HIGH),
-                    stockInfoMap.get(PortfolioField.LIMIT_LOW),
-                    stockInfoMap.get(PortfolioField.CUSTOM_DISPLAY),
-                    stockInfoMap.get(PortfolioField.SYMBOL_2));
-            mPortfolioStocks.put(key, stock);
-        }
+        PortfolioStockDecoder.decode(json, mPortfolioStocks);
         mDirtyPortfolioStockMap = false;
 
         return mPortfolioStocks;
@@ -410,39 +404,7 @@ public class PortfolioStockRepository {
         mPortfolioStocks.clear();
 
         // Use the Json data if present
-        Iterator keys;
-        JSONObject json = this.getStocksJson();
-        keys = json.keys();
-        while (keys.hasNext()) {
-            String key = keys.next().toString();
-            JSONObject itemJson = new JSONObject();
-            try {
-                itemJson = json.getJSONObject(key);
-            } catch (JSONException ignored) {
-            }
-
-            HashMap<PortfolioField, String> stockInfoMap = new HashMap<>();
-            for (PortfolioField f : PortfolioField.values()) {
-                String data = "";
-                try {
-                    if (!itemJson.get(f.name()).equals("empty")) {
-                        data = itemJson.get(f.name()).toString();
-                    }
-                } catch (JSONException ignored) {
-                }
-                stockInfoMap.put(f, data);
-            }
-
-            PortfolioStock stock = new PortfolioStock(key,
-                    stockInfoMap.get(PortfolioField.PRICE),
-                    stockInfoMap.get(PortfolioField.DATE),
-                    stockInfoMap.get(PortfolioField.QUANTITY),
-                    stockInfoMap.get(PortfolioField.LIMIT_HIGH),
-                    stockInfoMap.get(PortfolioField.LIMIT_LOW),
-                    stockInfoMap.get(PortfolioField.CUSTOM_DISPLAY),
-                    stockInfoMap.get(PortfolioField.SYMBOL_2));
-            mPortfolioStocks.put(key, stock);
-        }
+        PortfolioStockDecoder.decode(this.getStocksJson(), mPortfolioStocks);
         mDirtyPortfolioStockMap = false;
 
         return mPortfolioStocks;
@@ -527,10 +489,6 @@ public class PortfolioStockRepository {
         this.persist();
     }
 
-    public enum PortfolioField {
-        PRICE, DATE, QUANTITY, LIMIT_HIGH, LIMIT_LOW, CUSTOM_DISPLAY, SYMBOL_2
-    }
-
 
     /**
      * Gets the description for stocks after restoring a backup
@@ -637,21 +595,25 @@ public class PortfolioStockRepository {
 
         // Check for correct widgetsize, else print error.
         if (tokens != null && tokens[1].trim().equals(String.valueOf(widgetsize))) {
-            // Remove all stocks from widget.
-            for (int j = 1; j < 16; j++) {
-                this.mAppStorage.putString("Stock" + j, "").apply();
-                this.mAppStorage.putString("Stock" + j + "_summary", "").apply();
-            }
-
-            int i = 1;
-
-            // Write symbols to current widget.
-            for (int j = 3; j < tokens.length; j += 2) {
+            // Clear and write the stocks as one commit
+            this.mAppStorage.beginBatch();
+            try {
+                // Remove all stocks from widget.
+                for (int j = 1; j < 16; j++) {
+                    this.mAppStorage.putString("Stock" + j, "");
+                    this.mAppStorage.putString("Stock" + j + "_summary", "");
+                }
 
+                int i = 1;
 
-                this.mAppStorage.putString("Stock" + i, tokens[j]).apply();
-                this.mAppStorage.putString("Stock" + i + "_summary", getBackupDescription(tokens[j])).apply();
-                i++;
+                // Write symbols to current widget.
+                for (int j = 3; j < tokens.length; j += 2) {
+                    this.mAppStorage.putString("Stock" + i, tokens[j]);
+                    this.mAppStorage.putString("Stock" + i + "_summary", getBackupDescription(tokens[j]));
+                    i++;
+                }
+            } finally {
+                this.mAppStorage.endBatch();
             }
             DialogTools.showSimpleDialog(context, "Restore widget successful", "This widget has been successfully restored!");
         } else
@@ -0,0 +1,82 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Decides which quotes are stale and need fetching again.
+ * <p/>
+ * Each quote is fresh for a time that depends on its asset class. While its
+ * market is closed a quote fetched after the close stays fresh until the next
+ * open, since it will not change before then.
+ */
+public class QuoteFreshness {
+
+    public static final long TTL_STOCK_MS = 60 * 1000;
+    public static final long TTL_INDEX_MS = 2 * 60 * 1000;
+    public static final long TTL_FX_MS = 5 * 60 * 1000;
+
+    private final MarketHours marketHours;
+
+    public QuoteFreshness(MarketHours marketHours) {
+        this.marketHours = marketHours;
+    }
+
+    public static long getTimeToLive(String symbol) {
+        if (symbol.contains("=X")) {
+            return TTL_FX_MS;
+        }
+        if (symbol.startsWith("^")) {
+            return TTL_INDEX_MS;
+        }
+        return TTL_STOCK_MS;
+    }
+
+    public boolean isStale(String symbol, StockQuote quote, long time) {
+        if (quote == null || quote.getFetchedAt() <= 0 || quote.getFetchedAt() > time) {
+            return true;
+        }
+        if (!this.marketHours.isOpen(symbol, time)) {
+            return quote.getFetchedAt() < this.marketHours.getLastClose(symbol, time);
+        }
+        return time - quote.getFetchedAt() >= getTimeToLive(symbol);
+    }
+
+    public List<String> getStaleSymbols(Collection<String> symbols,
+                                        Map<String, StockQuote> quotes, long time) {
+        List<String> staleSymbols = new ArrayList<>();
+        for (String symbol : symbols) {
+            if (this.isStale(symbol, quotes.get(symbol), time)) {
+                staleSymbols.add(symbol);
+            }
+        }
+        return staleSymbols;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.domain;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Coalesces concurrent quote refreshes into a single fetch.
+ * <p/>
+ * Every widget update triggered by the same alarm tick shares a refresh
+ * generation. The first caller for a generation runs the fetch, all other
+ * callers for that generation (or an older one) wait for and share its result.
+ * The market snapshot the widgets render from is likewise built once per
+ * generation. Snapshots built from fetched quotes and from the cache alone
+ * are kept apart, so a refresh never settles for a cache-only snapshot. A
+ * newer generation starts its own fetch or build straight away rather than
+ * waiting for an older one to finish.
+ */
+public class QuoteRefreshCoordinator {
+
+    private static final QuoteRefreshCoordinator INSTANCE = new QuoteRefreshCoordinator();
+
+    private final AtomicLong generationCounter = new AtomicLong();
+    private final AtomicInteger fetchCount = new AtomicInteger();
+    private FutureTask<Map<String, StockQuote>> flight;
+    private long flightGeneration = -1;
+    private final SnapshotSlot liveSnapshot = new SnapshotSlot();
+    private final SnapshotSlot cachedSnapshot = new SnapshotSlot();
+    private final SnapshotSlot staleSnapshot = new SnapshotSlot();
+
+    public static QuoteRefreshCoordinator getInstance() {
+        return INSTANCE;
+    }
+
+    public long nextGeneration() {
+        return this.generationCounter.incrementAndGet();
+    }
+
+    public int getFetchCount() {
+        return this.fetchCount.get();
+    }
+
+    public int getSnapshotBuildCount() {
+        return this.liveSnapshot.buildCount.get() + this.cachedSnapshot.buildCount.get();
+    }
+
+    public MarketSnapshot getSnapshot(long generation, Callable<MarketSnapshot> build) {
+        return this.getSnapshot(generation, true, build);
+    }
+
+    /**
+     * Returns the snapshot of the generation, only sharing builds of the same kind
+     */
+    public MarketSnapshot getSnapshot(long generation, boolean noCache,
+                                      Callable<MarketSnapshot> build) {
+        SnapshotSlot slot = noCache ? this.liveSnapshot : this.cachedSnapshot;
+        return slot.get(generation, build);
+    }
+
+    /**
+     * Returns the snapshot to render while the live one is being built, this is
+     * kept apart so it never waits for a fetch
+     */
+    public MarketSnapshot getStaleSnapshot(long generation, Callable<MarketSnapshot> build) {
+        return this.staleSnapshot.get(generation, build);
+    }
+
+    /**
+     * @return the fetched quotes, shared read only by every caller of the flight
+     */
+    public Map<String, StockQuote> refresh(long generation,
+                                           final Callable<? extends Map<String, StockQuote>> fetch) {
+        FutureTask<Map<String, StockQuote>> task;
+        boolean isOwner = false;
+        synchronized (this) {
+            // Join the current flight if it is for this generation or a newer one
+            if (this.flight != null && generation <= this.flightGeneration) {
+                task = this.flight;
+            } else {
+                task = new FutureTask<>(new Callable<Map<String, StockQuote>>() {
+                    @Override
+                    public Map<String, StockQuote> call() throws Exception {
+                        Map<String, StockQuote> quotes = fetch.call();
+                        return quotes != null ? Collections.unmodifiableMap(quotes) : null;
+                    }
+                });
+                this.flight = task;
+                this.flightGeneration = generation;
+                isOwner = true;
+            }
+        }
+
+        if (isOwner) {
+            this.fetchCount.incrementAndGet();
+            task.run();
+        }
+
+        try {
+            Map<String, StockQuote> quotes = task.get();
+            if (quotes != null) {
+                return quotes;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) {
+        }
+        return Collections.emptyMap();
+    }
+
+    private static class SnapshotSlot {
+        private final AtomicInteger buildCount = new AtomicInteger();
+        private FutureTask<MarketSnapshot> build;
+        private long buildGeneration = -1;
+
+        MarketSnapshot get(long generation, Callable<MarketSnapshot> build) {
+            // Callers for this generation, or an older one, share the latest build.
+            // The build runs outside the lock, so a newer generation never waits on it.
+            FutureTask<MarketSnapshot> task;
+            boolean isOwner = false;
+            synchronized (this) {
+                if (this.build != null && generation <= this.buildGeneration) {
+                    task = this.build;
+                } else {
+                    task = new FutureTask<>(build);
+                    this.build = task;
+                    this.buildGeneration = generation;
+                    isOwner = true;
+                }
+            }
+
+            if (isOwner) {
+                this.buildCount.incrementAndGet();
+                task.run();
+            }
+
+            MarketSnapshot built = null;
+            try {
+                built = task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ignored) {
+            }
+            if (built == null) {
+                // Let the next caller for this generation try again
+                synchronized (this) {
+                    if (this.build == task) {
+                        this.build = null;
+                        this.buildGeneration = -1;
+                    }
+                }
+                return MarketSnapshot.empty(generation);
+            }
+            return built;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.domain;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+
+/**
+ * Binary snapshot of the last known quotes, stored in an app-private file.
+ * <p/>
+ * Layout: magic, version, timestamp, a dictionary of the distinct symbols and
+ * exchanges and then one record per quote holding its numeric values,
+ * exchange, name and the time it was fetched. Each record is length-prefixed,
+ * refers to its symbol and exchange by dictionary index, so an exchange shared
+ * by many quotes is stored once, and is followed by a CRC32 of its bytes, so a
+ * damaged record is skipped without losing the others. Records are only
+ * decoded when a quote is asked for.
+ */
+public class QuoteSnapshotStore {
+
+    public static final String FILE_NAME = "quotes.snapshot";
+
+    static final int MAGIC = 0x4D535153;
+    static final int VERSION = 4;
+
+    private final File file;
+
+    public QuoteSnapshotStore(File file) {
+        this.file = file;
+    }
+
+    public static byte[] encode(Map<String, StockQuote> quotes, String timeStamp) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + quotes.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeUTF(timeStamp != null ? timeStamp : "");
+
+        // The symbols, then any exchange that is not already in the dictionary
+        LinkedHashMap<String, Integer> dictionary = new LinkedHashMap<>();
+        for (StockQuote quote : quotes.values()) {
+            addToDictionary(dictionary, quote.getSymbol());
+        }
+        for (StockQuote quote : quotes.values()) {
+            addToDictionary(dictionary, fieldValue(quote.getExchange()));
+        }
+        out.writeInt(dictionary.size());
+        for (String value : dictionary.keySet()) {
+            out.writeUTF(value);
+        }
+
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(128);
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        CRC32 crc = new CRC32();
+        out.writeInt(quotes.size());
+        for (StockQuote quote : quotes.values()) {
+            recordBytes.reset();
+            record.writeInt(dictionary.get(quote.getSymbol()));
+            record.writeBoolean(quote.isPriceInvalid());
+            record.writeDouble(quote.getPriceValue());
+            record.writeDouble(quote.getChangeValue());
+            record.writeDouble(quote.getPercentValue());
+            record.writeLong(quote.getVolumeValue());
+            record.writeInt(dictionary.get(fieldValue(quote.getExchange())));
+            record.writeUTF(fieldValue(quote.getName()));
+            record.writeLong(quote.getFetchedAt());
+            record.flush();
+
+            byte[] payload = recordBytes.toByteArray();
+            crc.reset();
+            crc.update(payload, 0, payload.length);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeInt((int) crc.getValue());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public static Snapshot decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC) {
+            return null;
+        }
+        if (in.readUnsignedShort() != VERSION) {
+            return null;
+        }
+        String timeStamp = in.readUTF();
+
+        int dictionarySize = in.readInt();
+        if (dictionarySize < 0 || dictionarySize > data.length) {
+            return null;
+        }
+        String[] dictionary = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            dictionary[i] = in.readUTF();
+        }
+
+        // Index the records, stopping at the first one whose length is unusable
+        Snapshot snapshot = new Snapshot(data, dictionary, timeStamp);
+        int recordCount = in.readInt();
+        int offset = data.length - in.available();
+        for (int i = 0; i < recordCount; i++) {
+            if (offset + 4 > data.length) {
+                break;
+            }
+            int length = readInt(data, offset);
+            int start = offset + 4;
+            if (length < 4 || start + length + 4 > data.length) {
+                break;
+            }
+            int symbolIndex = readInt(data, start);
+            if (symbolIndex >= 0 && symbolIndex < dictionarySize) {
+                snapshot.records.put(dictionary[symbolIndex],
+                        new Record(start, length, readInt(data, start + length)));
+            }
+            offset = start + length + 4;
+        }
+        return snapshot;
+    }
+
+    private static void addToDictionary(Map<String, Integer> dictionary, String value) {
+        if (!dictionary.containsKey(value)) {
+            dictionary.put(value, dictionary.size());
+        }
+    }
+
+    private static String fieldValue(String value) {
+        return value != null ? value : "";
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24)
+                | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8)
+                | (data[offset + 3] & 0xFF);
+    }
+
+    public boolean exists() {
+        return this.file != null && this.file.exists();
+    }
+
+    public Snapshot read() {
+        if (!this.exists()) {
+            return null;
+        }
+
+        byte[] data = new byte[(int) this.file.length()];
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(this.file);
+            int read = 0;
+            while (read < data.length) {
+                int count = in.read(data, read, data.length - read);
+                if (count < 0) {
+                    return null;
+                }
+                read += count;
+            }
+            return decode(data);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    public boolean write(Map<String, StockQuote> quotes, String timeStamp) {
+        if (this.file == null) {
+            return false;
+        }
+
+        // Write to a temporary file of its own first, so a failed write keeps the
+        // old snapshot and concurrent writes cannot mix their bytes
+        File temp = null;
+        FileOutputStream out = null;
+        boolean written = false;
+        try {
+            byte[] data = encode(quotes, timeStamp);
+            temp = File.createTempFile(this.file.getName(), ".tmp", this.file.getParentFile());
+            out = new FileOutputStream(temp);
+            out.write(data);
+            out.getFD().sync();
+            out.close();
+            out = null;
+            written = temp.renameTo(this.file);
+            return written;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            closeQuietly(out);
+            if (temp != null && !written) {
+                temp.delete();
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static class Record {
+        final int offset;
+        final int length;
+        final int crc;
+
+        Record(int offset, int length, int crc) {
+            this.offset = offset;
+            this.length = length;
+            this.crc = crc;
+        }
+    }
+
+    public static class Snapshot {
+
+        private final byte[] data;
+        private final String[] dictionary;
+        private final String timeStamp;
+        private final LinkedHashMap<String, Record> records = new LinkedHashMap<>();
+        private final HashMap<String, StockQuote> decoded = new HashMap<>();
+        private int corruptCount = 0;
+
+        private Snapshot(byte[] data, String[] dictionary, String timeStamp) {
+            this.data = data;
+            this.dictionary = dictionary;
+            this.timeStamp = timeStamp;
+        }
+
+        public String getTimeStamp() {
+            return this.timeStamp;
+        }
+
+        public Set<String> getSymbols() {
+            return this.records.keySet();
+        }
+
+        public synchronized int getCorruptCount() {
+            return this.corruptCount;
+        }
+
+        public synchronized StockQuote get(String symbol) {
+            if (this.decoded.containsKey(symbol)) {
+                return this.decoded.get(symbol);
+            }
+
+            StockQuote quote = null;
+            Record record = this.records.get(symbol);
+            if (record != null) {
+                quote = this.decodeRecord(symbol, record);
+                if (quote == null) {
+                    this.corruptCount++;
+                }
+            }
+            this.decoded.put(symbol, quote);
+            return quote;
+        }
+
+        public HashMap<String, StockQuote> getQuotes(Collection<String> symbols) {
+            HashMap<String, StockQuote> quotes = new HashMap<>();
+            for (String symbol : symbols) {
+                StockQuote quote = this.get(symbol);
+                if (quote != null) {
+                    quotes.put(symbol, quote);
+                }
+            }
+            return quotes;
+        }
+
+        private StockQuote decodeRecord(String symbol, Record record) {
+            CRC32 crc = new CRC32();
+            crc.update(this.data, record.offset, record.length);
+            if ((int) crc.getValue() != record.crc) {
+                return null;
+            }
+
+            try {
+                DataInputStream in = new DataInputStream(
+                        new ByteArrayInputStream(this.data, record.offset + 4, record.length - 4));
+                boolean priceInvalid = in.readBoolean();
+                double price = in.readDouble();
+                double change = in.readDouble();
+                double percent = in.readDouble();
+                long volume = in.readLong();
+                String exchange = this.dictionary[in.readInt()];
+                StockQuote quote = new StockQuote(symbol, priceInvalid ? Double.NaN : price,
+                        priceInvalid, change, percent, exchange, volume, in.readUTF());
+                quote.setFetchedAt(in.readLong());
+                return quote;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+}
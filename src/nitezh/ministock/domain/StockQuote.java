@@ -24,18 +24,34 @@
 
 package nitezh.ministock.domain;
 
+import nitezh.ministock.utils.FixedPointFormat;
 import nitezh.ministock.utils.NumberTools;
 
 
+/**
+ * A quote held as numbers. The display strings are only built, once, when a
+ * getter for them is first called.
+ */
 public class StockQuote {
 
+    public static final long NO_VOLUME = -1;
+
     private String symbol;
-    private String price;
-    private String change;
-    private String percent;
-    private String exchange;
-    private String volume;
-    private String name;
+    private final String exchange;
+    private final String name;
+    private final boolean isFx;
+    private final double price;
+    private final boolean priceInvalid;
+    private final double change;
+    private final double percent;
+    private final long volume;
+
+    private long fetchedAt = 0;
+
+    private String priceText;
+    private String changeText;
+    private String percentText;
+    private String volumeText;
 
     public StockQuote(String symbol, String price, String change, String percent, String exchange,
                       String volume, String name) {
@@ -46,73 +62,90 @@ public class StockQuote {
                       String volume, String name, String previousPrice) {
         this.symbol = symbol;
         this.exchange = exchange;
-        this.volume = volume;
+        this.volume = parseVolume(volume);
         this.name = name;
 
         // Get additional FX data if applicable
-        Double p0 = null;
-        boolean isFx = symbol.contains("=");
-        if (isFx) {
-            try {
-                p0 = Double.parseDouble(previousPrice);
-            } catch (Exception ignored) {
-            }
+        double p0 = Double.NaN;
+        this.isFx = symbol.contains("=");
+        if (this.isFx) {
+            p0 = parseValue(previousPrice);
         }
 
-        // Set stock prices to 2 decimal places
-        Double p = null;
+        // A price of 0.00 means there is no price
+        double p = Double.NaN;
+        boolean invalid = false;
         if (!price.equals("0.00")) {
-            try {
-                p = Double.parseDouble(price);
-                if (isFx) {
-                    this.price = NumberTools.getTrimmedDouble2(p, 6);
-                } else {
-                    this.price = NumberTools.getTrimmedDouble(p, 6, 4);
-                }
-            } catch (Exception e) {
-                this.price = "0.00";
-            }
+            p = parseValue(price);
+            invalid = Double.isNaN(p);
 
             // Note that if the change or percent == "N/A" set to 0
-            if (!this.isNonEmptyNumber(price) && p0 == null) {
+            if (!this.isNonEmptyNumber(price) && Double.isNaN(p0)) {
                 change = "0.00";
             }
-            if (!this.isNonEmptyNumber(percent) && p0 == null) {
+            if (!this.isNonEmptyNumber(percent) && Double.isNaN(p0)) {
                 percent = "0.00";
             }
         }
+        this.price = p;
+        this.priceInvalid = invalid;
 
-        // Changes are only set to 5 significant figures
-        Double c = null;
+        double c = Double.NaN;
         if (this.isNonEmptyNumber(change)) {
-            c = Double.parseDouble(change);
-        } else if (p0 != null && p != null) {
+            c = parseValue(change);
+        } else if (!Double.isNaN(p0) && !Double.isNaN(p)) {
             c = p - p0;
         }
-        if (c != null) {
-            if (p != null && (p < 10 || isFx)) {
-                this.change = NumberTools.getTrimmedDouble(c, 5, 3);
-            } else {
-                this.change = NumberTools.getTrimmedDouble(c, 5);
-            }
-        }
+        this.change = c;
 
-        // Percentage changes are only set to one decimal place
-        Double pc = null;
+        double pc = Double.NaN;
         if (this.isNonEmptyNumber(percent)) {
-            pc = Double.parseDouble(percent.replace("%", ""));
-        } else {
-            if (c != null && p != null) {
-                pc = (c / p) * 100;
-            }
+            pc = parseValue(percent.replace("%", ""));
+        } else if (!Double.isNaN(c) && !Double.isNaN(p)) {
+            pc = (c / p) * 100;
         }
-        if (pc != null) {
-            this.percent = String.format("%.1f", pc) + "%";
+        this.percent = pc;
+    }
+
+    StockQuote(String symbol, double price, boolean priceInvalid, double change, double percent,
+               String exchange, long volume, String name) {
+        this.symbol = symbol;
+        this.isFx = symbol.contains("=");
+        this.price = price;
+        this.priceInvalid = priceInvalid;
+        this.change = change;
+        this.percent = percent;
+        this.exchange = exchange;
+        this.volume = volume;
+        this.name = name;
+    }
+
+    private static double parseValue(String value) {
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static long parseVolume(String value) {
+        if (value == null) {
+            return NO_VOLUME;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            double volume = parseValue(value);
+            return Double.isNaN(volume) ? NO_VOLUME : (long) volume;
         }
     }
 
     private boolean isNonEmptyNumber(String value) {
-        return !value.equals("N/A")
+        return value != null
+                && !value.equals("N/A")
                 && !value.equals("")
                 && !value.equals("null");
     }
@@ -125,16 +158,97 @@ public class StockQuote {
         this.symbol = symbol;
     }
 
+    public boolean hasPrice() {
+        return !Double.isNaN(this.price) || this.priceInvalid;
+    }
+
+    /**
+     * @return the price, 0 if it could not be read or NaN if there is no price
+     */
+    public double getPriceValue() {
+        return this.priceInvalid ? 0 : this.price;
+    }
+
+    /**
+     * @return the daily change or NaN if unknown
+     */
+    public double getChangeValue() {
+        return this.change;
+    }
+
+    /**
+     * @return the daily percentage change or NaN if unknown
+     */
+    public double getPercentValue() {
+        return this.percent;
+    }
+
+    /**
+     * @return the volume or NO_VOLUME if unknown
+     */
+    public long getVolumeValue() {
+        return this.volume;
+    }
+
+    /**
+     * @return true if the other quote has the same price, change and volume
+     */
+    public boolean hasSameValues(StockQuote other) {
+        return other != null
+                && this.priceInvalid == other.priceInvalid
+                && Double.compare(this.price, other.price) == 0
+                && Double.compare(this.change, other.change) == 0
+                && Double.compare(this.percent, other.percent) == 0
+                && this.volume == other.volume;
+    }
+
+    /**
+     * @return when the quote was fetched, 0 if not known
+     */
+    public long getFetchedAt() {
+        return this.fetchedAt;
+    }
+
+    public void setFetchedAt(long fetchedAt) {
+        this.fetchedAt = fetchedAt;
+    }
+
+    boolean isPriceInvalid() {
+        return this.priceInvalid;
+    }
+
     public String getPrice() {
-        return price;
+        if (this.priceText == null && this.hasPrice()) {
+            // Set stock prices to 2 decimal places
+            if (this.priceInvalid) {
+                this.priceText = "0.00";
+            } else if (this.isFx) {
+                this.priceText = NumberTools.getTrimmedDouble2(this.price, 6);
+            } else {
+                this.priceText = NumberTools.getTrimmedDouble(this.price, 6, 4);
+            }
+        }
+        return this.priceText;
     }
 
     public String getChange() {
-        return change;
+        if (this.changeText == null && !Double.isNaN(this.change)) {
+            // Changes are only set to 5 significant figures
+            if (!Double.isNaN(this.price) && (this.price < 10 || this.isFx)) {
+                this.changeText = NumberTools.getTrimmedDouble(this.change, 5, 3);
+            } else {
+                this.changeText = NumberTools.getTrimmedDouble(this.change, 5);
+            }
+        }
+        return this.changeText;
     }
 
     public String getPercent() {
-        return percent;
+        if (this.percentText == null && !Double.isNaN(this.percent)) {
+            // Percentage changes are only set to one decimal place
+            this.percentText = FixedPointFormat.format(this.percent, 1) + "%";
+        }
+        return this.percentText;
     }
 
     public String getExchange() {
@@ -142,7 +256,10 @@ public class StockQuote {
     }
 
     public String getVolume() {
-        return volume;
+        if (this.volumeText == null) {
+            this.volumeText = this.volume != NO_VOLUME ? Long.toString(this.volume) : "N/A";
+        }
+        return this.volumeText;
     }
 
     public String getName() {
@@ -24,120 +24,353 @@
 
 package nitezh.ministock.domain;
 
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import nitezh.ministock.utils.Cache;
 import nitezh.ministock.Storage;
 import nitezh.ministock.dataaccess.FxChangeRepository;
 import nitezh.ministock.dataaccess.GoogleStockQuoteRepository;
+import nitezh.ministock.dataaccess.QuoteBatcher;
+import nitezh.ministock.dataaccess.QuoteProvider;
+import nitezh.ministock.dataaccess.QuoteProviderRouter;
 import nitezh.ministock.dataaccess.YahooStockQuoteRepository;
+import nitezh.ministock.utils.FetchExecutor;
+import nitezh.ministock.utils.Metrics;
 
 
 public class StockQuoteRepository {
 
-    public static final List<String> GOOGLE_SYMBOLS = Arrays.asList(".DJI", ".IXIC");
+    public static final String UNCHANGED_POLLS = "quotesUnchangedPolls";
+
+    private static final Metrics.Timer REFRESH_TIMER = Metrics.getInstance().timer("quotes.refresh");
+    private static final Metrics.Counter STALE_COUNTER = Metrics.getInstance().counter("quotes.stale");
+    private static final Metrics.Counter FRESH_COUNTER = Metrics.getInstance().counter("quotes.fresh");
 
     private static String mTimeStamp;
     private static HashMap<String, StockQuote> mCachedQuotes;
-    private final YahooStockQuoteRepository yahooRepository;
-    private final GoogleStockQuoteRepository googleRepository;
+    private static QuoteSnapshotStore.Snapshot mSnapshot;
+    private static TickHistory mTickHistory;
+    private final QuoteProviderRouter router;
+    private final QuoteSnapshotStore snapshotStore;
+    private final File tickHistoryFile;
 
     private final Storage appStorage;
     private final Cache appCache;
     private final WidgetRepository widgetRepository;
+    private final QuoteFreshness freshness;
 
     public StockQuoteRepository(Storage appStorage, Cache appCache, WidgetRepository widgetRepository) {
-        this.yahooRepository = new YahooStockQuoteRepository(new FxChangeRepository());
-        this.googleRepository = new GoogleStockQuoteRepository();
+        this(appStorage, appCache, widgetRepository, buildDefaultRouter());
+    }
+
+    public StockQuoteRepository(Storage appStorage, Cache appCache, WidgetRepository widgetRepository,
+                                File snapshotFile) {
+        this(appStorage, appCache, widgetRepository, buildDefaultRouter(), snapshotFile);
+    }
+
+    public StockQuoteRepository(Storage appStorage, Cache appCache, WidgetRepository widgetRepository,
+                                QuoteProviderRouter router) {
+        this(appStorage, appCache, widgetRepository, router, null);
+    }
+
+    public StockQuoteRepository(Storage appStorage, Cache appCache, WidgetRepository widgetRepository,
+                                QuoteProviderRouter router, File snapshotFile) {
+        this(appStorage, appCache, widgetRepository, router, snapshotFile,
+                new QuoteFreshness(MarketHours.getInstance()));
+    }
+
+    public StockQuoteRepository(Storage appStorage, Cache appCache, WidgetRepository widgetRepository,
+                                QuoteProviderRouter router, File snapshotFile,
+                                QuoteFreshness freshness) {
+        this.router = router;
+        this.freshness = freshness;
+        this.snapshotStore = snapshotFile != null ? new QuoteSnapshotStore(snapshotFile) : null;
+        this.tickHistoryFile = snapshotFile != null
+                ? new File(snapshotFile.getParentFile(), TickHistory.FILE_NAME) : null;
         this.appStorage = appStorage;
         this.appCache = appCache;
         this.widgetRepository = widgetRepository;
     }
 
+    /**
+     * Drops the quotes kept in memory, so they are next read from disk
+     */
+    public static void forgetLoadedQuotes() {
+        synchronized (StockQuoteRepository.class) {
+            mCachedQuotes = null;
+            mSnapshot = null;
+            mTimeStamp = null;
+        }
+    }
+
+    public static QuoteProviderRouter buildDefaultRouter() {
+        QuoteProvider yahoo = new YahooStockQuoteRepository(new FxChangeRepository());
+        QuoteProvider google = new GoogleStockQuoteRepository();
+
+        // Yahoo serves everything except the indices it has no data for
+        return new QuoteProviderRouter(yahoo)
+                .addExact("^DJI", google)
+                .addExact("^IXIC", google)
+                .addFragment("=X", yahoo)
+                .addPrefix("^", yahoo);
+    }
+
     public HashMap<String, StockQuote> getLiveQuotes(List<String> symbols) {
         HashMap<String, StockQuote> allQuotes = new HashMap<>();
 
-        symbols = this.convertRequestSymbols(symbols);
-        List<String> yahooSymbols = new ArrayList<>(symbols);
-        List<String> googleSymbols = new ArrayList<>(symbols);
-        yahooSymbols.removeAll(GOOGLE_SYMBOLS);
-        googleSymbols.retainAll(GOOGLE_SYMBOLS);
-
-        HashMap<String, StockQuote> yahooQuotes = this.yahooRepository.getQuotes(this.appCache, yahooSymbols);
-        HashMap<String, StockQuote> googleQuotes = this.googleRepository.getQuotes(this.appCache, googleSymbols);
-        if (yahooQuotes != null) allQuotes.putAll(yahooQuotes);
-        if (googleQuotes != null) allQuotes.putAll(googleQuotes);
-        allQuotes = this.convertResponseQuotes(allQuotes);
+        // Fetch from all providers in parallel
+        List<Callable<HashMap<String, StockQuote>>> fetches = new ArrayList<>();
+        for (Map.Entry<QuoteProvider, List<String>> route : this.router.route(symbols).entrySet()) {
+            final QuoteProvider provider = route.getKey();
+            final List<String> providerSymbols = route.getValue();
+            fetches.add(new Callable<HashMap<String, StockQuote>>() {
+                @Override
+                public HashMap<String, StockQuote> call() {
+                    return getProviderQuotes(provider, providerSymbols);
+                }
+            });
+        }
+        for (HashMap<String, StockQuote> quotes : FetchExecutor.invokeAll(fetches)) {
+            if (quotes != null) allQuotes.putAll(quotes);
+        }
 
         return allQuotes;
     }
 
-    private HashMap<String, StockQuote> convertResponseQuotes(HashMap<String, StockQuote> quotes) {
-        HashMap<String, StockQuote> newQuotes = new HashMap<>();
-        for (String symbol : quotes.keySet()) {
-            StockQuote quote = quotes.get(symbol);
-            String newSymbol = quote.getSymbol()
-                    .replace(".DJI", "^DJI")
-                    .replace(".IXIC", "^IXIC");
-            quote.setSymbol(newSymbol);
-            newQuotes.put(newSymbol, quote);
+    private HashMap<String, StockQuote> getProviderQuotes(QuoteProvider provider, List<String> symbols) {
+        List<String> providerSymbols = new ArrayList<>();
+        for (String symbol : symbols) {
+            providerSymbols.add(provider.toProviderSymbol(symbol));
         }
-        return newQuotes;
-    }
 
-    private List<String> convertRequestSymbols(List<String> symbols) {
-        List<String> newSymbols = new ArrayList<>();
-        for (String symbol : symbols) {
-            newSymbols.add(symbol
-                    .replace("^DJI", ".DJI")
-                    .replace("^IXIC", ".IXIC"));
+        HashMap<String, StockQuote> providerQuotes =
+                QuoteBatcher.getQuotes(provider, this.appCache, providerSymbols);
+        if (providerQuotes == null) {
+            return null;
+        }
+
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        for (StockQuote quote : providerQuotes.values()) {
+            String symbol = provider.fromProviderSymbol(quote.getSymbol());
+            quote.setSymbol(symbol);
+            quotes.put(symbol, quote);
         }
-        return newSymbols;
+        return quotes;
     }
 
     public HashMap<String, StockQuote> getQuotes(List<String> symbols, boolean noCache) {
-        HashMap<String, StockQuote> quotes = new HashMap<>();
+        long refreshGeneration = noCache ? QuoteRefreshCoordinator.getInstance().nextGeneration() : 0;
+        return this.getQuotes(symbols, noCache, refreshGeneration);
+    }
+
+    public HashMap<String, StockQuote> getQuotes(List<String> symbols, boolean noCache,
+                                                 long refreshGeneration) {
+        Map<String, StockQuote> quotes = new HashMap<>();
 
         if (noCache) {
-            Set<String> widgetSymbols = this.widgetRepository.getWidgetsStockSymbols();
-            widgetSymbols.add("^DJI");
-            widgetSymbols.addAll(new PortfolioStockRepository(
-                    this.appStorage, this.appCache, this.widgetRepository).getStocks().keySet());
-            quotes = getLiveQuotes(new ArrayList<>(widgetSymbols));
+            quotes = this.refreshQuotes(refreshGeneration);
         }
 
         if (quotes.isEmpty()) {
-            quotes = loadQuotes();
-        } else {
-            SimpleDateFormat format = new SimpleDateFormat("dd MMM HH:mm");
-            String timeStamp = format.format(new Date()).toUpperCase();
-            saveQuotes(quotes, timeStamp);
+            quotes = loadQuotes(symbols);
         }
 
         // Returns only quotes requested
-        @SuppressWarnings("unchecked") HashMap<String, StockQuote> filteredQuotes =
-                (HashMap<String, StockQuote>) quotes.clone();
+        HashMap<String, StockQuote> filteredQuotes = new HashMap<>(quotes);
         filteredQuotes.keySet().retainAll(symbols);
         return filteredQuotes;
     }
 
-    private HashMap<String, StockQuote> loadQuotes() {
-        if (mCachedQuotes != null) {
-            return mCachedQuotes;
+    private Map<String, StockQuote> refreshQuotes(long refreshGeneration) {
+        // Widgets refreshed in the same generation share a single fetch
+        return QuoteRefreshCoordinator.getInstance().refresh(refreshGeneration,
+                new Callable<HashMap<String, StockQuote>>() {
+                    @Override
+                    public HashMap<String, StockQuote> call() {
+                        long start = Metrics.now();
+                        try {
+                            return fetchAndSaveQuotes();
+                        } finally {
+                            REFRESH_TIMER.stop(start);
+                        }
+                    }
+                });
+    }
+
+    public MarketSnapshot getMarketSnapshot(boolean noCache, long refreshGeneration) {
+        return this.buildMarketSnapshot(noCache, false, refreshGeneration);
+    }
+
+    /**
+     * Returns the last saved quotes without fetching, to show while a refresh
+     * is in progress
+     */
+    public MarketSnapshot getStaleMarketSnapshot(long refreshGeneration) {
+        return this.buildMarketSnapshot(false, true, refreshGeneration);
+    }
+
+    private MarketSnapshot buildMarketSnapshot(boolean noCache, boolean isStale,
+                                               long refreshGeneration) {
+        Set<String> widgetSymbols = this.widgetRepository.getWidgetsStockSymbols();
+        HashMap<String, PortfolioStock> portfolioStocks =
+                new PortfolioStockRepository(this.appStorage).getStocks();
+
+        Set<String> symbols = new HashSet<>(widgetSymbols);
+        symbols.addAll(portfolioStocks.keySet());
+        Map<String, StockQuote> quotes = new HashMap<>();
+        if (noCache) {
+            quotes = this.refreshQuotes(refreshGeneration);
         }
 
+        // Saved quotes shown in place of a failed refresh are stale too
+        if (quotes.isEmpty()) {
+            isStale = isStale || noCache;
+            quotes = this.loadQuotes(new ArrayList<>(symbols));
+        }
+
+        return new MarketSnapshot(refreshGeneration, quotes, this.getTimeStamp(),
+                portfolioStocks, widgetSymbols, isStale,
+                this.getTickHistory().copySeries(widgetSymbols));
+    }
+
+    private HashMap<String, StockQuote> fetchAndSaveQuotes() {
+        Set<String> widgetSymbols = this.widgetRepository.getWidgetsStockSymbols();
+        widgetSymbols.add("^DJI");
+        widgetSymbols.addAll(new PortfolioStockRepository(this.appStorage).getStocks().keySet());
+        List<String> symbols = new ArrayList<>(widgetSymbols);
+
+        // Only fetch the quotes that are stale for their asset class and market
+        long now = System.currentTimeMillis();
+        HashMap<String, StockQuote> savedQuotes = this.loadQuotes(symbols);
+        List<String> staleSymbols = this.freshness.getStaleSymbols(symbols, savedQuotes, now);
+        STALE_COUNTER.add(staleSymbols.size());
+        FRESH_COUNTER.add(symbols.size() - staleSymbols.size());
+
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        if (!staleSymbols.isEmpty()) {
+            quotes = getLiveQuotes(staleSymbols);
+            if (quotes.isEmpty()) {
+                return quotes;
+            }
+            for (StockQuote quote : quotes.values()) {
+                quote.setFetchedAt(now);
+            }
+            this.appendTicks(quotes, now);
+        }
+
+        // Keep the fresh quotes, and the saved ones for any symbol the fetch missed
+        HashMap<String, StockQuote> allQuotes = new HashMap<>();
+        for (String symbol : symbols) {
+            StockQuote saved = savedQuotes.get(symbol);
+            if (saved != null) {
+                allQuotes.put(symbol, saved);
+            }
+        }
+        allQuotes.putAll(quotes);
+
+        // Only polls that fetched something count towards the back-off
+        if (quotes.isEmpty()) {
+            return allQuotes;
+        }
+        int unchangedPolls = this.countUnchangedPolls(savedQuotes, quotes);
+
+        SimpleDateFormat format = new SimpleDateFormat("dd MMM HH:mm");
+        String timeStamp = format.format(new Date(now)).toUpperCase();
+        String legacyQuotes = saveQuotes(allQuotes, timeStamp);
+
+        // The poll count and saved quotes are committed together, after any file writes
+        this.appStorage.beginBatch();
+        try {
+            this.appStorage.putInt(UNCHANGED_POLLS, unchangedPolls);
+            if (legacyQuotes != null) {
+                this.appStorage.putString("savedQuotes", legacyQuotes);
+                if (!legacyQuotes.equals("")) {
+                    this.appStorage.putString("savedQuotesTime", timeStamp);
+                }
+            }
+            this.appStorage.apply();
+        } finally {
+            this.appStorage.endBatch();
+        }
+        return allQuotes;
+    }
+
+    /**
+     * @return the recent prices of the quoted symbols, read from disk on first use
+     */
+    public TickHistory getTickHistory() {
+        synchronized (StockQuoteRepository.class) {
+            if (mTickHistory == null) {
+                mTickHistory = TickHistory.read(this.tickHistoryFile,
+                        TickHistory.DEFAULT_CAPACITY, TickHistory.DEFAULT_MAX_SYMBOLS);
+            }
+            return mTickHistory;
+        }
+    }
+
+    private void appendTicks(HashMap<String, StockQuote> quotes, long now) {
+        TickHistory history = this.getTickHistory();
+        history.append(quotes, now);
+        history.write(this.tickHistoryFile);
+    }
+
+    /**
+     * Counts the polls in a row that brought no changes, so updates can back off
+     */
+    private int countUnchangedPolls(HashMap<String, StockQuote> savedQuotes,
+                                    HashMap<String, StockQuote> fetchedQuotes) {
+        boolean isChanged = false;
+        for (StockQuote quote : fetchedQuotes.values()) {
+            if (!quote.hasSameValues(savedQuotes.get(quote.getSymbol()))) {
+                isChanged = true;
+                break;
+            }
+        }
+
+        return isChanged ? 0 : this.appStorage.getInt(UNCHANGED_POLLS, 0) + 1;
+    }
+
+    private HashMap<String, StockQuote> loadQuotes(List<String> symbols) {
+        // The loaded quotes are shared by the refresh workers
+        synchronized (StockQuoteRepository.class) {
+            if (mCachedQuotes != null) {
+                return mCachedQuotes;
+            }
+
+            // Quotes are decoded from the snapshot only as they are requested
+            if (mSnapshot == null && this.snapshotStore != null) {
+                mSnapshot = this.snapshotStore.read();
+            }
+            if (mSnapshot != null) {
+                mTimeStamp = mSnapshot.getTimeStamp();
+                return mSnapshot.getQuotes(symbols);
+            }
+
+            // Only keep quotes saved by older versions, so a later snapshot read is not masked
+            HashMap<String, StockQuote> quotes = this.loadLegacyQuotes();
+            mTimeStamp = this.appStorage.getString("savedQuotesTime", "");
+            if (!quotes.isEmpty()) {
+                mCachedQuotes = quotes;
+            }
+            return quotes;
+        }
+    }
+
+    private HashMap<String, StockQuote> loadLegacyQuotes() {
         HashMap<String, StockQuote> quotes = new HashMap<>();
         String savedQuotes = this.appStorage.getString("savedQuotes", "");
-        String timeStamp = this.appStorage.getString("savedQuotesTime", "");
         if (!savedQuotes.equals("")) {
-            try {
-                for (String line : savedQuotes.split("\n")) {
+            for (String line : savedQuotes.split("\n")) {
+                try {
                     String[] values = line.split(";");
                     quotes.put(values[0], new StockQuote(
                             values[0],
@@ -147,24 +380,36 @@ public class StockQuoteRepository {
                             values[4],
                             values[5],
                             values[6]));
+                } catch (Exception ignored) {
                 }
-            } catch (Exception e) {
-                quotes = new HashMap<>();
             }
         }
-        mCachedQuotes = quotes;
-        mTimeStamp = timeStamp;
-
         return quotes;
     }
 
     public String getTimeStamp() {
-        return mTimeStamp;
+        synchronized (StockQuoteRepository.class) {
+            return mTimeStamp;
+        }
     }
 
-    private void saveQuotes(HashMap<String, StockQuote> quotes, String timeStamp) {
-        mCachedQuotes = quotes;
-        mTimeStamp = timeStamp;
+    /**
+     * Writes the quotes to the snapshot file
+     *
+     * @return the value for the savedQuotes preference, which is only used if
+     * the snapshot could not be written, or null to leave it as it is
+     */
+    private String saveQuotes(HashMap<String, StockQuote> quotes, String timeStamp) {
+        synchronized (StockQuoteRepository.class) {
+            mCachedQuotes = quotes;
+            mTimeStamp = timeStamp;
+            mSnapshot = null;
+        }
+
+        if (this.snapshotStore != null && this.snapshotStore.write(quotes, timeStamp)) {
+            // Drop the quotes saved by older versions now the snapshot has them
+            return this.appStorage.getString("savedQuotes", "").equals("") ? null : "";
+        }
 
         StringBuilder savedQuotes = new StringBuilder();
         for (String symbol : quotes.keySet()) {
@@ -178,8 +423,6 @@ public class StockQuoteRepository {
                     quote.getVolume() != null ? quote.getVolume() : "",
                     quote.getName() != null ? quote.getName() : ""));
         }
-        this.appStorage.putString("savedQuotes", savedQuotes.toString().trim());
-        this.appStorage.putString("savedQuotesTime", timeStamp);
-        this.appStorage.apply();
+        return savedQuotes.toString().trim();
     }
 }
@@ -0,0 +1,251 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.domain;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Recent price history of the quoted symbols, bounded in memory and on disk.
+ * <p/>
+ * Every symbol has a TickSeries of the same capacity and only the most
+ * recently updated symbols are kept, so the footprint does not grow with
+ * uptime. The file holds, per symbol, its name, tick count and then the times
+ * and prices as packed arrays, oldest first. It is memory mapped when read and
+ * each series is only copied out of the mapping when it is first used.
+ */
+public class TickHistory {
+
+    public static final String FILE_NAME = "ticks.history";
+    public static final int DEFAULT_CAPACITY = 96;
+    public static final int DEFAULT_MAX_SYMBOLS = 64;
+
+    static final int MAGIC = 0x4D535448;
+    static final int VERSION = 1;
+
+    private final int capacity;
+    private final int maxSymbols;
+    private final LinkedHashMap<String, TickSeries> series;
+
+    // Series still in the mapped file, by symbol, with their offset in it
+    private final HashMap<String, Integer> mappedOffsets = new HashMap<>();
+    private ByteBuffer mapped;
+
+    public TickHistory(int capacity, final int maxSymbols) {
+        this.capacity = capacity;
+        this.maxSymbols = maxSymbols;
+        this.series = new LinkedHashMap<String, TickSeries>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TickSeries> eldest) {
+                return this.size() > maxSymbols;
+            }
+        };
+    }
+
+    public synchronized void append(Map<String, StockQuote> quotes, long time) {
+        for (StockQuote quote : quotes.values()) {
+            if (!quote.hasPrice() || quote.isPriceInvalid()) {
+                continue;
+            }
+
+            String symbol = quote.getSymbol();
+            TickSeries ticks = this.get(symbol);
+            if (ticks == null) {
+                ticks = new TickSeries(this.capacity);
+                this.series.put(symbol, ticks);
+            }
+            long tickTime = quote.getFetchedAt() > 0 ? quote.getFetchedAt() : time;
+            ticks.append(tickTime, quote.getPriceValue());
+        }
+    }
+
+    public synchronized TickSeries get(String symbol) {
+        TickSeries ticks = this.series.get(symbol);
+        if (ticks == null && this.mappedOffsets.containsKey(symbol)) {
+            ticks = this.readSeries(this.mappedOffsets.remove(symbol));
+            this.series.put(symbol, ticks);
+        }
+        return ticks;
+    }
+
+    /**
+     * @return copies of the series of the given symbols that have any ticks
+     */
+    public synchronized HashMap<String, TickSeries> copySeries(Collection<String> symbols) {
+        HashMap<String, TickSeries> copies = new HashMap<>();
+        for (String symbol : symbols) {
+            TickSeries ticks = this.get(symbol);
+            if (ticks != null && ticks.size() > 0) {
+                copies.put(symbol, ticks.copy());
+            }
+        }
+        return copies;
+    }
+
+    public synchronized int size() {
+        this.loadAll();
+        return this.series.size();
+    }
+
+    public synchronized Set<String> getSymbols() {
+        this.loadAll();
+        return new LinkedHashSet<>(this.series.keySet());
+    }
+
+    private void loadAll() {
+        for (String symbol : new ArrayList<>(this.mappedOffsets.keySet())) {
+            this.get(symbol);
+        }
+    }
+
+    private TickSeries readSeries(int offset) {
+        ByteBuffer buffer = this.mapped.duplicate();
+        buffer.position(offset);
+        int count = buffer.getInt();
+        long[] times = new long[count];
+        double[] prices = new double[count];
+        buffer.asLongBuffer().get(times);
+        buffer.position(buffer.position() + count * 8);
+        buffer.asDoubleBuffer().get(prices);
+
+        // Keep the newest ticks if the capacity has shrunk since it was written
+        TickSeries ticks = new TickSeries(this.capacity);
+        for (int i = Math.max(0, count - this.capacity); i < count; i++) {
+            ticks.append(times[i], prices[i]);
+        }
+        return ticks;
+    }
+
+    public static TickHistory read(File file, int capacity, int maxSymbols) {
+        TickHistory history = new TickHistory(capacity, maxSymbols);
+        if (file == null || !file.exists()) {
+            return history;
+        }
+
+        RandomAccessFile in = null;
+        try {
+            in = new RandomAccessFile(file, "r");
+            ByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                return history;
+            }
+
+            // Index the series without copying them, the mapping stays valid once closed
+            int count = buffer.getInt();
+            for (int i = 0; i < count && i < maxSymbols; i++) {
+                byte[] symbolBytes = new byte[buffer.getShort()];
+                buffer.get(symbolBytes);
+                int offset = buffer.position();
+                int ticks = buffer.getInt();
+                if (ticks < 0 || (long) ticks * 16 > buffer.remaining()) {
+                    break;
+                }
+                history.mappedOffsets.put(new String(symbolBytes, "UTF-8"), offset);
+                buffer.position(offset + 4 + ticks * 16);
+            }
+            history.mapped = buffer;
+        } catch (IOException | RuntimeException e) {
+            history.mappedOffsets.clear();
+        } finally {
+            closeQuietly(in);
+        }
+        return history;
+    }
+
+    public synchronized byte[] encode() throws IOException {
+        this.loadAll();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                10 + this.series.size() * (16 + this.capacity * 16));
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(this.series.size());
+        for (Map.Entry<String, TickSeries> entry : this.series.entrySet()) {
+            byte[] symbolBytes = entry.getKey().getBytes("UTF-8");
+            out.writeShort(symbolBytes.length);
+            out.write(symbolBytes);
+
+            long[] times = entry.getValue().getTimes();
+            double[] prices = entry.getValue().getPrices();
+            out.writeInt(times.length);
+            for (long time : times) {
+                out.writeLong(time);
+            }
+            for (double price : prices) {
+                out.writeDouble(price);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public boolean write(File file) {
+        if (file == null) {
+            return false;
+        }
+
+        // Write to a temporary file first so a failed write keeps the old history
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = null;
+        try {
+            byte[] data = this.encode();
+            out = new FileOutputStream(temp);
+            out.write(data);
+            out.close();
+            out = null;
+            return temp.renameTo(file);
+        } catch (IOException e) {
+            return false;
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
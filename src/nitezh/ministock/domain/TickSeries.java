@@ -0,0 +1,128 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.domain;
+
+
+/**
+ * Fixed-capacity ring buffer of the prices of one symbol over time.
+ * <p/>
+ * Times and prices are held in primitive arrays, once full the oldest tick is
+ * overwritten. Ticks are indexed from the oldest (0) to the newest.
+ */
+public class TickSeries {
+
+    private final long[] times;
+    private final double[] prices;
+    private int head = 0;
+    private int size = 0;
+    private long version = 0;
+
+    public TickSeries(int capacity) {
+        this.times = new long[capacity];
+        this.prices = new double[capacity];
+    }
+
+    /**
+     * @return a copy that is not changed by later appends to this series
+     */
+    public synchronized TickSeries copy() {
+        TickSeries copy = new TickSeries(this.times.length);
+        System.arraycopy(this.times, 0, copy.times, 0, this.times.length);
+        System.arraycopy(this.prices, 0, copy.prices, 0, this.prices.length);
+        copy.head = this.head;
+        copy.size = this.size;
+        copy.version = this.version;
+        return copy;
+    }
+
+    public synchronized void append(long time, double price) {
+        // Ignore ticks without a price and repeats of the newest tick
+        if (Double.isNaN(price) || (this.size > 0 && time <= this.getTime(this.size - 1))) {
+            return;
+        }
+
+        int index = (this.head + this.size) % this.times.length;
+        this.times[index] = time;
+        this.prices[index] = price;
+        if (this.size < this.times.length) {
+            this.size++;
+        } else {
+            this.head = (this.head + 1) % this.times.length;
+        }
+        this.version++;
+    }
+
+    public int getCapacity() {
+        return this.times.length;
+    }
+
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * @return a number that changes whenever a tick is appended
+     */
+    public synchronized long getVersion() {
+        return this.version;
+    }
+
+    public synchronized long getTime(int index) {
+        return this.times[(this.head + index) % this.times.length];
+    }
+
+    public synchronized double getPrice(int index) {
+        return this.prices[(this.head + index) % this.times.length];
+    }
+
+    public synchronized long[] getTimes() {
+        long[] copy = new long[this.size];
+        for (int i = 0; i < this.size; i++) {
+            copy[i] = this.times[(this.head + i) % this.times.length];
+        }
+        return copy;
+    }
+
+    public synchronized double[] getPrices() {
+        double[] copy = new double[this.size];
+        for (int i = 0; i < this.size; i++) {
+            copy[i] = this.prices[(this.head + i) % this.times.length];
+        }
+        return copy;
+    }
+
+    /**
+     * @return the change from the first tick at or after the given time to the
+     * newest tick, or NaN if there is no tick since then
+     */
+    public synchronized double getChangeSince(long time) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.getTime(i) >= time) {
+                return this.getPrice(this.size - 1) - this.getPrice(i);
+            }
+        }
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import nitezh.ministock.Storage;
+
+
+/**
+ * The preferences of a widget that are read on every render, loaded from its
+ * storage once, so rendering does not look each key up again.
+ */
+public class WidgetConfig {
+
+    private final int version;
+    private final int size;
+    private final boolean isVisual;
+    private final String[] stocks;
+    private final int symbolCount;
+    private final List<String> symbols;
+    private final boolean dailyChangeView;
+    private final boolean dailyPercentView;
+    private final boolean totalChangeView;
+    private final boolean totalPercentView;
+    private final boolean totalChangeAerView;
+    private final boolean dailyPlChangeView;
+    private final boolean dailyPlPercentView;
+    private final boolean totalPlChangeView;
+    private final boolean totalPlPercentView;
+    private final boolean totalPlPercentAerView;
+
+    public WidgetConfig(Storage storage, int version) {
+        this.version = version;
+        this.size = storage.getInt("widgetSize", 0);
+        this.isVisual = storage.getBoolean("visual_stockboard", false);
+
+        this.stocks = new String[AndroidWidgetRepository.MAX_STOCKS];
+        for (int i = 0; i < this.stocks.length; i++) {
+            this.stocks[i] = storage.getString("Stock" + (i + 1), "");
+        }
+        this.symbolCount = getSymbolCount(this.size, this.isVisual);
+        this.symbols = Collections.unmodifiableList(buildSymbols(this.stocks, this.symbolCount));
+
+        this.dailyChangeView = storage.getBoolean("show_absolute_change", false);
+        this.dailyPercentView = storage.getBoolean("show_percent_change", false);
+        this.totalChangeView = storage.getBoolean("show_portfolio_abs", false);
+        this.totalPercentView = storage.getBoolean("show_portfolio_change", false);
+        this.totalChangeAerView = storage.getBoolean("show_portfolio_aer", false);
+        this.dailyPlChangeView = storage.getBoolean("show_profit_daily_abs", false);
+        this.dailyPlPercentView = storage.getBoolean("show_profit_daily_change", false);
+        this.totalPlChangeView = storage.getBoolean("show_profit_abs", false);
+        this.totalPlPercentView = storage.getBoolean("show_profit_change", false);
+        this.totalPlPercentAerView = storage.getBoolean("show_profit_aer", false);
+    }
+
+    public static int getSymbolCount(int size, boolean isVisual) {
+        int count = 0;
+        if (!isVisual) {
+            if (size == 0 || size == 1) {
+                count = 4;
+            } else if (size == 2 || size == 3) {
+                count = 10;
+            }
+        } else {
+            if (size == 0) {
+                count = 4;
+            } else if (size == 1) {
+                count = 8;
+            } else if (size == 2) {
+                count = 8;
+            } else if (size == 3) {
+                count = 16;
+            }
+        }
+        return count;
+    }
+
+    private static List<String> buildSymbols(String[] stocks, int count) {
+        boolean found = false;
+        List<String> symbols = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            symbols.add(stocks[i]);
+            if (!stocks[i].equals("")) {
+                found = true;
+            }
+        }
+
+        if (!found) {
+            symbols.add("^DJI");
+        }
+        return symbols;
+    }
+
+    /**
+     * @return the storage version this was loaded at
+     */
+    public int getVersion() {
+        return this.version;
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    public boolean isVisual() {
+        return this.isVisual;
+    }
+
+    public String getStock(int i) {
+        return this.stocks[i];
+    }
+
+    /**
+     * @return the stock slots of the widget, including the ones it does not show
+     */
+    public List<String> getStocks() {
+        return Collections.unmodifiableList(Arrays.asList(this.stocks));
+    }
+
+    /**
+     * @return the first count stock slots, or just ^DJI if none of them are set
+     */
+    public List<String> getSymbols(int count) {
+        if (count == this.symbolCount) {
+            return this.symbols;
+        }
+        return Collections.unmodifiableList(buildSymbols(this.stocks, count));
+    }
+
+    public boolean hasDailyChangeView() {
+        return this.dailyChangeView;
+    }
+
+    public boolean hasDailyPercentView() {
+        return this.dailyPercentView;
+    }
+
+    public boolean hasTotalChangeView() {
+        return this.totalChangeView;
+    }
+
+    public boolean hasTotalPercentView() {
+        return this.totalPercentView;
+    }
+
+    public boolean hasTotalChangeAerView() {
+        return this.totalChangeAerView;
+    }
+
+    public boolean hasDailyPlChangeView() {
+        return this.dailyPlChangeView;
+    }
+
+    public boolean hasDailyPlPercentView() {
+        return this.dailyPlPercentView;
+    }
+
+    public boolean hasTotalPlChangeView() {
+        return this.totalPlChangeView;
+    }
+
+    public boolean hasTotalPlPercentView() {
+        return this.totalPlPercentView;
+    }
+
+    public boolean hasTotalPlPercentAerView() {
+        return this.totalPlPercentAerView;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * The ids of the widgets in use and the symbols each one shows, with an index
+ * from each symbol back to the widgets that show it.
+ * <p/>
+ * Built once and then kept up to date as widgets are added, deleted or have
+ * their symbols changed, so lookups do not go back to storage.
+ */
+public class WidgetRegistry {
+
+    // The symbols of each widget, in the order the widgets were added
+    private final LinkedHashMap<Integer, Set<String>> widgetSymbols = new LinkedHashMap<>();
+    private final HashMap<String, Set<Integer>> symbolWidgets = new HashMap<>();
+
+    public WidgetRegistry(Collection<Integer> ids) {
+        for (Integer id : ids) {
+            this.add(id);
+        }
+    }
+
+    public synchronized List<Integer> getIds() {
+        return new ArrayList<>(this.widgetSymbols.keySet());
+    }
+
+    public synchronized boolean contains(int id) {
+        return this.widgetSymbols.containsKey(id);
+    }
+
+    public synchronized boolean isEmpty() {
+        return this.widgetSymbols.isEmpty();
+    }
+
+    /**
+     * @return true if the widget was not registered before
+     */
+    public synchronized boolean add(int id) {
+        if (this.widgetSymbols.containsKey(id)) {
+            return false;
+        }
+        this.widgetSymbols.put(id, Collections.<String>emptySet());
+        return true;
+    }
+
+    /**
+     * @return true if the widget was registered
+     */
+    public synchronized boolean remove(int id) {
+        Set<String> symbols = this.widgetSymbols.remove(id);
+        if (symbols == null) {
+            return false;
+        }
+        this.unindex(id, symbols);
+        return true;
+    }
+
+    /**
+     * Replaces the symbols of a registered widget, ignoring blank ones
+     */
+    public synchronized void setSymbols(int id, Collection<String> symbols) {
+        Set<String> previous = this.widgetSymbols.get(id);
+        if (previous == null) {
+            return;
+        }
+
+        Set<String> current = new HashSet<>();
+        for (String symbol : symbols) {
+            if (!symbol.equals("")) {
+                current.add(symbol);
+            }
+        }
+        if (current.equals(previous)) {
+            return;
+        }
+
+        this.unindex(id, previous);
+        for (String symbol : current) {
+            Set<Integer> ids = this.symbolWidgets.get(symbol);
+            if (ids == null) {
+                ids = new LinkedHashSet<>();
+                this.symbolWidgets.put(symbol, ids);
+            }
+            ids.add(id);
+        }
+        this.widgetSymbols.put(id, current);
+    }
+
+    private void unindex(int id, Set<String> symbols) {
+        for (String symbol : symbols) {
+            Set<Integer> ids = this.symbolWidgets.get(symbol);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                this.symbolWidgets.remove(symbol);
+            }
+        }
+    }
+
+    /**
+     * @return the symbols shown by any widget
+     */
+    public synchronized Set<String> getSymbols() {
+        return new HashSet<>(this.symbolWidgets.keySet());
+    }
+
+    /**
+     * @return the widgets that show any of the symbols
+     */
+    public synchronized Set<Integer> getWidgetIds(Collection<String> symbols) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            Set<Integer> symbolIds = this.symbolWidgets.get(symbol);
+            if (symbolIds != null) {
+                ids.addAll(symbolIds);
+            }
+        }
+        return ids;
+    }
+}
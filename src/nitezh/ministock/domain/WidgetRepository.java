@@ -24,6 +24,7 @@
 
 package nitezh.ministock.domain;
 
+import java.util.Collection;
 import java.util.Set;
 
 
@@ -35,6 +36,11 @@ public interface WidgetRepository {
 
     Set<String> getWidgetsStockSymbols();
 
+    /**
+     * @return the widgets that show any of the symbols
+     */
+    Set<Integer> getWidgetIds(Collection<String> symbols);
+
     void delWidget(int id);
 
     Widget getWidget(int id);
@@ -27,6 +27,7 @@ package nitezh.ministock.domain;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
+import nitezh.ministock.utils.FixedPointFormat;
 import nitezh.ministock.utils.NumberTools;
 
 
@@ -59,11 +60,13 @@ public class WidgetStock {
         displayName = quote.getName();
         dailyChange = quote.getChange();
         dailyPercent = quote.getPercent();
-        volume = NumberTools.getNormalisedVolume(quote.getVolume());
+        volume = quote.getVolumeValue() != StockQuote.NO_VOLUME
+                ? NumberTools.getNormalisedVolume(quote.getVolumeValue()) : quote.getVolume();
 
+        // Use the quote values directly rather than parsing the display strings
         Double elapsedYears = null;
-        Double priceValue = NumberTools.parseDouble(quote.getPrice());
-        Double dailyChangeValue = NumberTools.parseDouble(quote.getChange());
+        Double priceValue = toNullable(quote.getPriceValue());
+        Double dailyChangeValue = toNullable(quote.getChangeValue());
 
         Double buyPriceValue = null;
         Double quantityValue = null;
@@ -95,7 +98,7 @@ public class WidgetStock {
         }
 
         if (priceChangeValue != null) {
-            totalPercent = String.format("%.1f", 100 * (priceChangeValue / buyPriceValue)) + "%";
+            totalPercent = FixedPointFormat.format(100 * (priceChangeValue / buyPriceValue), 1) + "%";
         }
 
         if (priceChangeValue != null && elapsedYears != null) {
@@ -103,23 +106,23 @@ public class WidgetStock {
         }
 
         if (priceChangeValue != null && elapsedYears != null) {
-            totalPercentAer = String.format("%.1f", (100 * (priceChangeValue / buyPriceValue)) / elapsedYears) + "%";
+            totalPercentAer = FixedPointFormat.format((100 * (priceChangeValue / buyPriceValue)) / elapsedYears, 1) + "%";
         }
 
         if (priceValue != null && quantityValue != null) {
-            plHolding = String.format("%.0f", priceValue * quantityValue);
+            plHolding = FixedPointFormat.format(priceValue * quantityValue, 0);
         }
 
         if (dailyChangeValue != null && quantityValue != null) {
-            plDailyChange = String.format("%.0f", dailyChangeValue * quantityValue);
+            plDailyChange = FixedPointFormat.format(dailyChangeValue * quantityValue, 0);
         }
 
         if (priceChangeValue != null && quantityValue != null) {
-            plTotalChange = String.format("%.0f", priceChangeValue * quantityValue);
+            plTotalChange = FixedPointFormat.format(priceChangeValue * quantityValue, 0);
         }
 
         if (priceChangeValue != null && quantityValue != null && elapsedYears != null) {
-            plTotalChangeAer = String.format("%.0f", (priceChangeValue * quantityValue) / elapsedYears);
+            plTotalChangeAer = FixedPointFormat.format((priceChangeValue * quantityValue) / elapsedYears, 0);
         }
 
         if (priceValue != null && limitHighValue != null) {
@@ -131,6 +134,10 @@ public class WidgetStock {
         }
     }
 
+    private static Double toNullable(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
     public String getPrice() {
         return price;
     }
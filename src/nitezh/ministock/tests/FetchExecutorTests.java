@@ -0,0 +1,115 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import nitezh.ministock.utils.FetchExecutor;
+
+
+public class FetchExecutorTests extends TestCase {
+
+    private static Callable<Integer> slowValue(final int value, final long delayMs) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                Thread.sleep(delayMs);
+                return value;
+            }
+        };
+    }
+
+    public void testInvokeAllRunsInParallelAndKeepsOrder() {
+        // Arrange
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        tasks.add(slowValue(1, 300));
+        tasks.add(slowValue(2, 300));
+        tasks.add(slowValue(3, 300));
+        long start = System.currentTimeMillis();
+
+        // Act
+        List<Integer> results = FetchExecutor.invokeAll(tasks);
+
+        // Assert
+        long elapsed = System.currentTimeMillis() - start;
+        assertEquals(3, results.size());
+        assertEquals(Integer.valueOf(1), results.get(0));
+        assertEquals(Integer.valueOf(2), results.get(1));
+        assertEquals(Integer.valueOf(3), results.get(2));
+        assertTrue(elapsed < 800);
+    }
+
+    public void testFailedTaskReturnsNull() {
+        // Arrange
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        tasks.add(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                throw new IllegalStateException();
+            }
+        });
+        tasks.add(slowValue(2, 0));
+
+        // Act
+        List<Integer> results = FetchExecutor.invokeAll(tasks);
+
+        // Assert
+        assertNull(results.get(0));
+        assertEquals(Integer.valueOf(2), results.get(1));
+    }
+
+    public void testNestedFanOutDoesNotStarvePool() {
+        // Arrange
+        List<Callable<Integer>> outer = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            outer.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    List<Callable<Integer>> inner = new ArrayList<>();
+                    for (int j = 0; j < 8; j++) {
+                        inner.add(slowValue(1, 10));
+                    }
+                    int sum = 0;
+                    for (Integer value : FetchExecutor.invokeAll(inner)) {
+                        sum += value;
+                    }
+                    return sum;
+                }
+            });
+        }
+
+        // Act
+        List<Integer> results = FetchExecutor.invokeAll(outer);
+
+        // Assert
+        for (Integer result : results) {
+            assertEquals(Integer.valueOf(8), result);
+        }
+    }
+}
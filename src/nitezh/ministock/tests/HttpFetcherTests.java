@@ -0,0 +1,127 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import nitezh.ministock.tests.mocks.MockHttpServer;
+import nitezh.ministock.utils.HttpFetcher;
+
+
+public class HttpFetcherTests extends TestCase {
+
+    private MockHttpServer server;
+    private HttpFetcher fetcher;
+
+    public void setUp() throws Exception {
+        this.server = new MockHttpServer();
+        this.fetcher = new HttpFetcher();
+    }
+
+    public void tearDown() {
+        this.server.close();
+    }
+
+    private String buildCsv(int rows) {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            csv.append("\"SYM").append(i).append("\",\"1/1/2016\",\"4:00pm\",12.34,+0.12,\"+0.98%\",\"NMS\",1000,\"Name\"\r\n");
+        }
+        return csv.toString();
+    }
+
+    public void testFetchesGzippedBody() {
+        // Arrange
+        String csv = this.buildCsv(200);
+        this.server.setBody(csv, null);
+
+        // Act
+        String body = this.fetcher.fetch(this.server.getUrl("/quotes.csv"));
+
+        // Assert
+        assertEquals(csv, body);
+        assertEquals("gzip", this.server.getLastHeader("Accept-Encoding"));
+        assertTrue(this.fetcher.getBytesRead() < csv.length() / 4);
+    }
+
+    public void testNotModifiedReturnsPreviousBody() {
+        // Arrange
+        String csv = this.buildCsv(10);
+        this.server.setBody(csv, "\"v1\"");
+        String url = this.server.getUrl("/quotes.csv");
+        this.fetcher.fetch(url);
+
+        // Act
+        String body = this.fetcher.fetch(url);
+
+        // Assert
+        assertEquals(csv, body);
+        assertEquals("\"v1\"", this.server.getLastHeader("If-None-Match"));
+        assertEquals(1, this.server.getNotModifiedCount());
+        assertEquals(1, this.fetcher.getNotModifiedCount());
+    }
+
+    public void testChangedBodyIsFetchedAgain() {
+        // Arrange
+        String url = this.server.getUrl("/quotes.csv");
+        this.server.setBody("first", "\"v1\"");
+        this.fetcher.fetch(url);
+        this.server.setBody("second", "\"v2\"");
+
+        // Act
+        String body = this.fetcher.fetch(url);
+
+        // Assert
+        assertEquals("second", body);
+        assertEquals(0, this.server.getNotModifiedCount());
+    }
+
+    public void testConnectionIsReused() {
+        // Arrange
+        this.server.setBody(this.buildCsv(10), "\"v1\"");
+        String url = this.server.getUrl("/quotes.csv");
+
+        // Act
+        for (int i = 0; i < 5; i++) {
+            this.fetcher.fetch(url);
+        }
+
+        // Assert
+        assertEquals(5, this.server.getRequestCount());
+        assertEquals(1, this.server.getConnectionCount());
+    }
+
+    public void testMissingServerReturnsNull() {
+        // Arrange
+        String url = this.server.getUrl("/quotes.csv");
+        this.server.close();
+
+        // Act
+        String body = this.fetcher.fetch(url);
+
+        // Assert
+        assertNull(body);
+    }
+}
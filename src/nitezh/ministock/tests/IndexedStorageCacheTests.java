@@ -0,0 +1,85 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import nitezh.ministock.tests.mocks.MockStorage;
+import nitezh.ministock.utils.Cache;
+import nitezh.ministock.utils.IndexedStorageCache;
+
+
+public class IndexedStorageCacheTests extends TestCase {
+
+    private Cache cache;
+
+    public void setUp() {
+        this.cache = new IndexedStorageCache(new MockStorage());
+    }
+
+    public void testGetReturnsValueBeforeExpiry() {
+        // Arrange
+        this.cache.put("http://example.com/a", "quotes", 300);
+
+        // Act
+        String value = this.cache.get("http://example.com/a");
+
+        // Assert
+        assertEquals("quotes", value);
+    }
+
+    public void testGetEvictsExpiredEntry() {
+        // Arrange
+        IndexedStorageCache indexedCache = (IndexedStorageCache) this.cache;
+        indexedCache.put("http://example.com/b", "quotes", 0);
+        int sizeBefore = indexedCache.size();
+
+        // Act
+        String value = indexedCache.get("http://example.com/b");
+
+        // Assert
+        assertNull(value);
+        assertEquals(sizeBefore - 1, indexedCache.size());
+    }
+
+    public void testGetMissingKey() {
+        // Act
+        String value = this.cache.get("http://example.com/missing");
+
+        // Assert
+        assertNull(value);
+    }
+
+    public void testInstancesShareIndex() {
+        // Arrange
+        this.cache.put("http://example.com/c", "shared", 300);
+
+        // Act
+        String value = new IndexedStorageCache(null).get("http://example.com/c");
+
+        // Assert
+        assertEquals("shared", value);
+    }
+}
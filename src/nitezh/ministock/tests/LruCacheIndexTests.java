@@ -0,0 +1,114 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import nitezh.ministock.utils.LruCacheIndex;
+
+
+public class LruCacheIndexTests extends TestCase {
+
+    private static final long NOW = 1000000L;
+    private static final long LATER = NOW + 300000L;
+
+    public void testEvictsLeastRecentlyUsedWhenEntryLimitExceeded() {
+        // Arrange
+        LruCacheIndex index = new LruCacheIndex(2, 1024 * 1024);
+        index.put("a", "1", LATER);
+        index.put("b", "2", LATER);
+        index.get("a", NOW);
+
+        // Act
+        index.put("c", "3", LATER);
+
+        // Assert
+        assertEquals(2, index.size());
+        assertEquals("1", index.get("a", NOW));
+        assertNull(index.get("b", NOW));
+        assertEquals("3", index.get("c", NOW));
+        assertEquals(1, index.getStats().getEvictionCount());
+    }
+
+    public void testEvictsWhenByteBudgetExceeded() {
+        // Arrange
+        long entrySize = LruCacheIndex.sizeOf("a", "0123456789");
+        LruCacheIndex index = new LruCacheIndex(100, entrySize * 2);
+        index.put("a", "0123456789", LATER);
+        index.put("b", "0123456789", LATER);
+
+        // Act
+        index.put("c", "0123456789", LATER);
+
+        // Assert
+        assertEquals(2, index.size());
+        assertTrue(index.getBytes() <= entrySize * 2);
+        assertNull(index.get("a", NOW));
+    }
+
+    public void testOversizedEntryIsNotKept() {
+        // Arrange
+        LruCacheIndex index = new LruCacheIndex(100, 100);
+
+        // Act
+        index.put("a", "this value is far too large for the configured byte budget", LATER);
+
+        // Assert
+        assertEquals(0, index.size());
+        assertEquals(0, index.getBytes());
+    }
+
+    public void testReplacingEntryKeepsByteCountAccurate() {
+        // Arrange
+        LruCacheIndex index = new LruCacheIndex(100, 1024 * 1024);
+        index.put("a", "short", LATER);
+
+        // Act
+        index.put("a", "a much longer value", LATER);
+
+        // Assert
+        assertEquals(1, index.size());
+        assertEquals(LruCacheIndex.sizeOf("a", "a much longer value"), index.getBytes());
+    }
+
+    public void testCountsHitsMissesAndExpiries() {
+        // Arrange
+        LruCacheIndex index = new LruCacheIndex(100, 1024 * 1024);
+        index.put("fresh", "1", LATER);
+        index.put("stale", "2", NOW - 1);
+
+        // Act
+        index.get("fresh", NOW);
+        index.get("stale", NOW);
+        index.get("missing", NOW);
+
+        // Assert
+        LruCacheIndex.Stats stats = index.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(1, stats.getExpiredCount());
+        assertEquals(1, stats.getEntryCount());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import nitezh.ministock.CustomAlarmManager;
+import nitezh.ministock.domain.MarketHours;
+
+
+public class MarketHoursTests extends TestCase {
+
+    private MarketHours marketHours;
+
+    public void setUp() {
+        this.marketHours = MarketHours.getInstance();
+    }
+
+    private static long utc(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    public void testSessionsFollowTheExchangeOfTheSymbol() {
+        // Arrange
+        long wednesdayMorningInNewYork = utc(2016, 6, 15, 14, 0);
+        long wednesdayNightInNewYork = utc(2016, 6, 16, 3, 0);
+
+        // Act & Assert
+        assertTrue(this.marketHours.isOpen("AAPL", wednesdayMorningInNewYork));
+        assertTrue(this.marketHours.isOpen("BARC.L", wednesdayMorningInNewYork));
+        assertFalse(this.marketHours.isOpen("0005.HK", wednesdayMorningInNewYork));
+        assertFalse(this.marketHours.isOpen("AAPL", wednesdayNightInNewYork));
+        assertTrue(this.marketHours.isOpen("0005.HK", wednesdayNightInNewYork));
+        assertTrue(this.marketHours.isOpen("EURUSD=X", wednesdayNightInNewYork));
+        assertTrue(this.marketHours.isOpen("7203.T", wednesdayNightInNewYork));
+    }
+
+    public void testClosingQuotesAreStillFetchedDuringGracePeriod() {
+        // Arrange
+        long justAfterClose = utc(2016, 6, 15, 20, 10);
+        long afterGracePeriod = utc(2016, 6, 15, 20, 30);
+
+        // Act & Assert
+        assertTrue(this.marketHours.isOpen("AAPL", justAfterClose));
+        assertFalse(this.marketHours.isOpen("AAPL", afterGracePeriod));
+        assertEquals(utc(2016, 6, 15, 20, 20), this.marketHours.getLastClose("AAPL", afterGracePeriod));
+    }
+
+    public void testNextOpenSkipsTheWeekend() {
+        // Arrange
+        long saturday = utc(2016, 6, 18, 12, 0);
+
+        // Act
+        long nextOpen = this.marketHours.getNextOpen(Arrays.asList("AAPL", "BARC.L"), saturday);
+
+        // Assert
+        assertFalse(this.marketHours.isAnyOpen(Arrays.asList("AAPL", "BARC.L", "GBPUSD=X"), saturday));
+        assertEquals(utc(2016, 6, 20, 7, 0), nextOpen);
+        assertEquals(utc(2016, 6, 17, 20, 20), this.marketHours.getLastClose("AAPL", saturday));
+        assertEquals(saturday, this.marketHours.getNextOpen(Arrays.asList("AAPL", "7203.T"), saturday));
+    }
+
+    public void testNextUpdateWaitsForTheOpenWhileMarketsAreClosed() {
+        // Arrange
+        long saturday = utc(2016, 6, 18, 12, 0);
+        long halfHour = 30 * 60 * 1000;
+
+        // Act
+        long nextUpdate = CustomAlarmManager.getNextUpdate(this.marketHours,
+                Arrays.asList("AAPL", "MSFT"), saturday, halfHour);
+
+        // Assert
+        assertEquals(utc(2016, 6, 20, 13, 30), nextUpdate);
+    }
+
+    public void testNextUpdateFollowsTheIntervalWhileAMarketIsOpen() {
+        // Arrange
+        long wednesdayMorningInNewYork = utc(2016, 6, 15, 14, 0);
+        long halfHour = 30 * 60 * 1000;
+
+        // Act
+        long nextUpdate = CustomAlarmManager.getNextUpdate(this.marketHours,
+                Arrays.asList("AAPL", "0005.HK"), wednesdayMorningInNewYork, halfHour);
+
+        // Assert
+        assertEquals(wednesdayMorningInNewYork + halfHour, nextUpdate);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nitezh.ministock.domain.MarketSnapshot;
+import nitezh.ministock.domain.PortfolioStock;
+import nitezh.ministock.domain.QuoteRefreshCoordinator;
+import nitezh.ministock.domain.StockQuote;
+
+
+public class MarketSnapshotTests extends TestCase {
+
+    private MarketSnapshot buildSnapshot(long generation) {
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        quotes.put("AAPL", new StockQuote("AAPL", "100.00", "1.00", "1.00%", "NMS", "100", "Apple Inc."));
+        quotes.put("MSFT", new StockQuote("MSFT", "50.00", "0.50", "1.00%", "NMS", "200", "Microsoft"));
+        HashMap<String, PortfolioStock> stocks = new HashMap<>();
+        stocks.put("AAPL", new PortfolioStock("AAPL", "90.00", "", "10", "", "", "", ""));
+        stocks.put("MSFT", new PortfolioStock("MSFT", "", "", "", "", "", "", ""));
+        stocks.put("GOOG", null);
+        return new MarketSnapshot(generation, quotes, "01 JAN 10:00", stocks,
+                new HashSet<>(Arrays.asList("AAPL", "MSFT")));
+    }
+
+    public void testSnapshotFiltersBySymbolsAndDropsEmptyStocks() {
+        // Arrange
+        MarketSnapshot snapshot = this.buildSnapshot(1);
+
+        // Act
+        HashMap<String, StockQuote> quotes = snapshot.getQuotes(Arrays.asList("AAPL", "GOOG"));
+        HashMap<String, PortfolioStock> stocks = snapshot.getPortfolioStocks(
+                Arrays.asList("AAPL", "MSFT", "GOOG"));
+
+        // Assert
+        assertEquals(1, quotes.size());
+        assertEquals("100.00", quotes.get("AAPL").getPrice());
+        assertEquals(1, stocks.size());
+        assertTrue(stocks.containsKey("AAPL"));
+        assertEquals("01 JAN 10:00", snapshot.getTimeStamp());
+    }
+
+    public void testChangedSymbolsAreThoseWithNewValues() {
+        // Arrange
+        MarketSnapshot previous = this.buildSnapshot(1);
+        HashMap<String, StockQuote> quotes = new HashMap<>(previous.getQuotes());
+        quotes.put("MSFT", new StockQuote("MSFT", "51.00", "1.50", "3.00%", "NMS", "300", "Microsoft"));
+        quotes.put("GOOG", new StockQuote("GOOG", "500.00", "2.00", "0.40%", "NMS", "100", "Google"));
+        MarketSnapshot current = new MarketSnapshot(2, quotes, "01 JAN 10:30",
+                new HashMap<String, PortfolioStock>(), new HashSet<String>());
+
+        // Act
+        Set<String> changed = current.getChangedSymbols(previous);
+
+        // Assert
+        assertEquals(new HashSet<>(Arrays.asList("MSFT", "GOOG")), changed);
+    }
+
+    public void testSnapshotIsBuiltOncePerGeneration() {
+        // Arrange
+        QuoteRefreshCoordinator coordinator = new QuoteRefreshCoordinator();
+        final AtomicInteger builds = new AtomicInteger();
+        final long generation = coordinator.nextGeneration();
+        Callable<MarketSnapshot> build = new Callable<MarketSnapshot>() {
+            @Override
+            public MarketSnapshot call() {
+                builds.incrementAndGet();
+                return buildSnapshot(generation);
+            }
+        };
+
+        // Act
+        MarketSnapshot first = null;
+        for (int i = 0; i < 10; i++) {
+            MarketSnapshot snapshot = coordinator.getSnapshot(generation, build);
+            if (first == null) {
+                first = snapshot;
+            }
+            assertSame(first, snapshot);
+        }
+        coordinator.getSnapshot(coordinator.nextGeneration(), build);
+
+        // Assert
+        assertEquals(2, builds.get());
+        assertEquals(2, coordinator.getSnapshotBuildCount());
+    }
+
+    public void testFailedBuildReturnsEmptySnapshot() {
+        // Arrange
+        QuoteRefreshCoordinator coordinator = new QuoteRefreshCoordinator();
+        long generation = coordinator.nextGeneration();
+
+        // Act
+        MarketSnapshot snapshot = coordinator.getSnapshot(generation, new Callable<MarketSnapshot>() {
+            @Override
+            public MarketSnapshot call() throws Exception {
+                throw new Exception("storage unavailable");
+            }
+        });
+
+        // Assert
+        assertEquals(generation, snapshot.getGeneration());
+        assertTrue(snapshot.getQuotes().isEmpty());
+        assertTrue(snapshot.getPortfolioStocks().isEmpty());
+    }
+
+    public void testStaleSnapshotDoesNotWaitForLiveBuild() throws Exception {
+        // Arrange
+        final QuoteRefreshCoordinator coordinator = new QuoteRefreshCoordinator();
+        final long generation = coordinator.nextGeneration();
+        final CountDownLatch liveStarted = new CountDownLatch(1);
+        final CountDownLatch releaseLive = new CountDownLatch(1);
+        Thread liveThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                coordinator.getSnapshot(generation, new Callable<MarketSnapshot>() {
+                    @Override
+                    public MarketSnapshot call() throws Exception {
+                        liveStarted.countDown();
+                        releaseLive.await();
+                        return buildSnapshot(generation);
+                    }
+                });
+            }
+        });
+        liveThread.start();
+        assertTrue(liveStarted.await(5, TimeUnit.SECONDS));
+
+        // Act
+        MarketSnapshot stale = coordinator.getStaleSnapshot(generation, new Callable<MarketSnapshot>() {
+            @Override
+            public MarketSnapshot call() {
+                MarketSnapshot saved = buildSnapshot(generation);
+                return new MarketSnapshot(generation, saved.getQuotes(), saved.getTimeStamp(),
+                        saved.getPortfolioStocks(), saved.getWidgetSymbols(), true);
+            }
+        });
+        releaseLive.countDown();
+        liveThread.join();
+
+        // Assert
+        assertTrue(stale.isStale());
+        assertEquals(2, stale.getQuotes().size());
+        assertFalse(coordinator.getSnapshot(generation, null).isStale());
+    }
+}
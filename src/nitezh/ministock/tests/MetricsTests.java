@@ -0,0 +1,157 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.List;
+
+import nitezh.ministock.tests.mocks.MockCache;
+import nitezh.ministock.utils.Metrics;
+import nitezh.ministock.utils.UrlDataTools;
+import nitezh.ministock.utils.UrlFetcher;
+
+
+public class MetricsTests extends TestCase {
+
+    public void testMetricsAreSharedByName() {
+        // Arrange
+        Metrics metrics = Metrics.getInstance();
+
+        // Act
+        metrics.counter("tests.shared").increment();
+        metrics.counter("tests.shared").add(2);
+
+        // Assert
+        assertSame(metrics.counter("tests.shared"), metrics.counter("tests.shared"));
+        assertEquals(3, metrics.counter("tests.shared").get());
+    }
+
+    public void testRatioCountsHitsAndMisses() {
+        // Arrange
+        Metrics.Ratio ratio = Metrics.getInstance().ratio("tests.ratio");
+
+        // Act
+        ratio.record(true);
+        ratio.record(true);
+        ratio.record(true);
+        ratio.record(false);
+
+        // Assert
+        assertEquals(3, ratio.getHits());
+        assertEquals(1, ratio.getMisses());
+        assertEquals(0.75, ratio.getHitRatio());
+    }
+
+    public void testCacheRatioOnlyCountsLookupsThatCouldHit() {
+        // Arrange
+        Metrics.Ratio ratio = Metrics.getInstance().ratio("cache.get");
+        long lookups = ratio.getHits() + ratio.getMisses();
+        UrlDataTools.setFetcher(new UrlFetcher() {
+            @Override
+            public String fetch(String url) {
+                return "body";
+            }
+        });
+
+        // Act
+        try {
+            UrlDataTools.getCachedUrlData("http://example.com/quotes", new MockCache(), null);
+            UrlDataTools.getCachedUrlData("http://example.com/currencies", new MockCache(), 60);
+        } finally {
+            UrlDataTools.setFetcher(null);
+        }
+
+        // Assert
+        assertEquals(lookups + 1, ratio.getHits() + ratio.getMisses());
+    }
+
+    public void testTimerEstimatesPercentilesFromBuckets() {
+        // Arrange
+        Metrics.Timer timer = Metrics.getInstance().timer("tests.timer");
+
+        // Act
+        for (int i = 0; i < 99; i++) {
+            timer.record(1500000L);
+        }
+        timer.record(50000000L);
+
+        // Assert
+        assertEquals(100, timer.getCount());
+        assertEquals(50.0, timer.getMaxMs());
+        assertEquals(1.985, timer.getMeanMs(), 0.001);
+        assertEquals(2.048, timer.getPercentileMs(50));
+        assertEquals(2.048, timer.getPercentileMs(99));
+        assertEquals(50.0, timer.getPercentileMs(100));
+    }
+
+    public void testEmptyTimerReportsZero() {
+        // Arrange
+        Metrics.Timer timer = Metrics.getInstance().timer("tests.empty");
+
+        // Act
+        double percentile = timer.getPercentileMs(90);
+
+        // Assert
+        assertEquals(0.0, percentile);
+        assertEquals(0.0, timer.getMeanMs());
+    }
+
+    public void testReportAndDumpIncludeGauges() throws IOException {
+        // Arrange
+        Metrics metrics = Metrics.getInstance();
+        metrics.gauge("tests.gauge", new Metrics.Gauge() {
+            @Override
+            public long getValue() {
+                return 42;
+            }
+        });
+        File file = File.createTempFile("metrics", ".txt");
+        file.deleteOnExit();
+
+        // Act
+        List<String> lines = metrics.report();
+        boolean isDumped = metrics.dump(file);
+
+        // Assert
+        assertTrue(lines.contains("tests.gauge: 42"));
+        assertTrue(isDumped);
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            boolean isFound = false;
+            while ((line = reader.readLine()) != null) {
+                isFound = isFound || line.equals("tests.gauge: 42");
+            }
+            assertTrue(isFound);
+        } finally {
+            reader.close();
+        }
+    }
+}
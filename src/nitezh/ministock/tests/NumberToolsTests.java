@@ -0,0 +1,207 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+
+import nitezh.ministock.utils.FixedPointFormat;
+import nitezh.ministock.utils.NumberTools;
+
+
+/**
+ * Checks the formatting and parsing in NumberTools against the String.format
+ * and NumberFormat based versions they replaced.
+ */
+public class NumberToolsTests extends TestCase {
+
+    private static final Locale[] LOCALES = {
+            Locale.US, Locale.GERMANY, Locale.FRANCE, new Locale("es", "ES"), new Locale("hi", "IN")
+    };
+    private static final double[] EDGE_VALUES = {
+            0, -0.0, 0.5, 1.5, 2.5, -2.5, 0.125, 0.375, 1.005, 2.675, 0.045, 1.0E-5, 9.9995,
+            99.995, 999999.5, 123456789.125, 1.0E7, 1.0E12, 1.0E15, 4.35, -0.001, 0.0049999
+    };
+
+    private Locale defaultLocale;
+
+    public void setUp() {
+        this.defaultLocale = Locale.getDefault();
+    }
+
+    public void tearDown() {
+        Locale.setDefault(this.defaultLocale);
+    }
+
+    private static double[] sampleValues() {
+        Random random = new Random(42);
+        double[] values = new double[EDGE_VALUES.length + 2000];
+        System.arraycopy(EDGE_VALUES, 0, values, 0, EDGE_VALUES.length);
+        for (int i = EDGE_VALUES.length; i < values.length; i++) {
+            double magnitude = Math.pow(10, random.nextInt(14) - 5);
+            double value = random.nextDouble() * magnitude;
+            if (i % 3 == 0) {
+                // Prices quoted to a few decimal places, often exactly on a tie
+                value = Math.round(value * 1000) / 1000.0;
+            }
+            values[i] = random.nextBoolean() ? value : -value;
+        }
+        return values;
+    }
+
+    public void testFormatMatchesStringFormat() {
+        for (Locale locale : LOCALES) {
+            // Arrange
+            Locale.setDefault(locale);
+
+            for (double value : sampleValues()) {
+                for (int precision = 0; precision <= 6; precision++) {
+                    // Act
+                    String result = FixedPointFormat.format(value, precision);
+
+                    // Assert
+                    assertEquals(locale + " " + value + " " + precision,
+                            String.format("%." + precision + "f", value), result);
+                }
+            }
+        }
+    }
+
+    public void testTrimmedDoubleMatchesLegacy() {
+        for (Locale locale : LOCALES) {
+            // Arrange
+            Locale.setDefault(locale);
+
+            for (double value : sampleValues()) {
+                // Act & Assert
+                assertEquals(legacyGetTrimmedDouble(value, 6, 4), NumberTools.getTrimmedDouble(value, 6, 4));
+                assertEquals(legacyGetTrimmedDouble(value, 5, 3), NumberTools.getTrimmedDouble(value, 5, 3));
+                assertEquals(legacyGetTrimmedDouble(value, 5, null), NumberTools.getTrimmedDouble(value, 5));
+                assertEquals(legacyGetTrimmedDouble2(value, 6), NumberTools.getTrimmedDouble2(value, 6));
+                assertEquals(legacyGetNormalisedVolume(Double.toString(Math.abs(value) * 1e6)),
+                        NumberTools.getNormalisedVolume(Double.toString(Math.abs(value) * 1e6)));
+            }
+        }
+    }
+
+    public void testParseMatchesNumberFormat() {
+        String[] inputs = {
+                "", "-", ".", "-.", ".5", "5.", "-0", "0", "128.65", "-0.70", "1,234.5", "1.234,5",
+                "12.5%", " 12", "+12", "1e5", "1E5", "N/A", "0.000000000000000000000001",
+                "12345678901234567890", "3.14159265358979323846", "007.50", "1.2.3"
+        };
+        for (Locale locale : LOCALES) {
+            // Arrange
+            Locale.setDefault(locale);
+
+            for (String input : inputs) {
+                // Act & Assert
+                assertEquals(locale + " " + input, legacyParseDouble(input), NumberTools.parseDouble(input));
+            }
+            for (double value : sampleValues()) {
+                String input = Double.toString(value);
+                assertEquals(locale + " " + input, legacyParseDouble(input), NumberTools.parseDouble(input));
+                input = String.format("%.4f", value);
+                assertEquals(locale + " " + input, legacyParseDouble(input), NumberTools.parseDouble(input));
+            }
+        }
+    }
+
+    private static String legacyGetTrimmedDouble2(double number, int digits) {
+        String numberAsString = Double.toString(number);
+        int decimalPos = numberAsString.indexOf(".");
+        if (decimalPos == -1) {
+            return numberAsString;
+        }
+        if (digits < decimalPos) {
+            return String.format("%.0f", number);
+        }
+        if (Math.abs(number) >= 100 && (numberAsString.length() - 1 < digits)) {
+            return String.format("%.2f", number);
+        }
+        int precision = digits - decimalPos;
+        if (Math.abs(number) >= 100) {
+            precision = Math.min(precision, 2);
+        }
+        if (Math.abs(number) >= 10) {
+            precision = Math.min(precision, 3);
+        }
+        return String.format("%." + Math.min(precision, 4) + "f", number);
+    }
+
+    private static String legacyGetTrimmedDouble(double number, int digits, Integer maxPrecision) {
+        String numberAsString = Double.toString(number);
+        int decimalPos = numberAsString.indexOf(".");
+        if (decimalPos == -1) {
+            return numberAsString;
+        }
+        if (digits < decimalPos) {
+            return String.format("%.0f", number);
+        }
+        if ((Math.abs(number) >= 10 || maxPrecision == null) && (numberAsString.length() - 1 < digits)) {
+            return String.format("%.2f", number);
+        }
+        int precision = digits - decimalPos;
+        if (Math.abs(number) >= 10 || maxPrecision == null) {
+            precision = Math.min(precision, 2);
+        }
+        if (maxPrecision == null)
+            maxPrecision = precision;
+        return String.format("%." + Math.min(precision, maxPrecision) + "f", number);
+    }
+
+    private static Double legacyParseDouble(String value) {
+        try {
+            char separator = new DecimalFormatSymbols().getDecimalSeparator();
+            value = value.replace('.', separator);
+            return NumberFormat.getInstance().parse(value).doubleValue();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static String legacyGetNormalisedVolume(String value) {
+        Double volume;
+        try {
+            volume = legacyParseDouble(value);
+            if (volume > 999999999999D)
+                value = String.format("%.0fT", volume / 1000000000000D);
+            else if (volume > 999999999D)
+                value = String.format("%.0fB", volume / 1000000000D);
+            else if (volume > 999999D)
+                value = String.format("%.0fM", volume / 1000000D);
+            else if (volume > 999D)
+                value = String.format("%.0fK", volume / 1000D);
+            else
+                value = String.format("%.0f", volume);
+        } catch (Exception ignored) {
+        }
+        return value;
+    }
+}
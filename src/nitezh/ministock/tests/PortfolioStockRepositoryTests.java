@@ -0,0 +1,73 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import nitezh.ministock.PreferenceStorage;
+import nitezh.ministock.domain.PortfolioStockRepository;
+import nitezh.ministock.domain.QuoteSnapshotStore;
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.domain.StockQuoteRepository;
+import nitezh.ministock.tests.mocks.MockCache;
+import nitezh.ministock.tests.mocks.MockSharedPreferences;
+import nitezh.ministock.tests.mocks.MockWidgetRepository;
+
+
+public class PortfolioStockRepositoryTests extends TestCase {
+
+    public void testQuotesAreReadFromTheSnapshotOnAColdStart() throws IOException {
+        // Arrange
+        File directory = File.createTempFile("portfolio", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        File snapshotFile = new File(directory, QuoteSnapshotStore.FILE_NAME);
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        quotes.put("AAPL", new StockQuote(
+                "AAPL", "128.65", "-0.70", "-0.54%", "NMS", "38205012", "Apple Inc."));
+        assertTrue(new QuoteSnapshotStore(snapshotFile).write(quotes, "05 JUN 16:00"));
+
+        // The legacy preference is cleared once a snapshot exists, so it is empty here
+        PreferenceStorage storage = new PreferenceStorage(new MockSharedPreferences());
+        MockWidgetRepository widgetRepository = new MockWidgetRepository();
+        widgetRepository.setWidgetsStockSymbols(new HashSet<>(Collections.singleton("AAPL")));
+        StockQuoteRepository.forgetLoadedQuotes();
+
+        // Act
+        PortfolioStockRepository repository = new PortfolioStockRepository(
+                storage, new MockCache(), widgetRepository, snapshotFile);
+
+        // Assert
+        StockQuote quote = repository.stocksQuotes.get("AAPL");
+        assertNotNull(quote);
+        assertEquals("128.65", quote.getPrice());
+        assertEquals("Apple Inc.", quote.getName());
+    }
+}
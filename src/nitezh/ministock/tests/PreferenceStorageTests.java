@@ -0,0 +1,174 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import nitezh.ministock.PreferenceStorage;
+import nitezh.ministock.tests.mocks.MockSharedPreferences;
+
+
+public class PreferenceStorageTests extends TestCase {
+
+    private MockSharedPreferences preferences;
+    private PreferenceStorage storage;
+
+    public void setUp() {
+        this.preferences = new MockSharedPreferences();
+        this.storage = new PreferenceStorage(this.preferences);
+    }
+
+    public void testApplyCommitsEachWriteOutsideABatch() {
+        // Act
+        for (int i = 1; i <= 16; i++) {
+            this.storage.putString("Stock" + i, "").apply();
+        }
+
+        // Assert
+        assertEquals(16, this.preferences.getCommitCount());
+    }
+
+    public void testBatchCommitsOnceWhenItEnds() {
+        // Arrange
+        this.storage.beginBatch();
+
+        // Act
+        for (int i = 1; i <= 16; i++) {
+            this.storage.putString("Stock" + i, "AAPL").apply();
+            this.storage.putString("Stock" + i + "_summary", "Apple").apply();
+        }
+        int commitsInBatch = this.preferences.getCommitCount();
+        this.storage.endBatch();
+
+        // Assert
+        assertEquals(0, commitsInBatch);
+        assertEquals(1, this.preferences.getCommitCount());
+        assertEquals("AAPL", this.storage.getString("Stock16", ""));
+        assertEquals("Apple", this.storage.getString("Stock1_summary", ""));
+    }
+
+    public void testNestedBatchesCommitWhenTheOutermostEnds() {
+        // Arrange
+        this.storage.beginBatch();
+        this.storage.putInt("widgetSize", 1);
+
+        // Act
+        this.storage.beginBatch();
+        this.storage.putString("Stock1", "AAPL").apply();
+        this.storage.endBatch();
+        int commitsAfterInner = this.preferences.getCommitCount();
+        this.storage.endBatch();
+
+        // Assert
+        assertEquals(0, commitsAfterInner);
+        assertEquals(1, this.preferences.getCommitCount());
+        assertEquals(1, this.storage.getInt("widgetSize", 0));
+    }
+
+    public void testInstancesAreSharedPerPreferences() {
+        // Act
+        PreferenceStorage first = PreferenceStorage.getInstance(this.preferences);
+        PreferenceStorage second = PreferenceStorage.getInstance(this.preferences);
+        PreferenceStorage other = PreferenceStorage.getInstance(new MockSharedPreferences());
+
+        // Assert
+        assertSame(first, second);
+        assertNotSame(first, other);
+    }
+
+    public void testForgottenInstanceIsReplacedAndStopsListening() {
+        // Arrange
+        PreferenceStorage forgotten = PreferenceStorage.getInstance(this.preferences);
+        int version = forgotten.getVersion();
+
+        // Act
+        PreferenceStorage.forgetInstance(this.preferences);
+        this.preferences.edit().putBoolean("large_font", true).apply();
+        PreferenceStorage current = PreferenceStorage.getInstance(this.preferences);
+
+        // Assert
+        assertNotSame(forgotten, current);
+        assertEquals(version, forgotten.getVersion());
+    }
+
+    public void testVersionChangesWhenPreferencesAreWritten() {
+        // Arrange
+        int initial = this.storage.getVersion();
+
+        // Act
+        this.storage.putString("Stock1", "AAPL");
+        int beforeApply = this.storage.getVersion();
+        this.storage.apply();
+        int afterApply = this.storage.getVersion();
+        this.preferences.edit().putBoolean("large_font", true).apply();
+
+        // Assert
+        assertEquals(initial, beforeApply);
+        assertTrue(afterApply != initial);
+        assertTrue(this.storage.getVersion() != afterApply);
+    }
+
+    public void testBatchOnOneThreadDoesNotDeferAnotherThreadsWrites()
+            throws InterruptedException {
+        // Arrange
+        final PreferenceStorage shared = PreferenceStorage.getInstance(this.preferences);
+        final String[] readBack = new String[1];
+        shared.beginBatch();
+        shared.putString("savedQuotesTime", "10:00").apply();
+
+        // Act
+        Thread other = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                shared.putString("last_update1", "2016-01-01 10:00").apply();
+                readBack[0] = shared.getString("last_update1", "");
+            }
+        });
+        other.start();
+        other.join();
+        int commitsInBatch = this.preferences.getCommitCount();
+        String batchedInBatch = shared.getString("savedQuotesTime", "");
+        shared.endBatch();
+
+        // Assert
+        assertEquals("2016-01-01 10:00", readBack[0]);
+        assertEquals(1, commitsInBatch);
+        assertEquals("", batchedInBatch);
+        assertEquals(2, this.preferences.getCommitCount());
+        assertEquals("10:00", shared.getString("savedQuotesTime", ""));
+    }
+
+    public void testEndBatchWithoutBeginFails() {
+        // Act
+        try {
+            this.storage.endBatch();
+            fail();
+        } catch (IllegalStateException ignored) {
+        }
+
+        // Assert
+        assertEquals(0, this.preferences.getCommitCount());
+    }
+}
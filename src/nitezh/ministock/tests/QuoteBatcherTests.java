@@ -0,0 +1,103 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import nitezh.ministock.dataaccess.QuoteBatcher;
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.tests.mocks.MockCache;
+import nitezh.ministock.tests.mocks.MockQuoteProvider;
+
+
+public class QuoteBatcherTests extends TestCase {
+
+    private MockQuoteProvider provider;
+
+    public void setUp() {
+        this.provider = new MockQuoteProvider("");
+    }
+
+    private List<String> buildSymbols(int count) {
+        List<String> symbols = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            symbols.add("SYM" + i);
+        }
+        return symbols;
+    }
+
+    public void testSplitRespectsSymbolCountLimit() {
+        // Arrange
+        this.provider.setLimits(10, 2000);
+
+        // Act
+        List<List<String>> chunks = QuoteBatcher.split(this.provider, this.buildSymbols(25));
+
+        // Assert
+        assertEquals(3, chunks.size());
+        assertEquals(10, chunks.get(0).size());
+        assertEquals(10, chunks.get(1).size());
+        assertEquals(5, chunks.get(2).size());
+    }
+
+    public void testSplitRespectsUrlLengthLimit() {
+        // Arrange
+        this.provider.setLimits(200, 80);
+        List<String> symbols = this.buildSymbols(50);
+
+        // Act
+        List<List<String>> chunks = QuoteBatcher.split(this.provider, symbols);
+
+        // Assert
+        int total = 0;
+        for (List<String> chunk : chunks) {
+            assertTrue(this.provider.buildRequestUrl(chunk).length() <= 80);
+            total += chunk.size();
+        }
+        assertEquals(50, total);
+        assertTrue(chunks.size() > 1);
+    }
+
+    public void testFailedChunkOnlyLosesItsOwnSymbols() {
+        // Arrange
+        this.provider.setLimits(10, 2000);
+        this.provider.setFailingSymbol("SYM12");
+
+        // Act
+        HashMap<String, StockQuote> quotes = QuoteBatcher.getQuotes(
+                this.provider, new MockCache(), this.buildSymbols(25));
+
+        // Assert
+        assertEquals(3, this.provider.getRequests().size());
+        assertEquals(15, quotes.size());
+        assertTrue(quotes.containsKey("SYM0"));
+        assertFalse(quotes.containsKey("SYM12"));
+        assertTrue(quotes.containsKey("SYM24"));
+    }
+}
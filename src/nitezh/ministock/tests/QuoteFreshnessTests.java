@@ -0,0 +1,99 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TimeZone;
+
+import nitezh.ministock.domain.MarketHours;
+import nitezh.ministock.domain.QuoteFreshness;
+import nitezh.ministock.domain.StockQuote;
+
+
+public class QuoteFreshnessTests extends TestCase {
+
+    private QuoteFreshness freshness;
+
+    public void setUp() {
+        this.freshness = new QuoteFreshness(MarketHours.getInstance());
+    }
+
+    private static long utc(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    private static StockQuote quote(String symbol, long fetchedAt) {
+        StockQuote quote = new StockQuote(symbol, "1.00", "0.01", "1.00%", "NMS", "100", symbol);
+        quote.setFetchedAt(fetchedAt);
+        return quote;
+    }
+
+    public void testTimeToLiveDependsOnAssetClass() {
+        // Arrange
+        long now = utc(2016, 6, 15, 15, 0);
+        long twoMinutesAgo = now - 2 * 60 * 1000;
+
+        // Act & Assert
+        assertTrue(this.freshness.isStale("AAPL", quote("AAPL", twoMinutesAgo), now));
+        assertTrue(this.freshness.isStale("^DJI", quote("^DJI", twoMinutesAgo), now));
+        assertFalse(this.freshness.isStale("EURUSD=X", quote("EURUSD=X", twoMinutesAgo), now));
+        assertFalse(this.freshness.isStale("^DJI", quote("^DJI", now - 60 * 1000), now));
+    }
+
+    public void testClosedMarketQuoteStaysFreshUntilNextOpen() {
+        // Arrange
+        long saturday = utc(2016, 6, 18, 12, 0);
+        long fridayAfterClose = utc(2016, 6, 17, 21, 0);
+        long fridayBeforeClose = utc(2016, 6, 17, 19, 0);
+
+        // Act & Assert
+        assertFalse(this.freshness.isStale("AAPL", quote("AAPL", fridayAfterClose), saturday));
+        assertTrue(this.freshness.isStale("AAPL", quote("AAPL", fridayBeforeClose), saturday));
+    }
+
+    public void testOnlyStaleSymbolsAreReturned() {
+        // Arrange
+        long now = utc(2016, 6, 15, 15, 0);
+        HashMap<String, StockQuote> saved = new HashMap<>();
+        saved.put("AAPL", quote("AAPL", now - 10 * 1000));
+        saved.put("MSFT", quote("MSFT", now - 10 * 60 * 1000));
+        saved.put("OLD", quote("OLD", 0));
+
+        // Act
+        List<String> stale = this.freshness.getStaleSymbols(
+                Arrays.asList("AAPL", "MSFT", "OLD", "NEW"), saved, now);
+
+        // Assert
+        assertEquals(Arrays.asList("MSFT", "OLD", "NEW"), stale);
+    }
+}
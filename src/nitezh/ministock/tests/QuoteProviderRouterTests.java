@@ -0,0 +1,101 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import nitezh.ministock.dataaccess.QuoteProvider;
+import nitezh.ministock.dataaccess.QuoteProviderRouter;
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.domain.StockQuoteRepository;
+import nitezh.ministock.tests.mocks.MockCache;
+import nitezh.ministock.tests.mocks.MockQuoteProvider;
+import nitezh.ministock.tests.mocks.MockStorage;
+import nitezh.ministock.tests.mocks.MockWidgetRepository;
+
+
+public class QuoteProviderRouterTests extends TestCase {
+
+    private MockQuoteProvider defaultProvider;
+    private MockQuoteProvider indexProvider;
+    private MockQuoteProvider fxProvider;
+    private QuoteProviderRouter router;
+
+    public void setUp() {
+        this.defaultProvider = new MockQuoteProvider("");
+        this.indexProvider = new MockQuoteProvider("idx:");
+        this.fxProvider = new MockQuoteProvider("fx:");
+        this.router = new QuoteProviderRouter(this.defaultProvider)
+                .addExact("^DJI", this.indexProvider)
+                .addSuffix(".L", this.indexProvider)
+                .addFragment("=X", this.fxProvider)
+                .addPrefix("^", this.fxProvider);
+    }
+
+    public void testRouteMatchesRulesInOrder() {
+        // Act & Assert
+        assertSame(this.indexProvider, this.router.route("^DJI"));
+        assertSame(this.indexProvider, this.router.route("BARC.L"));
+        assertSame(this.fxProvider, this.router.route("EURUSD=X"));
+        assertSame(this.fxProvider, this.router.route("^FTSE"));
+        assertSame(this.defaultProvider, this.router.route("AAPL"));
+    }
+
+    public void testRouteGroupsSymbolsByProvider() {
+        // Arrange
+        List<String> symbols = Arrays.asList("AAPL", "^DJI", "", "GOOG", "EURUSD=X");
+
+        // Act
+        LinkedHashMap<QuoteProvider, List<String>> routes = this.router.route(symbols);
+
+        // Assert
+        assertEquals(3, routes.size());
+        assertEquals(Arrays.asList("AAPL", "GOOG"), routes.get(this.defaultProvider));
+        assertEquals(Arrays.asList("^DJI"), routes.get(this.indexProvider));
+        assertEquals(Arrays.asList("EURUSD=X"), routes.get(this.fxProvider));
+    }
+
+    public void testLiveQuotesAreMappedBackToAppSymbols() {
+        // Arrange
+        StockQuoteRepository repository = new StockQuoteRepository(
+                new MockStorage(), new MockCache(), new MockWidgetRepository(), this.router);
+        List<String> symbols = Arrays.asList("AAPL", "^DJI", "EURUSD=X");
+
+        // Act
+        HashMap<String, StockQuote> quotes = repository.getLiveQuotes(symbols);
+
+        // Assert
+        assertEquals(3, quotes.size());
+        assertEquals("^DJI", quotes.get("^DJI").getSymbol());
+        assertEquals("EURUSD=X", quotes.get("EURUSD=X").getSymbol());
+        assertEquals(Arrays.asList("idx:^DJI"), this.indexProvider.getRequests().get(0));
+        assertEquals(1, this.defaultProvider.getRequests().size());
+    }
+}
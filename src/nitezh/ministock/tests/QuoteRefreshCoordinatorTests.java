@@ -0,0 +1,214 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nitezh.ministock.domain.MarketSnapshot;
+import nitezh.ministock.domain.QuoteRefreshCoordinator;
+import nitezh.ministock.domain.StockQuote;
+
+
+public class QuoteRefreshCoordinatorTests extends TestCase {
+
+    private QuoteRefreshCoordinator coordinator;
+    private AtomicInteger fetches;
+    private CountDownLatch releaseFetch;
+
+    public void setUp() {
+        this.coordinator = new QuoteRefreshCoordinator();
+        this.fetches = new AtomicInteger();
+        this.releaseFetch = new CountDownLatch(1);
+    }
+
+    private Callable<HashMap<String, StockQuote>> blockingFetch() {
+        return new Callable<HashMap<String, StockQuote>>() {
+            @Override
+            public HashMap<String, StockQuote> call() throws Exception {
+                fetches.incrementAndGet();
+                releaseFetch.await();
+                HashMap<String, StockQuote> quotes = new HashMap<>();
+                quotes.put("AAPL", new StockQuote("AAPL", "100.00", "1.00", "1.00%", "NMS", "100", "Apple Inc."));
+                return quotes;
+            }
+        };
+    }
+
+    public void testConcurrentCallersShareOneFetch() throws Exception {
+        // Arrange
+        final long generation = this.coordinator.nextGeneration();
+        final List<Map<String, StockQuote>> results = new ArrayList<>();
+        final CountDownLatch started = new CountDownLatch(8);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    Map<String, StockQuote> quotes = coordinator.refresh(generation, blockingFetch());
+                    synchronized (results) {
+                        results.add(quotes);
+                    }
+                }
+            }));
+        }
+
+        // Act
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        started.await();
+        Thread.sleep(100);
+        this.releaseFetch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Assert
+        assertEquals(1, this.fetches.get());
+        assertEquals(1, this.coordinator.getFetchCount());
+        assertEquals(8, results.size());
+        for (Map<String, StockQuote> quotes : results) {
+            assertSame(results.get(0), quotes);
+            assertEquals("AAPL", quotes.get("AAPL").getSymbol());
+        }
+    }
+
+    public void testNewGenerationFetchesAgain() {
+        // Arrange
+        this.releaseFetch.countDown();
+        long first = this.coordinator.nextGeneration();
+
+        // Act
+        this.coordinator.refresh(first, blockingFetch());
+        this.coordinator.refresh(first, blockingFetch());
+        this.coordinator.refresh(this.coordinator.nextGeneration(), blockingFetch());
+
+        // Assert
+        assertEquals(2, this.fetches.get());
+    }
+
+    public void testOlderGenerationJoinsNewerFlight() {
+        // Arrange
+        this.releaseFetch.countDown();
+        long older = this.coordinator.nextGeneration();
+        long newer = this.coordinator.nextGeneration();
+
+        // Act
+        this.coordinator.refresh(newer, blockingFetch());
+        this.coordinator.refresh(older, blockingFetch());
+
+        // Assert
+        assertEquals(1, this.fetches.get());
+    }
+
+    public void testSharedQuotesAreReadOnly() {
+        // Arrange
+        this.releaseFetch.countDown();
+
+        // Act
+        Map<String, StockQuote> quotes = this.coordinator.refresh(
+                this.coordinator.nextGeneration(), blockingFetch());
+
+        // Assert
+        try {
+            quotes.remove("AAPL");
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+        assertEquals(1, quotes.size());
+    }
+
+    public void testNewerSnapshotDoesNotWaitForAnOlderBuild() throws Exception {
+        // Arrange
+        final long older = this.coordinator.nextGeneration();
+        long newer = this.coordinator.nextGeneration();
+        final CountDownLatch building = new CountDownLatch(1);
+        Thread olderBuild = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                coordinator.getSnapshot(older, new Callable<MarketSnapshot>() {
+                    @Override
+                    public MarketSnapshot call() throws Exception {
+                        building.countDown();
+                        releaseFetch.await();
+                        return MarketSnapshot.empty(older);
+                    }
+                });
+            }
+        });
+        olderBuild.start();
+        assertTrue(building.await(5, TimeUnit.SECONDS));
+
+        // Act
+        MarketSnapshot snapshot = this.coordinator.getSnapshot(newer, new Callable<MarketSnapshot>() {
+            @Override
+            public MarketSnapshot call() {
+                return MarketSnapshot.empty(-1);
+            }
+        });
+        this.releaseFetch.countDown();
+        olderBuild.join();
+
+        // Assert
+        assertEquals(-1, snapshot.getGeneration());
+        assertEquals(2, this.coordinator.getSnapshotBuildCount());
+        assertEquals(-1, this.coordinator.getSnapshot(older, null).getGeneration());
+    }
+
+    public void testCacheOnlySnapshotDoesNotStandInForAPendingRefresh() {
+        // Arrange
+        final long scheduled = this.coordinator.nextGeneration();
+        final long tapped = this.coordinator.nextGeneration();
+        this.coordinator.getSnapshot(tapped, false, new Callable<MarketSnapshot>() {
+            @Override
+            public MarketSnapshot call() {
+                return MarketSnapshot.empty(tapped);
+            }
+        });
+
+        // Act
+        MarketSnapshot snapshot = this.coordinator.getSnapshot(scheduled, true,
+                new Callable<MarketSnapshot>() {
+                    @Override
+                    public MarketSnapshot call() {
+                        return MarketSnapshot.empty(scheduled);
+                    }
+                });
+
+        // Assert
+        assertEquals(scheduled, snapshot.getGeneration());
+        assertEquals(2, this.coordinator.getSnapshotBuildCount());
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import nitezh.ministock.domain.QuoteSnapshotStore;
+import nitezh.ministock.domain.StockQuote;
+
+
+public class QuoteSnapshotStoreTests extends TestCase {
+
+    private LinkedHashMap<String, StockQuote> quotes;
+
+    public void setUp() {
+        this.quotes = new LinkedHashMap<>();
+        this.quotes.put("AAPL", new StockQuote(
+                "AAPL", "128.65", "-0.70", "-0.54%", "NMS", "38205012", "Apple Inc."));
+        this.quotes.put("ODD", new StockQuote(
+                "ODD", "12.00", "0.10", "0.84%", "NYQ", "100", "Semi; Colon\nCo"));
+        this.quotes.put("GOOG", new StockQuote(
+                "GOOG", "532.11", "1.02", "0.19%", "NMS", "1550312", "Google Inc."));
+    }
+
+    public void testRoundTripKeepsAllFields() throws IOException {
+        // Arrange
+        this.quotes.get("AAPL").setFetchedAt(1433520000000L);
+        byte[] data = QuoteSnapshotStore.encode(this.quotes, "05 JUN 16:00");
+
+        // Act
+        QuoteSnapshotStore.Snapshot snapshot = QuoteSnapshotStore.decode(data);
+
+        // Assert
+        assertEquals("05 JUN 16:00", snapshot.getTimeStamp());
+        assertEquals(3, snapshot.getSymbols().size());
+        StockQuote odd = snapshot.get("ODD");
+        assertEquals("Semi; Colon\nCo", odd.getName());
+        assertEquals("NYQ", odd.getExchange());
+        assertEquals(this.quotes.get("AAPL").getPrice(), snapshot.get("AAPL").getPrice());
+        assertEquals(this.quotes.get("AAPL").getPercent(), snapshot.get("AAPL").getPercent());
+        assertEquals(1433520000000L, snapshot.get("AAPL").getFetchedAt());
+        assertEquals(0, odd.getFetchedAt());
+    }
+
+    public void testSharedExchangeIsStoredOnce() throws IOException {
+        // Arrange
+        byte[] data = QuoteSnapshotStore.encode(this.quotes, "05 JUN 16:00");
+        byte[] exchange = "NMS".getBytes("UTF-8");
+
+        // Act
+        int first = indexOf(data, exchange);
+        int last = lastIndexOf(data, exchange);
+
+        // Assert
+        assertTrue(first >= 0);
+        assertEquals(first, last);
+        assertEquals("NMS", QuoteSnapshotStore.decode(data).get("GOOG").getExchange());
+    }
+
+    public void testCorruptRecordOnlyLosesThatQuote() throws IOException {
+        // Arrange
+        byte[] data = QuoteSnapshotStore.encode(this.quotes, "05 JUN 16:00");
+        int nameOffset = indexOf(data, "Semi".getBytes("UTF-8"));
+        data[nameOffset] = 'X';
+
+        // Act
+        QuoteSnapshotStore.Snapshot snapshot = QuoteSnapshotStore.decode(data);
+        HashMap<String, StockQuote> loaded = snapshot.getQuotes(Arrays.asList("AAPL", "ODD", "GOOG"));
+
+        // Assert
+        assertEquals(2, loaded.size());
+        assertNull(loaded.get("ODD"));
+        assertEquals(1, snapshot.getCorruptCount());
+    }
+
+    public void testWriteAndReadFile() throws IOException {
+        // Arrange
+        File file = File.createTempFile("quotes", ".snapshot");
+        QuoteSnapshotStore store = new QuoteSnapshotStore(file);
+
+        // Act
+        boolean written = store.write(this.quotes, "05 JUN 16:00");
+        QuoteSnapshotStore.Snapshot snapshot = store.read();
+
+        // Assert
+        assertTrue(written);
+        assertEquals("Google Inc.", snapshot.get("GOOG").getName());
+        assertNull(snapshot.get("MSFT"));
+        file.delete();
+    }
+
+    public void testOlderVersionIsRejected() throws IOException {
+        // Arrange
+        byte[] data = QuoteSnapshotStore.encode(this.quotes, "05 JUN 16:00");
+        data[5] = 2;
+
+        // Act
+        QuoteSnapshotStore.Snapshot snapshot = QuoteSnapshotStore.decode(data);
+
+        // Assert
+        assertNull(snapshot);
+    }
+
+    public void testConcurrentWritesLeaveAWholeSnapshot() throws Exception {
+        // Arrange
+        File dir = File.createTempFile("quotes", "");
+        assertTrue(dir.delete() && dir.mkdir());
+        final QuoteSnapshotStore store = new QuoteSnapshotStore(new File(dir, "quotes.snapshot"));
+        Thread[] writers = new Thread[4];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 25; j++) {
+                        store.write(quotes, "05 JUN 16:00");
+                    }
+                }
+            });
+        }
+
+        // Act
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        QuoteSnapshotStore.Snapshot snapshot = store.read();
+
+        // Assert
+        assertEquals(0, snapshot.getCorruptCount());
+        assertEquals("Apple Inc.", snapshot.get("AAPL").getName());
+        assertEquals(Arrays.asList("quotes.snapshot"), Arrays.asList(dir.list()));
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            boolean match = true;
+            for (int j = 0; j < pattern.length && match; j++) {
+                match = data[i + j] == pattern[j];
+            }
+            if (match) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] data, byte[] pattern) {
+        for (int i = data.length - pattern.length; i >= 0; i--) {
+            boolean match = true;
+            for (int j = 0; j < pattern.length && match; j++) {
+                match = data[i + j] == pattern[j];
+            }
+            if (match) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import nitezh.ministock.domain.MarketHours;
+import nitezh.ministock.domain.MarketSnapshot;
+import nitezh.ministock.domain.QuoteFreshness;
+import nitezh.ministock.domain.QuoteRefreshCoordinator;
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.domain.StockQuoteRepository;
+import nitezh.ministock.tests.mocks.MockCache;
+import nitezh.ministock.tests.mocks.MockStorage;
+import nitezh.ministock.tests.mocks.MockWidgetRepository;
+import nitezh.ministock.tests.mocks.ReplayUrlFetcher;
+import nitezh.ministock.utils.RefreshScheduler;
+import nitezh.ministock.utils.UrlDataTools;
+
+
+/**
+ * Refreshes many simulated widgets through StockQuoteRepository against
+ * replayed provider responses, and reports the refresh latencies.
+ * <p/>
+ * Each round starts a new refresh generation and schedules every widget the
+ * way the widget provider does: the saved quotes are read first, then the
+ * refreshed snapshot. Latency is measured from the start of the round to
+ * each widget having its saved and its refreshed quotes. Every quote counts
+ * as stale, so each round fetches every symbol.
+ */
+public class RefreshLoadHarness {
+
+    // Symbols with captured quotes, mixed in so every provider is used
+    private static final List<String> CAPTURED_SYMBOLS = Arrays.asList(
+            "AAPL", "GOOG", "MSFT", "^DJI", "^IXIC", "^GSPC", "EURUSD=X", "GBPUSD=X", "BP.L");
+
+    private final ReplayUrlFetcher fetcher;
+    private final List<List<String>> widgets = new ArrayList<>();
+    private final HashSet<String> symbols = new HashSet<>();
+    private int workers = 2;
+
+    public RefreshLoadHarness(ReplayUrlFetcher fetcher, int widgetCount, int symbolCount,
+                              int symbolsPerWidget, long seed) {
+        this.fetcher = fetcher;
+
+        List<String> universe = new ArrayList<>(CAPTURED_SYMBOLS);
+        for (int i = universe.size(); i < symbolCount; i++) {
+            universe.add(String.format("S%04d", i));
+        }
+
+        Random random = new Random(seed);
+        for (int i = 0; i < widgetCount; i++) {
+            List<String> widgetSymbols = new ArrayList<>();
+            while (widgetSymbols.size() < Math.min(symbolsPerWidget, universe.size())) {
+                String symbol = universe.get(random.nextInt(universe.size()));
+                if (!widgetSymbols.contains(symbol)) {
+                    widgetSymbols.add(symbol);
+                }
+            }
+            this.widgets.add(widgetSymbols);
+            this.symbols.addAll(widgetSymbols);
+        }
+    }
+
+    /**
+     * Sets the number of widgets refreshed at once, as the widget scheduler does
+     */
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getSymbolCount() {
+        return this.symbols.size();
+    }
+
+    public Report run(int rounds) throws InterruptedException {
+        MockWidgetRepository widgetRepository = new MockWidgetRepository();
+        widgetRepository.setWidgetsStockSymbols(new HashSet<>(this.symbols));
+        final StockQuoteRepository repository = new StockQuoteRepository(
+                new MockStorage(), new MockCache(), widgetRepository,
+                StockQuoteRepository.buildDefaultRouter(), null,
+                new QuoteFreshness(MarketHours.getInstance()) {
+                    @Override
+                    public boolean isStale(String symbol, StockQuote quote, long time) {
+                        return true;
+                    }
+                });
+
+        RefreshScheduler scheduler = new RefreshScheduler(this.workers, "RefreshLoad");
+        final QuoteRefreshCoordinator coordinator = QuoteRefreshCoordinator.getInstance();
+        final Report report = new Report(rounds * this.widgets.size());
+        int requestsBefore = this.fetcher.getRequestCount();
+        int errorsBefore = this.fetcher.getErrorCount();
+
+        UrlDataTools.setFetcher(this.fetcher);
+        try {
+            for (int round = 0; round < rounds; round++) {
+                final long generation = coordinator.nextGeneration();
+                final long start = System.nanoTime();
+                final CountDownLatch done = new CountDownLatch(this.widgets.size());
+
+                for (int id = 0; id < this.widgets.size(); id++) {
+                    final List<String> widgetSymbols = this.widgets.get(id);
+                    scheduler.schedule(id, RefreshScheduler.PRIORITY_BACKGROUND, new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                coordinator.getStaleSnapshot(generation,
+                                        new Callable<MarketSnapshot>() {
+                                            @Override
+                                            public MarketSnapshot call() {
+                                                return repository.getStaleMarketSnapshot(generation);
+                                            }
+                                        });
+                                long staleNanos = System.nanoTime() - start;
+
+                                MarketSnapshot snapshot = coordinator.getSnapshot(generation,
+                                        new Callable<MarketSnapshot>() {
+                                            @Override
+                                            public MarketSnapshot call() {
+                                                return repository.getMarketSnapshot(true, generation);
+                                            }
+                                        });
+                                int missing = widgetSymbols.size()
+                                        - snapshot.getQuotes(widgetSymbols).size();
+                                report.add(staleNanos, System.nanoTime() - start,
+                                        missing, snapshot.isStale());
+                            } finally {
+                                done.countDown();
+                            }
+                        }
+                    });
+                }
+
+                done.await(5, TimeUnit.MINUTES);
+            }
+        } finally {
+            UrlDataTools.setFetcher(null);
+        }
+
+        report.requests = this.fetcher.getRequestCount() - requestsBefore;
+        report.errors = this.fetcher.getErrorCount() - errorsBefore;
+        return report;
+    }
+
+    /**
+     * Runs the harness from the command line, with optional arguments of
+     * widgets, symbols, symbols per widget, rounds, latency in ms and error rate
+     */
+    public static void main(String[] args) throws Exception {
+        int widgetCount = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int symbolCount = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+        int symbolsPerWidget = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        long latencyMs = args.length > 4 ? Long.parseLong(args[4]) : 100;
+        double errorRate = args.length > 5 ? Double.parseDouble(args[5]) : 0.02;
+
+        ReplayUrlFetcher fetcher = ReplayUrlFetcher.fromFixtures(1);
+        fetcher.setLatency(latencyMs / 2, latencyMs * 3 / 2);
+        fetcher.setErrorRate(errorRate);
+        RefreshLoadHarness harness = new RefreshLoadHarness(
+                fetcher, widgetCount, symbolCount, symbolsPerWidget, 1);
+        System.out.println(widgetCount + " widgets, " + harness.getSymbolCount() + " symbols");
+        System.out.println(harness.run(rounds));
+    }
+
+    public static class Report {
+
+        private final long[] staleNanos;
+        private final long[] refreshedNanos;
+        private int count = 0;
+        private int missingQuotes = 0;
+        private int staleRenders = 0;
+        private int requests = 0;
+        private int errors = 0;
+
+        Report(int capacity) {
+            this.staleNanos = new long[capacity];
+            this.refreshedNanos = new long[capacity];
+        }
+
+        synchronized void add(long staleNanos, long refreshedNanos, int missing, boolean isStale) {
+            this.staleNanos[this.count] = staleNanos;
+            this.refreshedNanos[this.count] = refreshedNanos;
+            this.count++;
+            this.missingQuotes += missing;
+            if (isStale) {
+                this.staleRenders++;
+            }
+        }
+
+        public synchronized int getCount() {
+            return this.count;
+        }
+
+        public synchronized int getMissingQuotes() {
+            return this.missingQuotes;
+        }
+
+        /**
+         * @return the number of widgets shown saved quotes because a refresh failed
+         */
+        public synchronized int getStaleRenders() {
+            return this.staleRenders;
+        }
+
+        public int getRequests() {
+            return this.requests;
+        }
+
+        public int getErrors() {
+            return this.errors;
+        }
+
+        /**
+         * @return the time in ms for widgets to get their saved quotes, at the percentile
+         */
+        public double getStalePercentile(double percentile) {
+            return this.getPercentile(this.staleNanos, percentile);
+        }
+
+        /**
+         * @return the time in ms for widgets to get refreshed quotes, at the percentile
+         */
+        public double getRefreshedPercentile(double percentile) {
+            return this.getPercentile(this.refreshedNanos, percentile);
+        }
+
+        private synchronized double getPercentile(long[] nanos, double percentile) {
+            if (this.count == 0) {
+                return Double.NaN;
+            }
+            long[] sorted = Arrays.copyOf(nanos, this.count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%d widget refreshes, %d requests, %d failed, %d quotes missing, %d stale%n"
+                            + "saved quotes     p50 %.1f ms  p90 %.1f ms  p99 %.1f ms  max %.1f ms%n"
+                            + "refreshed quotes p50 %.1f ms  p90 %.1f ms  p99 %.1f ms  max %.1f ms",
+                    this.getCount(), this.requests, this.errors, this.getMissingQuotes(),
+                    this.getStaleRenders(),
+                    this.getStalePercentile(50), this.getStalePercentile(90),
+                    this.getStalePercentile(99), this.getStalePercentile(100),
+                    this.getRefreshedPercentile(50), this.getRefreshedPercentile(90),
+                    this.getRefreshedPercentile(99), this.getRefreshedPercentile(100));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import nitezh.ministock.dataaccess.FxChangeRepository;
+import nitezh.ministock.dataaccess.GoogleStockQuoteRepository;
+import nitezh.ministock.dataaccess.YahooStockQuoteRepository;
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.tests.mocks.MockCache;
+import nitezh.ministock.tests.mocks.ReplayUrlFetcher;
+import nitezh.ministock.utils.UrlDataTools;
+
+
+public class RefreshLoadTests extends TestCase {
+
+    private ReplayUrlFetcher fetcher;
+
+    public void setUp() throws IOException, JSONException {
+        this.fetcher = ReplayUrlFetcher.fromFixtures(1);
+        UrlDataTools.setFetcher(this.fetcher);
+    }
+
+    public void tearDown() {
+        UrlDataTools.setFetcher(null);
+    }
+
+    public void testReplayServesCapturedAndUncapturedSymbols() {
+        // Arrange
+        List<String> symbols = Arrays.asList("AAPL", "NEW1", "EURUSD=X");
+
+        // Act
+        HashMap<String, StockQuote> quotes = new YahooStockQuoteRepository(
+                new FxChangeRepository())
+                .getQuotes(new MockCache(), symbols);
+
+        // Assert
+        assertEquals(3, quotes.size());
+        assertEquals("Apple Inc.", quotes.get("AAPL").getName());
+        assertEquals("NEW1", quotes.get("NEW1").getSymbol());
+        assertEquals(2, this.fetcher.getRequestCount());
+    }
+
+    public void testReplayServesGoogleQuotes() {
+        // Act
+        HashMap<String, StockQuote> quotes = new GoogleStockQuoteRepository()
+                .getQuotes(new MockCache(), Arrays.asList(".DJI", ".IXIC"));
+
+        // Assert
+        assertEquals(2, quotes.size());
+        assertEquals("DJX", quotes.get(".DJI").getExchange());
+    }
+
+    public void testErrorsAreRepeatableForTheSameSeed() throws IOException, JSONException {
+        // Arrange
+        ReplayUrlFetcher other = ReplayUrlFetcher.fromFixtures(1);
+        this.fetcher.setErrorRate(0.5);
+        other.setErrorRate(0.5);
+
+        // Act
+        List<Boolean> failures = new ArrayList<>();
+        List<Boolean> otherFailures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            failures.add(this.fetcher.fetch(ReplayUrlFetcher.FX_CHANGES_URL) == null);
+            otherFailures.add(other.fetch(ReplayUrlFetcher.FX_CHANGES_URL) == null);
+        }
+
+        // Assert
+        assertEquals(failures, otherFailures);
+        assertTrue(failures.contains(true));
+        assertTrue(failures.contains(false));
+    }
+
+    public void testHarnessRefreshesEveryWidget() throws InterruptedException {
+        // Arrange
+        this.fetcher.setLatency(0, 5);
+        RefreshLoadHarness harness = new RefreshLoadHarness(this.fetcher, 100, 1000, 16, 1);
+
+        // Act
+        RefreshLoadHarness.Report report = harness.run(3);
+
+        // Assert
+        assertEquals(300, report.getCount());
+        assertEquals(0, report.getMissingQuotes());
+        assertEquals(0, report.getStaleRenders());
+        assertTrue(report.getRequests() > 0);
+        assertTrue(report.getRefreshedPercentile(50) <= report.getRefreshedPercentile(99));
+        assertTrue(report.getStalePercentile(99) <= report.getRefreshedPercentile(100));
+    }
+
+    public void testHarnessReportsFailedRefreshes() throws InterruptedException {
+        // Arrange
+        this.fetcher.setErrorRate(1);
+        RefreshLoadHarness harness = new RefreshLoadHarness(this.fetcher, 20, 200, 8, 1);
+
+        // Act
+        RefreshLoadHarness.Report report = harness.run(1);
+
+        // Assert
+        assertEquals(20, report.getCount());
+        assertEquals(report.getRequests(), report.getErrors());
+        assertEquals(20, report.getStaleRenders());
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import nitezh.ministock.utils.RefreshScheduler;
+
+
+public class RefreshSchedulerTests extends TestCase {
+
+    private RefreshScheduler scheduler;
+    private CountDownLatch releaseWorker;
+    private List<String> runOrder;
+
+    public void setUp() throws Exception {
+        this.scheduler = new RefreshScheduler(1, "RefreshSchedulerTests");
+        this.releaseWorker = new CountDownLatch(1);
+        this.runOrder = Collections.synchronizedList(new ArrayList<String>());
+
+        // Keep the only worker busy so later tasks wait in the queue
+        final CountDownLatch blocking = new CountDownLatch(1);
+        this.scheduler.schedule("blocker", RefreshScheduler.PRIORITY_USER, new Runnable() {
+            @Override
+            public void run() {
+                blocking.countDown();
+                try {
+                    releaseWorker.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        assertTrue(blocking.await(5, TimeUnit.SECONDS));
+    }
+
+    private Runnable recordTask(final String name, final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                runOrder.add(name);
+                done.countDown();
+            }
+        };
+    }
+
+    public void testUserTasksRunBeforeBackgroundTasks() throws Exception {
+        // Arrange
+        CountDownLatch done = new CountDownLatch(3);
+        this.scheduler.schedule(1, RefreshScheduler.PRIORITY_BACKGROUND, this.recordTask("alarm1", done));
+        this.scheduler.schedule(2, RefreshScheduler.PRIORITY_BACKGROUND, this.recordTask("alarm2", done));
+        this.scheduler.schedule(3, RefreshScheduler.PRIORITY_USER, this.recordTask("tap", done));
+
+        // Act
+        this.releaseWorker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        // Assert
+        assertEquals("tap", this.runOrder.get(0));
+        assertEquals("alarm1", this.runOrder.get(1));
+        assertEquals("alarm2", this.runOrder.get(2));
+    }
+
+    public void testWaitingTaskWithSameKeyIsReplaced() throws Exception {
+        // Arrange
+        CountDownLatch done = new CountDownLatch(2);
+        boolean first = this.scheduler.schedule(1, RefreshScheduler.PRIORITY_BACKGROUND,
+                this.recordTask("old", done));
+        this.scheduler.schedule(2, RefreshScheduler.PRIORITY_BACKGROUND, this.recordTask("other", done));
+        boolean second = this.scheduler.schedule(1, RefreshScheduler.PRIORITY_USER,
+                this.recordTask("new", done));
+
+        // Act
+        RefreshScheduler.Stats queued = this.scheduler.getStats();
+        this.releaseWorker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        // Assert
+        assertTrue(first);
+        assertFalse(second);
+        assertEquals(2, queued.getQueueDepth());
+        assertEquals(1, queued.getCoalescedCount());
+        assertEquals(2, this.runOrder.size());
+        assertEquals("new", this.runOrder.get(0));
+        assertEquals("other", this.runOrder.get(1));
+    }
+
+    public void testStatsRecordCompletedAndFailedTasks() throws Exception {
+        // Arrange
+        CountDownLatch done = new CountDownLatch(1);
+        this.scheduler.schedule(1, RefreshScheduler.PRIORITY_USER, new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("fetch failed");
+            }
+        });
+        this.scheduler.schedule(2, RefreshScheduler.PRIORITY_BACKGROUND, this.recordTask("ok", done));
+
+        // Act
+        this.releaseWorker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        RefreshScheduler.Stats stats = this.waitForRuns(3);
+
+        // Assert
+        assertEquals(2, stats.getCompletedCount());
+        assertEquals(1, stats.getFailedCount());
+        assertEquals(0, stats.getQueueDepth());
+        assertEquals(2, stats.getMaxQueueDepth());
+        assertTrue(stats.getMaxLatencyMs() >= stats.getAverageLatencyMs());
+    }
+
+    private RefreshScheduler.Stats waitForRuns(int runs) throws InterruptedException {
+        RefreshScheduler.Stats stats = this.scheduler.getStats();
+        for (int i = 0; i < 100 && stats.getCompletedCount() + stats.getFailedCount() < runs; i++) {
+            Thread.sleep(10);
+            stats = this.scheduler.getStats();
+        }
+        return stats;
+    }
+}
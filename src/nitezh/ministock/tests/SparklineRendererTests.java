@@ -0,0 +1,62 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import nitezh.ministock.activities.widget.SparklineRenderer;
+
+
+public class SparklineRendererTests extends TestCase {
+
+    public void testPointsSpanTheWidthAndHeight() {
+        // Arrange
+        double[] prices = {10.0, 12.0, 11.0};
+
+        // Act
+        float[] points = SparklineRenderer.getPoints(prices, 101, 22, 2f);
+
+        // Assert
+        assertEquals(6, points.length);
+        assertEquals(0f, points[0]);
+        assertEquals(50f, points[2]);
+        assertEquals(100f, points[4]);
+        assertEquals(21f, points[1]);
+        assertEquals(1f, points[3]);
+        assertEquals(11f, points[5]);
+    }
+
+    public void testFlatSeriesIsDrawnAcrossTheMiddle() {
+        // Arrange
+        double[] prices = {5.0, 5.0};
+
+        // Act
+        float[] points = SparklineRenderer.getPoints(prices, 10, 20, 2f);
+
+        // Assert
+        assertEquals(10f, points[1]);
+        assertEquals(10f, points[3]);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import nitezh.ministock.domain.StockQuote;
+
+
+public class StockQuoteTests extends TestCase {
+
+    public void testKeepsNumericValues() {
+        // Act
+        StockQuote quote = new StockQuote(
+                "AAPL", "128.6512", "-0.70", "-0.54%", "NMS", "38205012", "Apple Inc.");
+
+        // Assert
+        assertTrue(quote.hasPrice());
+        assertEquals(128.6512, quote.getPriceValue(), 1e-9);
+        assertEquals(-0.70, quote.getChangeValue(), 1e-9);
+        assertEquals(-0.54, quote.getPercentValue(), 1e-9);
+        assertEquals(38205012L, quote.getVolumeValue());
+    }
+
+    public void testFormatsForDisplay() {
+        // Act
+        StockQuote quote = new StockQuote(
+                "AAPL", "128.6512", "-0.70", "-0.54%", "NMS", "38205012", "Apple Inc.");
+
+        // Assert
+        assertEquals("128.65", quote.getPrice());
+        assertEquals("-0.70", quote.getChange());
+        assertEquals("-0.5%", quote.getPercent());
+        assertEquals("38205012", quote.getVolume());
+    }
+
+    public void testZeroPriceMeansNoData() {
+        // Act
+        StockQuote quote = new StockQuote("XYZ", "0.00", "N/A", "N/A", "NYQ", "N/A", "XYZ Corp");
+
+        // Assert
+        assertFalse(quote.hasPrice());
+        assertNull(quote.getPrice());
+        assertNull(quote.getChange());
+        assertEquals(StockQuote.NO_VOLUME, quote.getVolumeValue());
+    }
+
+    public void testFxChangeFromPreviousPrice() {
+        // Act
+        StockQuote quote = new StockQuote(
+                "EURUSD=X", "1.1200", "N/A", "N/A", "CCY", "0", "EUR to USD", "1.1000");
+
+        // Assert
+        assertEquals(0.02, quote.getChangeValue(), 1e-9);
+        assertEquals(100 * 0.02 / 1.12, quote.getPercentValue(), 1e-9);
+        assertEquals("1.8%", quote.getPercent());
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.domain.TickHistory;
+import nitezh.ministock.domain.TickSeries;
+
+
+public class TickHistoryTests extends TestCase {
+
+    public void testSeriesOverwritesOldestTicksWhenFull() {
+        // Arrange
+        TickSeries series = new TickSeries(3);
+
+        // Act
+        for (int i = 1; i <= 5; i++) {
+            series.append(i * 1000L, i);
+        }
+
+        // Assert
+        assertEquals(3, series.size());
+        assertTrue(Arrays.equals(new long[]{3000L, 4000L, 5000L}, series.getTimes()));
+        assertEquals(3.0, series.getPrice(0));
+        assertEquals(5.0, series.getPrice(2));
+        assertEquals(1.0, series.getChangeSince(4000L));
+    }
+
+    public void testSeriesIgnoresRepeatedTimesAndMissingPrices() {
+        // Arrange
+        TickSeries series = new TickSeries(4);
+        series.append(1000L, 1.0);
+
+        // Act
+        series.append(1000L, 2.0);
+        series.append(2000L, Double.NaN);
+
+        // Assert
+        assertEquals(1, series.size());
+        assertEquals(1, series.getVersion());
+        assertEquals(1.0, series.getPrice(0));
+    }
+
+    public void testHistoryKeepsOnlyTheMostRecentlyUpdatedSymbols() {
+        // Arrange
+        TickHistory history = new TickHistory(4, 2);
+
+        // Act
+        history.append(quotes("AAPL", "1.00"), 1000L);
+        history.append(quotes("GOOG", "2.00"), 2000L);
+        history.append(quotes("AAPL", "1.50"), 3000L);
+        history.append(quotes("MSFT", "3.00"), 4000L);
+
+        // Assert
+        assertEquals(2, history.size());
+        assertNull(history.get("GOOG"));
+        assertEquals(2, history.get("AAPL").size());
+        assertEquals(1, history.get("MSFT").size());
+    }
+
+    public void testHistorySurvivesWriteAndRead() throws IOException {
+        // Arrange
+        File file = File.createTempFile("ticks", ".history");
+        TickHistory history = new TickHistory(8, 10);
+        history.append(quotes("AAPL", "1.00"), 1000L);
+        history.append(quotes("AAPL", "1.25"), 2000L);
+        history.append(quotes("GOOG", "532.11"), 2000L);
+
+        // Act
+        boolean isWritten = history.write(file);
+        TickHistory read = TickHistory.read(file, 8, 10);
+
+        // Assert
+        assertTrue(isWritten);
+        assertEquals(2, read.size());
+        assertTrue(Arrays.equals(new long[]{1000L, 2000L}, read.get("AAPL").getTimes()));
+        assertTrue(Arrays.equals(new double[]{1.0, 1.25}, read.get("AAPL").getPrices()));
+        assertEquals(532.11, read.get("GOOG").getPrice(0));
+        file.delete();
+    }
+
+    public void testCorruptFileReadsAsEmptyHistory() throws IOException {
+        // Arrange
+        File file = File.createTempFile("ticks", ".history");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[]{1, 2, 3});
+        out.close();
+
+        // Act
+        TickHistory read = TickHistory.read(file, 8, 10);
+
+        // Assert
+        assertEquals(0, read.size());
+        file.delete();
+    }
+
+    private static HashMap<String, StockQuote> quotes(String symbol, String price) {
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        quotes.put(symbol, new StockQuote(symbol, price, "0.00", "0.00%", "NMS", "100", symbol));
+        return quotes;
+    }
+}
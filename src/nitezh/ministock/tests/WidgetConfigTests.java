@@ -0,0 +1,97 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.List;
+
+import nitezh.ministock.PreferenceStorage;
+import nitezh.ministock.domain.WidgetConfig;
+import nitezh.ministock.tests.mocks.MockSharedPreferences;
+
+
+public class WidgetConfigTests extends TestCase {
+
+    private PreferenceStorage storage;
+
+    public void setUp() {
+        this.storage = new PreferenceStorage(new MockSharedPreferences());
+    }
+
+    public void testSymbolsAreLimitedToTheWidgetSize() {
+        // Arrange
+        for (int i = 1; i <= 6; i++) {
+            this.storage.putString("Stock" + i, "S" + i);
+        }
+        this.storage.putInt("widgetSize", 0);
+        this.storage.apply();
+
+        // Act
+        WidgetConfig config = new WidgetConfig(this.storage, this.storage.getVersion());
+
+        // Assert
+        assertEquals(Arrays.asList("S1", "S2", "S3", "S4"), config.getSymbols(4));
+        assertSame(config.getSymbols(4), config.getSymbols(4));
+        assertEquals(6, config.getSymbols(10).indexOf(""));
+        assertEquals(16, config.getStocks().size());
+    }
+
+    public void testEmptyWidgetShowsTheDow() {
+        // Act
+        WidgetConfig config = new WidgetConfig(this.storage, this.storage.getVersion());
+        List<String> symbols = config.getSymbols(4);
+
+        // Assert
+        assertEquals(5, symbols.size());
+        assertEquals("^DJI", symbols.get(4));
+    }
+
+    public void testSymbolCountDependsOnLayout() {
+        // Assert
+        assertEquals(4, WidgetConfig.getSymbolCount(1, false));
+        assertEquals(10, WidgetConfig.getSymbolCount(3, false));
+        assertEquals(8, WidgetConfig.getSymbolCount(1, true));
+        assertEquals(16, WidgetConfig.getSymbolCount(3, true));
+    }
+
+    public void testViewFlagsAreReadOnce() {
+        // Arrange
+        this.storage.putBoolean("show_percent_change", true);
+        this.storage.putBoolean("show_profit_aer", true);
+        this.storage.apply();
+        WidgetConfig config = new WidgetConfig(this.storage, this.storage.getVersion());
+
+        // Act
+        this.storage.putBoolean("show_percent_change", false).apply();
+
+        // Assert
+        assertTrue(config.hasDailyPercentView());
+        assertTrue(config.hasTotalPlPercentAerView());
+        assertFalse(config.hasDailyChangeView());
+        assertTrue(config.getVersion() != this.storage.getVersion());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import nitezh.ministock.domain.WidgetRegistry;
+
+
+public class WidgetRegistryTests extends TestCase {
+
+    private WidgetRegistry registry;
+
+    public void setUp() {
+        this.registry = new WidgetRegistry(Arrays.asList(3, 1, 2));
+        this.registry.setSymbols(1, Arrays.asList("AAPL", "^DJI", ""));
+        this.registry.setSymbols(2, Arrays.asList("AAPL", "GOOG"));
+        this.registry.setSymbols(3, Collections.singletonList("MSFT"));
+    }
+
+    public void testIdsKeepTheirOrder() {
+        // Act
+        boolean isAdded = this.registry.add(7);
+        boolean isAddedAgain = this.registry.add(1);
+
+        // Assert
+        assertTrue(isAdded);
+        assertFalse(isAddedAgain);
+        assertEquals(Arrays.asList(3, 1, 2, 7), this.registry.getIds());
+        assertTrue(this.registry.contains(7));
+    }
+
+    public void testFindsTheWidgetsShowingChangedSymbols() {
+        // Act
+        HashSet<Integer> ids = new HashSet<>(this.registry.getWidgetIds(Arrays.asList("AAPL", "TSLA")));
+
+        // Assert
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), ids);
+        assertEquals(new HashSet<>(Arrays.asList("AAPL", "^DJI", "GOOG", "MSFT")),
+                this.registry.getSymbols());
+    }
+
+    public void testChangingSymbolsUpdatesTheIndex() {
+        // Act
+        this.registry.setSymbols(2, Collections.singletonList("MSFT"));
+
+        // Assert
+        assertEquals(Collections.singleton(1), this.registry.getWidgetIds(Collections.singleton("AAPL")));
+        assertTrue(this.registry.getWidgetIds(Collections.singleton("GOOG")).isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList(3, 2)),
+                this.registry.getWidgetIds(Collections.singleton("MSFT")));
+        assertFalse(this.registry.getSymbols().contains("GOOG"));
+    }
+
+    public void testRemovedWidgetsLeaveTheIndex() {
+        // Act
+        boolean isRemoved = this.registry.remove(1);
+        boolean isRemovedAgain = this.registry.remove(1);
+        this.registry.setSymbols(1, Collections.singletonList("TSLA"));
+
+        // Assert
+        assertTrue(isRemoved);
+        assertFalse(isRemovedAgain);
+        assertFalse(this.registry.getSymbols().contains("^DJI"));
+        assertFalse(this.registry.getSymbols().contains("TSLA"));
+        assertEquals(Collections.singleton(2), this.registry.getWidgetIds(Collections.singleton("AAPL")));
+    }
+
+    public void testEmptyOnceAllWidgetsAreRemoved() {
+        // Act
+        for (int id : this.registry.getIds()) {
+            this.registry.remove(id);
+        }
+
+        // Assert
+        assertTrue(this.registry.isEmpty());
+        assertTrue(this.registry.getSymbols().isEmpty());
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import android.graphics.Bitmap;
+
+import junit.framework.TestCase;
+
+import nitezh.ministock.activities.widget.WidgetRenderState;
+
+
+public class WidgetRenderStateTests extends TestCase {
+
+    private static final int ROWS = 16;
+    private static final int COLUMNS = 6;
+    private static final int LAYOUT_ID = 1;
+    private static final int BACKGROUND_ID = 2;
+    private static final int FOOTER_ID = 3;
+    private static final int TIME_ID = 4;
+    private static final int LABEL_ID = 5;
+    private static final int VISIBLE = 0;
+    private static final int INVISIBLE = 4;
+
+    private static int textId(int row, int column) {
+        return 1000 + row * 10 + column;
+    }
+
+    private static int panelId(int row) {
+        return 2000 + row;
+    }
+
+    /**
+     * Builds a frame the way WidgetView does for a 16 row visual 2x4 widget,
+     * returning how many RemoteViews actions the same calls used to add
+     */
+    private static int renderVisualFrame(WidgetRenderState state, String[] prices) {
+        int actions = 0;
+        state.setImageResource(BACKGROUND_ID, 7);
+        actions++;
+
+        // Hide the unused panels
+        for (int i = 0; i <= ROWS; i++) {
+            state.setVisibility(panelId(i), INVISIBLE);
+            actions++;
+            for (int j = 1; j <= ROWS; j++) {
+                state.setVisibility(panelId(j), VISIBLE);
+                actions++;
+            }
+        }
+
+        // Clear the rows
+        for (int row = 1; row <= ROWS; row++) {
+            for (int column = 1; column < COLUMNS; column++) {
+                state.setText(textId(row, column), "");
+                actions++;
+            }
+        }
+
+        for (int row = 1; row <= ROWS; row++) {
+            String price = prices[row - 1];
+            boolean gain = !price.startsWith("-");
+            for (int column = 1; column <= COLUMNS; column++) {
+                state.setText(textId(row, column), column == 2 ? price : "SYM" + row + ":" + column);
+                state.setTextColor(textId(row, column), column == 5 && gain ? 0xFF00FF00 : 0xFFFFFFFF);
+                actions += 2;
+            }
+            state.setBackgroundColor(panelId(row), gain ? 0x8000FF00 : 0x80FF0000);
+            actions++;
+        }
+
+        state.setVisibility(FOOTER_ID, VISIBLE);
+        state.setText(TIME_ID, "16:00");
+        state.setTextColor(TIME_ID, 0xFF555555);
+        state.setText(LABEL_ID, "D%");
+        state.setTextColor(LABEL_ID, 0xFF555555);
+        return actions + 5;
+    }
+
+    private static String[] prices() {
+        String[] prices = new String[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            prices[i] = (i + 1) + ".00";
+        }
+        return prices;
+    }
+
+    public void testFullRenderDropsRedundantActions() {
+        // Arrange
+        WidgetRenderState state = new WidgetRenderState(LAYOUT_ID, "visual");
+        CountingRenderer renderer = new CountingRenderer();
+
+        // Act
+        int legacyActions = renderVisualFrame(state, prices());
+        int actions = state.render(renderer);
+
+        // Assert
+        assertEquals(583, legacyActions);
+        assertEquals(231, actions);
+        assertEquals(actions, renderer.count);
+    }
+
+    public void testOneChangedRowOnlyRendersItsCells() {
+        // Arrange
+        WidgetRenderState previous = new WidgetRenderState(LAYOUT_ID, "visual");
+        renderVisualFrame(previous, prices());
+        WidgetRenderState current = new WidgetRenderState(LAYOUT_ID, "visual");
+        String[] prices = prices();
+        prices[4] = "-5.00";
+        renderVisualFrame(current, prices);
+        CountingRenderer renderer = new CountingRenderer();
+
+        // Act
+        boolean partial = current.canUpdatePartially(previous);
+        int actions = current.renderChanges(previous, renderer);
+
+        // Assert
+        assertTrue(partial);
+        assertEquals(3, actions);
+        assertEquals("-5.00", renderer.lastText);
+    }
+
+    public void testUnchangedFrameRendersNothing() {
+        // Arrange
+        WidgetRenderState previous = new WidgetRenderState(LAYOUT_ID, "visual");
+        renderVisualFrame(previous, prices());
+        WidgetRenderState current = new WidgetRenderState(LAYOUT_ID, "visual");
+        renderVisualFrame(current, prices());
+
+        // Act
+        int actions = current.renderChanges(previous, new CountingRenderer());
+
+        // Assert
+        assertEquals(0, actions);
+    }
+
+    public void testStyleOrLayoutChangeNeedsFullUpdate() {
+        // Arrange
+        WidgetRenderState previous = new WidgetRenderState(LAYOUT_ID, "visual");
+        renderVisualFrame(previous, prices());
+        WidgetRenderState restyled = new WidgetRenderState(LAYOUT_ID, "visual:bold");
+        renderVisualFrame(restyled, prices());
+        WidgetRenderState smaller = new WidgetRenderState(LAYOUT_ID, "visual");
+        smaller.setText(textId(1, 1), "SYM1:1");
+
+        // Act & Assert
+        assertFalse(restyled.canUpdatePartially(previous));
+        assertFalse(smaller.canUpdatePartially(previous));
+        assertFalse(previous.canUpdatePartially(null));
+    }
+
+    private static class CountingRenderer implements WidgetRenderState.Renderer {
+        int count = 0;
+        String lastText;
+
+        @Override
+        public void setText(int viewId, String text) {
+            this.count++;
+            this.lastText = text;
+        }
+
+        @Override
+        public void setTextColor(int viewId, int color) {
+            this.count++;
+        }
+
+        @Override
+        public void setBackgroundColor(int viewId, int color) {
+            this.count++;
+        }
+
+        @Override
+        public void setVisibility(int viewId, int visibility) {
+            this.count++;
+        }
+
+        @Override
+        public void setImageResource(int viewId, int resourceId) {
+            this.count++;
+        }
+
+        @Override
+        public void setImageBitmap(int viewId, Bitmap bitmap) {
+            this.count++;
+        }
+    }
+}
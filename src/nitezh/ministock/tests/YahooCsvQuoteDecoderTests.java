@@ -0,0 +1,92 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import nitezh.ministock.dataaccess.YahooCsvQuoteDecoder;
+import nitezh.ministock.domain.StockQuote;
+
+
+public class YahooCsvQuoteDecoderTests extends TestCase {
+
+    private static final String CSV =
+            "\"AAPL\",\"6/5/2015\",\"4:00pm\",128.65,-0.70,\"-0.54%\",\"NMS\",38205012,\"Apple Inc.\"\r\n" +
+            "\"BRK-A\",\"6/5/2015\",\"4:00pm\",212000.00,-1010.00,\"-0.47%\",\"NYQ\",231,\"Berkshire Hathaway, Inc.\"\r\n" +
+            "\"MISSING\",\"N/A\"\r\n" +
+            "\"XYZ\",\"6/5/2015\",\"4:00pm\",1.00,0.00,\"0.00%\",\"NYQ\",1,\"Not requested\"\r\n" +
+            "\r\n" +
+            "\"QUOT\",\"6/5/2015\",\"4:00pm\",2.00,0.10,\"5.00%\",\"NYQ\",5,\"The \"\"Quoted\"\" Co\"\n";
+
+    public void testNextRecordSplitsQuotedFields() throws IOException {
+        // Arrange
+        YahooCsvQuoteDecoder decoder = new YahooCsvQuoteDecoder(
+                new ByteArrayInputStream(CSV.getBytes("UTF-8")));
+
+        // Act
+        decoder.nextRecord();
+        int count = decoder.nextRecord();
+
+        // Assert
+        assertEquals(YahooCsvQuoteDecoder.COUNT_FIELDS, count);
+        assertEquals("BRK-A", decoder.getField(YahooCsvQuoteDecoder.FIELD_SYMBOL));
+        assertEquals("212000.00", decoder.getField(YahooCsvQuoteDecoder.FIELD_PRICE));
+        assertEquals("-0.47%", decoder.getField(YahooCsvQuoteDecoder.FIELD_PERCENT));
+        assertEquals("Berkshire Hathaway, Inc.", decoder.getField(YahooCsvQuoteDecoder.FIELD_NAME));
+    }
+
+    public void testDecodeQuotesSkipsInvalidAndUnrequestedLines() {
+        // Arrange
+        List<String> symbols = Arrays.asList("AAPL", "BRK-A", "MISSING", "QUOT");
+
+        // Act
+        HashMap<String, StockQuote> quotes = YahooCsvQuoteDecoder.decodeQuotes(CSV, symbols, null);
+
+        // Assert
+        assertEquals(3, quotes.size());
+        assertEquals("Apple Inc.", quotes.get("AAPL").getName());
+        assertEquals("NMS", quotes.get("AAPL").getExchange());
+        assertEquals("Berkshire Hathaway, Inc.", quotes.get("BRK-A").getName());
+        assertEquals("The \"Quoted\" Co", quotes.get("QUOT").getName());
+    }
+
+    public void testNextRecordReturnsMinusOneAtEnd() throws IOException {
+        // Arrange
+        YahooCsvQuoteDecoder decoder = new YahooCsvQuoteDecoder(
+                new ByteArrayInputStream("\n\n".getBytes("UTF-8")));
+
+        // Act
+        int count = decoder.nextRecord();
+
+        // Assert
+        assertEquals(-1, count);
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests.mocks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Minimal local HTTP/1.1 server serving one body, for testing the fetcher.
+ * <p/>
+ * Supports keep-alive, gzip when asked for it and If-None-Match against the
+ * ETag of the body.
+ */
+public class MockHttpServer {
+
+    private final ServerSocket serverSocket;
+    private final List<Socket> sockets = new ArrayList<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger notModifiedCount = new AtomicInteger();
+    private volatile String body = "";
+    private volatile String eTag = null;
+    private volatile HashMap<String, String> lastHeaders = new HashMap<>();
+
+    public MockHttpServer() throws IOException {
+        this.serverSocket = new ServerSocket(0);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, "MockHttpServer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public String getUrl(String path) {
+        return "http://127.0.0.1:" + this.serverSocket.getLocalPort() + path;
+    }
+
+    public void setBody(String body, String eTag) {
+        this.body = body;
+        this.eTag = eTag;
+    }
+
+    public int getConnectionCount() {
+        return this.connectionCount.get();
+    }
+
+    public int getRequestCount() {
+        return this.requestCount.get();
+    }
+
+    public int getNotModifiedCount() {
+        return this.notModifiedCount.get();
+    }
+
+    public String getLastHeader(String name) {
+        return this.lastHeaders.get(name.toLowerCase(Locale.US));
+    }
+
+    public void close() {
+        try {
+            this.serverSocket.close();
+        } catch (IOException ignored) {
+        }
+
+        // Close kept alive connections too so clients cannot reuse them
+        synchronized (this.sockets) {
+            for (Socket socket : this.sockets) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+            this.sockets.clear();
+        }
+    }
+
+    private void acceptConnections() {
+        while (!this.serverSocket.isClosed()) {
+            try {
+                final Socket socket = this.serverSocket.accept();
+                this.connectionCount.incrementAndGet();
+                synchronized (this.sockets) {
+                    this.sockets.add(socket);
+                }
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        serveConnection(socket);
+                    }
+                });
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void serveConnection(Socket socket) {
+        try {
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            HashMap<String, String> headers;
+            while ((headers = readHeaders(in)) != null) {
+                this.requestCount.incrementAndGet();
+                this.lastHeaders = headers;
+                this.respond(headers, out);
+            }
+        } catch (IOException ignored) {
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void respond(HashMap<String, String> headers, OutputStream out) throws IOException {
+        String currentETag = this.eTag;
+        if (currentETag != null && currentETag.equals(headers.get("if-none-match"))) {
+            this.notModifiedCount.incrementAndGet();
+            out.write(("HTTP/1.1 304 Not Modified\r\nETag: " + currentETag
+                    + "\r\nContent-Length: 0\r\n\r\n").getBytes("UTF-8"));
+            out.flush();
+            return;
+        }
+
+        byte[] content = this.body.getBytes("UTF-8");
+        StringBuilder response = new StringBuilder("HTTP/1.1 200 OK\r\n");
+        response.append("Content-Type: text/plain; charset=utf-8\r\n");
+        if (currentETag != null) {
+            response.append("ETag: ").append(currentETag).append("\r\n");
+        }
+        String acceptEncoding = headers.get("accept-encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+            GZIPOutputStream gzip = new GZIPOutputStream(zipped);
+            gzip.write(content);
+            gzip.close();
+            content = zipped.toByteArray();
+            response.append("Content-Encoding: gzip\r\n");
+        }
+        response.append("Content-Length: ").append(content.length).append("\r\n\r\n");
+        out.write(response.toString().getBytes("UTF-8"));
+        out.write(content);
+        out.flush();
+    }
+
+    private static HashMap<String, String> readHeaders(InputStream in) throws IOException {
+        HashMap<String, String> headers = new HashMap<>();
+        String line = readLine(in);
+        if (line == null || line.isEmpty()) {
+            return null;
+        }
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.US),
+                        line.substring(colon + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0) {
+            if (c == '\n') {
+                return line.toString();
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.length() > 0 ? line.toString() : null;
+    }
+}
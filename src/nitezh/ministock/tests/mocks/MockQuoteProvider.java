@@ -0,0 +1,106 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests.mocks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import nitezh.ministock.dataaccess.QuoteProvider;
+import nitezh.ministock.domain.StockQuote;
+import nitezh.ministock.utils.Cache;
+
+
+public class MockQuoteProvider implements QuoteProvider {
+
+    private final String prefix;
+    private final List<List<String>> requests = new ArrayList<>();
+    private int maxSymbolsPerRequest = 100;
+    private int maxUrlLength = 2000;
+    private String failingSymbol;
+
+    public MockQuoteProvider(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public void setLimits(int maxSymbolsPerRequest, int maxUrlLength) {
+        this.maxSymbolsPerRequest = maxSymbolsPerRequest;
+        this.maxUrlLength = maxUrlLength;
+    }
+
+    public void setFailingSymbol(String failingSymbol) {
+        this.failingSymbol = failingSymbol;
+    }
+
+    public List<List<String>> getRequests() {
+        return this.requests;
+    }
+
+    @Override
+    public synchronized HashMap<String, StockQuote> getQuotes(Cache cache, List<String> symbols) {
+        this.requests.add(new ArrayList<>(symbols));
+        if (symbols.contains(this.failingSymbol)) {
+            return null;
+        }
+
+        HashMap<String, StockQuote> quotes = new HashMap<>();
+        for (String symbol : symbols) {
+            quotes.put(symbol, new StockQuote(symbol, "1.00", "0.10", "10.0", "MOCK", "100", symbol));
+        }
+        return quotes;
+    }
+
+    @Override
+    public String toProviderSymbol(String symbol) {
+        return this.prefix + symbol;
+    }
+
+    @Override
+    public String fromProviderSymbol(String providerSymbol) {
+        return providerSymbol.substring(this.prefix.length());
+    }
+
+    @Override
+    public int getMaxSymbolsPerRequest() {
+        return this.maxSymbolsPerRequest;
+    }
+
+    @Override
+    public int getMaxUrlLength() {
+        return this.maxUrlLength;
+    }
+
+    @Override
+    public String buildRequestUrl(List<String> symbols) {
+        StringBuilder url = new StringBuilder("http://mock/quotes?s=");
+        for (int i = 0; i < symbols.size(); i++) {
+            if (i > 0) {
+                url.append(",");
+            }
+            url.append(symbols.get(i));
+        }
+        return url.toString();
+    }
+}
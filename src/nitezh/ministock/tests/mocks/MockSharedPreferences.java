@@ -0,0 +1,195 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests.mocks;
+
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * In memory preferences that count how many times edits are committed, and
+ * notify their listeners of each changed key.
+ */
+public class MockSharedPreferences implements SharedPreferences {
+
+    private final ConcurrentHashMap<String, Object> values = new ConcurrentHashMap<>();
+    private final List<OnSharedPreferenceChangeListener> listeners = new ArrayList<>();
+    private volatile int commitCount = 0;
+
+    public int getCommitCount() {
+        return this.commitCount;
+    }
+
+    @Override
+    public Map<String, ?> getAll() {
+        return new HashMap<>(this.values);
+    }
+
+    @Override
+    public String getString(String key, String defValue) {
+        Object value = this.values.get(key);
+        return value != null ? (String) value : defValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Set<String> getStringSet(String key, Set<String> defValues) {
+        Object value = this.values.get(key);
+        return value != null ? (Set<String>) value : defValues;
+    }
+
+    @Override
+    public int getInt(String key, int defValue) {
+        Object value = this.values.get(key);
+        return value != null ? (Integer) value : defValue;
+    }
+
+    @Override
+    public long getLong(String key, long defValue) {
+        Object value = this.values.get(key);
+        return value != null ? (Long) value : defValue;
+    }
+
+    @Override
+    public float getFloat(String key, float defValue) {
+        Object value = this.values.get(key);
+        return value != null ? (Float) value : defValue;
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        Object value = this.values.get(key);
+        return value != null ? (Boolean) value : defValue;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return this.values.containsKey(key);
+    }
+
+    @Override
+    public Editor edit() {
+        return new MockEditor();
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(
+            OnSharedPreferenceChangeListener listener) {
+        this.listeners.add(listener);
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(
+            OnSharedPreferenceChangeListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    private class MockEditor implements Editor {
+
+        private final HashMap<String, Object> changes = new HashMap<>();
+
+        private Editor put(String key, Object value) {
+            this.changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putString(String key, String value) {
+            return this.put(key, value);
+        }
+
+        @Override
+        public Editor putStringSet(String key, Set<String> values) {
+            return this.put(key, values);
+        }
+
+        @Override
+        public Editor putInt(String key, int value) {
+            return this.put(key, value);
+        }
+
+        @Override
+        public Editor putLong(String key, long value) {
+            return this.put(key, value);
+        }
+
+        @Override
+        public Editor putFloat(String key, float value) {
+            return this.put(key, value);
+        }
+
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            return this.put(key, value);
+        }
+
+        @Override
+        public Editor remove(String key) {
+            return this.put(key, null);
+        }
+
+        @Override
+        public Editor clear() {
+            values.clear();
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            synchronized (MockSharedPreferences.this) {
+                return this.commitChanges();
+            }
+        }
+
+        private boolean commitChanges() {
+            for (Map.Entry<String, Object> change : this.changes.entrySet()) {
+                if (change.getValue() == null) {
+                    values.remove(change.getKey());
+                } else {
+                    values.put(change.getKey(), change.getValue());
+                }
+            }
+            commitCount++;
+            for (String key : this.changes.keySet()) {
+                for (OnSharedPreferenceChangeListener listener : listeners) {
+                    listener.onSharedPreferenceChanged(MockSharedPreferences.this, key);
+                }
+            }
+            this.changes.clear();
+            return true;
+        }
+
+        @Override
+        public void apply() {
+            this.commit();
+        }
+    }
+}
@@ -79,4 +79,12 @@ public class MockStorage implements Storage {
     @Override
     public void apply() {
     }
+
+    @Override
+    public void beginBatch() {
+    }
+
+    @Override
+    public void endBatch() {
+    }
 }
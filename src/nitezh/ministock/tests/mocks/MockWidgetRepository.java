@@ -25,6 +25,7 @@
 package nitezh.ministock.tests.mocks;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -55,6 +56,11 @@ public class MockWidgetRepository implements WidgetRepository {
         return new HashSet<>();
     }
 
+    @Override
+    public Set<Integer> getWidgetIds(Collection<String> symbols) {
+        return new HashSet<>();
+    }
+
     public void setWidgetsStockSymbols(HashSet<String> widgetsStockSymbols) {
         this.widgetsStockSymbols = widgetsStockSymbols;
     }
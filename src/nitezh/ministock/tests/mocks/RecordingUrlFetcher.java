@@ -0,0 +1,89 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests.mocks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import nitezh.ministock.utils.UrlFetcher;
+
+
+/**
+ * Passes fetches through to another fetcher and saves every body it returns
+ * to a directory, for ReplayUrlFetcher to serve later.
+ * <p/>
+ * Each file holds the URL on its first line and the body after it.
+ */
+public class RecordingUrlFetcher implements UrlFetcher {
+
+    private final UrlFetcher fetcher;
+    private final File directory;
+
+    public RecordingUrlFetcher(UrlFetcher fetcher, File directory) {
+        this.fetcher = fetcher;
+        this.directory = directory;
+    }
+
+    public static String getFileName(String url) {
+        try {
+            StringBuilder name = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(url.getBytes("UTF-8"))) {
+                name.append(String.format("%02x", b));
+            }
+            return name.append(".body").toString();
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return Integer.toHexString(url.hashCode()) + ".body";
+        }
+    }
+
+    @Override
+    public String fetch(String url) {
+        String body = this.fetcher.fetch(url);
+        if (body != null) {
+            this.save(url, body);
+        }
+        return body;
+    }
+
+    private void save(String url, String body) {
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(new File(this.directory, getFileName(url)));
+            out.write((url + "\n" + body).getBytes("UTF-8"));
+        } catch (IOException ignored) {
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}
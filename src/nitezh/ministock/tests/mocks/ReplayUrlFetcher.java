@@ -0,0 +1,258 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.tests.mocks;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nitezh.ministock.utils.UrlFetcher;
+
+
+/**
+ * Serves captured provider responses instead of going to the network.
+ * <p/>
+ * URLs recorded by RecordingUrlFetcher are served as recorded. Yahoo and
+ * Google quote requests are answered from captured quotes of each symbol,
+ * so any set of symbols can be requested; a symbol that was not captured
+ * gets a copy of the first captured quote. Latency and failures are drawn
+ * from a seeded random for each request of a URL, so a run is repeatable
+ * whatever order its threads fetch in.
+ */
+public class ReplayUrlFetcher implements UrlFetcher {
+
+    public static final String YAHOO_QUOTES_URL = "http://download.finance.yahoo.com/d/quotes.csv";
+    public static final String GOOGLE_QUOTES_URL = "http://finance.google.com/finance/info";
+    public static final String FX_CHANGES_URL = "http://ministocks-app-hrd.appspot.com/getcurrencydata";
+    private static final String FIXTURES = "/nitezh/ministock/tests/fixtures/";
+
+    private final long seed;
+    private final HashMap<String, String> recordings = new HashMap<>();
+    private final LinkedHashMap<String, String> yahooQuotes = new LinkedHashMap<>();
+    private final LinkedHashMap<String, JSONObject> googleQuotes = new LinkedHashMap<>();
+    private final HashMap<String, Integer> attempts = new HashMap<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger errorCount = new AtomicInteger();
+    private long minLatencyMs = 0;
+    private long maxLatencyMs = 0;
+    private double errorRate = 0;
+
+    public ReplayUrlFetcher(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return a fetcher serving the Yahoo, Google and FX responses captured
+     * in the test fixtures
+     */
+    public static ReplayUrlFetcher fromFixtures(long seed) throws IOException, JSONException {
+        ReplayUrlFetcher fetcher = new ReplayUrlFetcher(seed);
+        fetcher.setYahooQuotes(readResource(FIXTURES + "yahoo_quotes.csv"));
+        fetcher.setGoogleQuotes(readResource(FIXTURES + "google_quotes.json"));
+        fetcher.addRecording(FX_CHANGES_URL, readResource(FIXTURES + "fx_changes.json"));
+        return fetcher;
+    }
+
+    public synchronized void addRecording(String url, String body) {
+        this.recordings.put(url, body);
+    }
+
+    /**
+     * Adds every recording that RecordingUrlFetcher saved to the directory
+     */
+    public void loadRecordings(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String recording = read(new FileInputStream(file));
+            int separator = recording.indexOf('\n');
+            if (separator > 0) {
+                this.addRecording(recording.substring(0, separator),
+                        recording.substring(separator + 1));
+            }
+        }
+    }
+
+    public synchronized void setYahooQuotes(String csv) {
+        this.yahooQuotes.clear();
+        for (String line : csv.split("\r?\n")) {
+            if (line.startsWith("\"")) {
+                this.yahooQuotes.put(line.substring(1, line.indexOf('"', 1)), line);
+            }
+        }
+    }
+
+    public synchronized void setGoogleQuotes(String json) throws JSONException {
+        this.googleQuotes.clear();
+        JSONArray quotes = new JSONArray(json.replace("//", ""));
+        for (int i = 0; i < quotes.length(); i++) {
+            JSONObject quote = quotes.getJSONObject(i);
+            this.googleQuotes.put(quote.getString("t"), quote);
+        }
+    }
+
+    /**
+     * Delays every response by a time between the two, inclusive
+     */
+    public void setLatency(long minMs, long maxMs) {
+        this.minLatencyMs = minMs;
+        this.maxLatencyMs = Math.max(minMs, maxMs);
+    }
+
+    /**
+     * @param errorRate the fraction of requests that fail as if the network had
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public int getRequestCount() {
+        return this.requestCount.get();
+    }
+
+    public int getErrorCount() {
+        return this.errorCount.get();
+    }
+
+    @Override
+    public String fetch(String url) {
+        this.requestCount.incrementAndGet();
+        Random random = this.getRandom(url);
+
+        long latency = this.minLatencyMs
+                + (long) (random.nextDouble() * (this.maxLatencyMs - this.minLatencyMs + 1));
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        if (random.nextDouble() < this.errorRate) {
+            this.errorCount.incrementAndGet();
+            return null;
+        }
+        return this.getResponse(url);
+    }
+
+    private synchronized Random getRandom(String url) {
+        Integer attempt = this.attempts.get(url);
+        attempt = attempt != null ? attempt + 1 : 0;
+        this.attempts.put(url, attempt);
+        return new Random(this.seed * 31 + url.hashCode() * 17L + attempt);
+    }
+
+    private synchronized String getResponse(String url) {
+        String body = this.recordings.get(url);
+        if (body != null) {
+            return body;
+        }
+
+        if (url.startsWith(YAHOO_QUOTES_URL) && !this.yahooQuotes.isEmpty()) {
+            StringBuilder csv = new StringBuilder();
+            for (String symbol : getQueryValue(url, "s=").split("\\+")) {
+                csv.append(this.getYahooQuote(symbol)).append("\r\n");
+            }
+            return csv.toString();
+        }
+
+        if (url.startsWith(GOOGLE_QUOTES_URL) && !this.googleQuotes.isEmpty()) {
+            JSONArray quotes = new JSONArray();
+            for (String symbol : getQueryValue(url, "q=").split(",")) {
+                quotes.put(this.getGoogleQuote(symbol));
+            }
+            return "// " + quotes.toString();
+        }
+        return null;
+    }
+
+    private String getYahooQuote(String symbol) {
+        String quote = this.yahooQuotes.get(symbol);
+        if (quote != null) {
+            return quote;
+        }
+        String template = this.yahooQuotes.values().iterator().next();
+        return "\"" + symbol + template.substring(template.indexOf('"', 1));
+    }
+
+    private JSONObject getGoogleQuote(String symbol) {
+        JSONObject quote = this.googleQuotes.get(symbol);
+        if (quote != null) {
+            return quote;
+        }
+        try {
+            quote = new JSONObject(this.googleQuotes.values().iterator().next().toString());
+            quote.put("t", symbol);
+        } catch (JSONException ignored) {
+        }
+        return quote;
+    }
+
+    private static String getQueryValue(String url, String prefix) {
+        int start = url.indexOf(prefix);
+        if (start < 0) {
+            return "";
+        }
+        start += prefix.length();
+        int end = url.indexOf('&', start);
+        return end < 0 ? url.substring(start) : url.substring(start, end);
+    }
+
+    private static String readResource(String name) throws IOException {
+        InputStream in = ReplayUrlFetcher.class.getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("Missing fixture " + name);
+        }
+        return read(in);
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -33,7 +33,13 @@ import java.util.Calendar;
 
 public abstract class Cache {
 
+    static final Metrics.Timer GET_TIMER = Metrics.getInstance().timer("cache.get");
+
     public void put(String key, String data, Integer ttl) {
+        if (ttl == null) {
+            return;
+        }
+
         JSONObject item = new JSONObject();
         try {
             item.put("value", data);
@@ -50,14 +56,17 @@ public abstract class Cache {
     }
 
     public String get(String key) {
+        long start = Metrics.now();
+        String value = null;
         try {
             JSONObject item = loadCache().getJSONObject(key);
             if (item.getLong("expiry") > Calendar.getInstance().getTimeInMillis()) {
-                return item.getString("value");
+                value = item.getString("value");
             }
         } catch (JSONException ignored) {
         }
-        return null;
+        GET_TIMER.stop(start);
+        return value;
     }
 
     protected abstract JSONObject loadCache();
@@ -0,0 +1,119 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Bounded pool for running network fetches in parallel.
+ * <p/>
+ * Waiting on a task runs it on the waiting thread if no worker has picked it
+ * up yet, so fetches that fan out further from inside the pool cannot starve
+ * it. When the queue is full new tasks run on the submitting thread.
+ */
+public class FetchExecutor {
+
+    private static final int POOL_SIZE = 4;
+    private static final int QUEUE_SIZE = 64;
+
+    private static final ThreadPoolExecutor sExecutor = new ThreadPoolExecutor(
+            POOL_SIZE, POOL_SIZE, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(QUEUE_SIZE),
+            new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "FetchExecutor #" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    static {
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private FetchExecutor() {
+    }
+
+    public static <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        sExecutor.execute(future);
+        return future;
+    }
+
+    /**
+     * Waits for the task and returns its result, or null if it failed
+     */
+    public static <T> T await(Future<T> future) {
+        // Run it here if it has not been started yet
+        if (future instanceof FutureTask) {
+            ((FutureTask<T>) future).run();
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) {
+        }
+        return null;
+    }
+
+    /**
+     * Runs all tasks in parallel and returns their results in the same order,
+     * with null for any task that failed
+     */
+    public static <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            // The last task is run by the calling thread
+            if (i == tasks.size() - 1) {
+                futures.add(new FutureTask<>(tasks.get(i)));
+            } else {
+                futures.add(submit(tasks.get(i)));
+            }
+        }
+
+        List<T> results = new ArrayList<>();
+        for (int i = futures.size() - 1; i >= 0; i--) {
+            results.add(0, await(futures.get(i)));
+        }
+        return results;
+    }
+}
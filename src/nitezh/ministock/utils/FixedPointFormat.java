@@ -0,0 +1,231 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.utils;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.Locale;
+
+
+/**
+ * Fixed precision formatting and parsing of doubles.
+ * <p/>
+ * format(value, n) gives the same result as String.format("%.nf", value) and
+ * parse(value, default) the same as parsing with the default NumberFormat,
+ * but the common cases avoid building a Formatter or NumberFormat. Values
+ * close to a rounding tie, very large values and anything unusual in the
+ * input go through the platform classes instead.
+ */
+public class FixedPointFormat {
+
+    private static final int MAX_FAST_PRECISION = 9;
+    private static final double MAX_FAST_SCALED = 1e12;
+    private static final double TIE_MARGIN = 1e-3;
+    private static final int MAX_FAST_DIGITS = 15;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+    };
+    private static final double[] DOUBLE_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final String[] PATTERNS = new String[MAX_FAST_PRECISION + 1];
+
+    private static final ThreadLocal<StringBuilder> sBuffer = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(24);
+        }
+    };
+    private static volatile Symbols sSymbols;
+
+    static {
+        for (int i = 0; i < PATTERNS.length; i++) {
+            PATTERNS[i] = "%." + i + "f";
+        }
+    }
+
+    private FixedPointFormat() {
+    }
+
+    public static String format(double value, int precision) {
+        StringBuilder buffer = sBuffer.get();
+        buffer.setLength(0);
+        return append(buffer, value, precision).toString();
+    }
+
+    public static StringBuilder append(StringBuilder out, double value, int precision) {
+        if (precision < 0 || precision > MAX_FAST_PRECISION
+                || Double.isNaN(value) || Double.isInfinite(value)) {
+            return out.append(slowFormat(value, precision));
+        }
+
+        boolean negative = value < 0 || (value == 0 && 1 / value < 0);
+        double scaled = Math.abs(value) * POWERS_OF_TEN[precision];
+        if (scaled >= MAX_FAST_SCALED) {
+            return out.append(slowFormat(value, precision));
+        }
+
+        // Round half up, leaving anything near a tie to the Formatter
+        long whole = (long) scaled;
+        double fraction = scaled - whole;
+        if (Math.abs(fraction - 0.5) < TIE_MARGIN) {
+            return out.append(slowFormat(value, precision));
+        }
+        long rounded = fraction > 0.5 ? whole + 1 : whole;
+
+        Symbols symbols = getSymbols();
+        if (negative) {
+            out.append('-');
+        }
+        long divisor = POWERS_OF_TEN[precision];
+        appendDigits(out, rounded / divisor, 1, symbols.zeroDigit);
+        if (precision > 0) {
+            out.append(symbols.decimalSeparator);
+            appendDigits(out, rounded % divisor, precision, symbols.zeroDigit);
+        }
+        return out;
+    }
+
+    private static void appendDigits(StringBuilder out, long value, int minDigits, char zeroDigit) {
+        int digits = 1;
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+            digits++;
+        }
+        for (int i = digits; i < minDigits; i++) {
+            out.append(zeroDigit);
+        }
+        while (divisor > 0) {
+            out.append((char) (zeroDigit + (value / divisor) % 10));
+            divisor /= 10;
+        }
+    }
+
+    private static String slowFormat(double value, int precision) {
+        String pattern = precision >= 0 && precision < PATTERNS.length
+                ? PATTERNS[precision] : "%." + precision + "f";
+        return String.format(pattern, value);
+    }
+
+    /**
+     * Parses a number written with either a . or the locale decimal separator
+     */
+    public static Double parse(String value, Double defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+
+        Symbols symbols = getSymbols();
+        if (symbols.simpleNumbers) {
+            int length = value.length();
+            int i = 0;
+            boolean negative = false;
+            if (length > 0 && value.charAt(0) == '-') {
+                negative = true;
+                i++;
+            }
+
+            long mantissa = 0;
+            boolean anyDigit = false;
+            int digits = 0;
+            int fractionDigits = 0;
+            boolean seenSeparator = false;
+            boolean simple = i < length;
+            for (; i < length && simple; i++) {
+                char c = value.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    anyDigit = true;
+                    if (mantissa != 0 || c != '0') {
+                        digits++;
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (seenSeparator) {
+                        fractionDigits++;
+                    }
+                    simple = digits <= MAX_FAST_DIGITS;
+                } else if ((c == '.' || c == symbols.decimalSeparator) && !seenSeparator) {
+                    seenSeparator = true;
+                } else {
+                    simple = false;
+                }
+            }
+            if (simple && anyDigit && fractionDigits < DOUBLE_POWERS_OF_TEN.length) {
+                double result = (double) mantissa / DOUBLE_POWERS_OF_TEN[fractionDigits];
+                return negative ? -result : result;
+            }
+        }
+        return slowParse(value, defaultValue);
+    }
+
+    private static Double slowParse(String value, Double defaultValue) {
+        try {
+            char separator = new DecimalFormatSymbols().getDecimalSeparator();
+            value = value.replace('.', separator);
+            return NumberFormat.getInstance().parse(value).doubleValue();
+        } catch (ParseException e) {
+            return defaultValue;
+        }
+    }
+
+    private static Symbols getSymbols() {
+        Locale locale = Locale.getDefault();
+        Symbols symbols = sSymbols;
+        if (symbols == null || !symbols.locale.equals(locale)) {
+            symbols = new Symbols(locale);
+            sSymbols = symbols;
+        }
+        return symbols;
+    }
+
+    private static class Symbols {
+        final Locale locale;
+        final char zeroDigit;
+        final char decimalSeparator;
+        final boolean simpleNumbers;
+
+        Symbols(Locale locale) {
+            DecimalFormatSymbols symbols = new DecimalFormatSymbols(locale);
+            this.locale = locale;
+            this.zeroDigit = symbols.getZeroDigit();
+            this.decimalSeparator = symbols.getDecimalSeparator();
+
+            // Only parse directly where numbers are plain ASCII digits with a - sign
+            NumberFormat format = NumberFormat.getInstance(locale);
+            this.simpleNumbers = this.zeroDigit == '0'
+                    && format instanceof DecimalFormat
+                    && ((DecimalFormat) format).getNegativePrefix().equals("-")
+                    && ((DecimalFormat) format).getPositivePrefix().equals("")
+                    && ((DecimalFormat) format).getNegativeSuffix().equals("")
+                    && ((DecimalFormat) format).getPositiveSuffix().equals("")
+                    && !((DecimalFormat) format).isParseBigDecimal()
+                    && ((DecimalFormat) format).getMultiplier() == 1;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+
+/**
+ * Fetches the body of a URL over HTTP.
+ * <p/>
+ * Responses are requested gzipped and read straight into a buffer sized from
+ * the Content-Length. Bodies are always read to the end and the stream closed
+ * without disconnecting, so the connection goes back to the keep-alive pool
+ * for the next request to the same host. The ETag and Last-Modified of recent
+ * responses are remembered and sent with the next request for that URL; a 304
+ * Not Modified answer returns the remembered body without transferring it.
+ */
+public class HttpFetcher implements UrlFetcher {
+
+    private static final HttpFetcher INSTANCE = new HttpFetcher();
+
+    private static final int CONNECT_TIMEOUT_MS = 30000;
+    private static final int READ_TIMEOUT_MS = 60000;
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int MAX_VALIDATED_BODIES = 32;
+    private static final int MAX_VALIDATED_BODY_LENGTH = 64 * 1024;
+    private static final String DEFAULT_CHARSET = "UTF-8";
+
+    static {
+        Metrics metrics = Metrics.getInstance();
+        metrics.gauge("http.requests", new Metrics.Gauge() {
+            @Override
+            public long getValue() {
+                return INSTANCE.getRequestCount();
+            }
+        });
+        metrics.gauge("http.not_modified", new Metrics.Gauge() {
+            @Override
+            public long getValue() {
+                return INSTANCE.getNotModifiedCount();
+            }
+        });
+        metrics.gauge("http.bytes", new Metrics.Gauge() {
+            @Override
+            public long getValue() {
+                return INSTANCE.getBytesRead();
+            }
+        });
+    }
+
+    private final LinkedHashMap<String, Validated> validated =
+            new LinkedHashMap<String, Validated>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Validated> eldest) {
+                    return this.size() > MAX_VALIDATED_BODIES;
+                }
+            };
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    public static HttpFetcher getInstance() {
+        return INSTANCE;
+    }
+
+    public long getRequestCount() {
+        return this.requestCount.get();
+    }
+
+    public long getNotModifiedCount() {
+        return this.notModifiedCount.get();
+    }
+
+    /**
+     * Returns the number of body bytes read from the network, before unzipping
+     */
+    public long getBytesRead() {
+        return this.bytesRead.get();
+    }
+
+    /**
+     * Returns the body of the URL, or null if it could not be fetched
+     */
+    @Override
+    public String fetch(String url) {
+        Validated previous;
+        synchronized (this.validated) {
+            previous = this.validated.get(url);
+        }
+
+        HttpURLConnection connection = null;
+        try {
+            URLConnection urlConnection = new URL(url).openConnection();
+            urlConnection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            urlConnection.setReadTimeout(READ_TIMEOUT_MS);
+            urlConnection.setRequestProperty("Accept-Encoding", "gzip");
+            if (!(urlConnection instanceof HttpURLConnection)) {
+                return decode(readFully(urlConnection.getInputStream(), -1), DEFAULT_CHARSET);
+            }
+
+            connection = (HttpURLConnection) urlConnection;
+            if (previous != null) {
+                if (previous.eTag != null) {
+                    connection.setRequestProperty("If-None-Match", previous.eTag);
+                }
+                if (previous.lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", previous.lastModified);
+                }
+            }
+            this.requestCount.incrementAndGet();
+
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && previous != null) {
+                this.notModifiedCount.incrementAndGet();
+                closeQuietly(connection.getInputStream());
+                return previous.body;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                // Drain the error body so the connection can still be reused
+                closeQuietly(connection.getErrorStream());
+                return null;
+            }
+
+            String body = this.readBody(connection);
+            this.remember(url, connection, body);
+            return body;
+        } catch (IOException e) {
+            // The connection may be broken, do not let it be reused
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+        return null;
+    }
+
+    private String readBody(HttpURLConnection connection) throws IOException {
+        InputStream stream = connection.getInputStream();
+        CountingInputStream counted = new CountingInputStream(stream);
+        boolean isGzipped = "gzip".equalsIgnoreCase(connection.getContentEncoding());
+        try {
+            byte[] bytes;
+            if (isGzipped) {
+                // The unzipped size is unknown, the zipped size is a lower bound
+                bytes = readFully(new GZIPInputStream(counted), connection.getContentLength() * 4);
+            } else {
+                bytes = readFully(counted, connection.getContentLength());
+            }
+            return decode(bytes, getCharset(connection.getContentType()));
+        } finally {
+            this.bytesRead.addAndGet(counted.count);
+            closeQuietly(stream);
+        }
+    }
+
+    private void remember(String url, HttpURLConnection connection, String body) {
+        String eTag = connection.getHeaderField("ETag");
+        String lastModified = connection.getHeaderField("Last-Modified");
+        synchronized (this.validated) {
+            if ((eTag == null && lastModified == null) || body.length() > MAX_VALIDATED_BODY_LENGTH) {
+                this.validated.remove(url);
+            } else {
+                this.validated.put(url, new Validated(eTag, lastModified, body));
+            }
+        }
+    }
+
+    private static byte[] readFully(InputStream stream, int expectedLength) throws IOException {
+        byte[] buffer = new byte[expectedLength > 0 ? expectedLength : DEFAULT_BUFFER_SIZE];
+        int length = 0;
+        int read;
+        while (true) {
+            if (length == buffer.length) {
+                // Read one byte to check for the end before growing the buffer
+                read = stream.read();
+                if (read < 0) {
+                    break;
+                }
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                buffer[length++] = (byte) read;
+            }
+            read = stream.read(buffer, length, buffer.length - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+    }
+
+    private static String decode(byte[] bytes, String charset) {
+        try {
+            return new String(bytes, charset);
+        } catch (UnsupportedEncodingException e) {
+            try {
+                return new String(bytes, DEFAULT_CHARSET);
+            } catch (UnsupportedEncodingException ignored) {
+            }
+        }
+        return new String(bytes);
+    }
+
+    private static String getCharset(String contentType) {
+        if (contentType != null) {
+            for (String parameter : contentType.split(";")) {
+                parameter = parameter.trim();
+                if (parameter.regionMatches(true, 0, "charset=", 0, 8)) {
+                    return parameter.substring(8).replace("\"", "");
+                }
+            }
+        }
+        return DEFAULT_CHARSET;
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        if (stream == null) {
+            return;
+        }
+        try {
+            // Drain what is left so the connection is returned to the pool
+            byte[] skip = new byte[512];
+            while (stream.read(skip) >= 0) {
+            }
+            stream.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static class Validated {
+        private final String eTag;
+        private final String lastModified;
+        private final String body;
+
+        Validated(String eTag, String lastModified, String body) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+    }
+
+    private static class CountingInputStream extends InputStream {
+        private final InputStream stream;
+        private long count = 0;
+
+        CountingInputStream(InputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = this.stream.read();
+            if (read >= 0) {
+                this.count++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = this.stream.read(buffer, offset, length);
+            if (read > 0) {
+                this.count += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.utils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import nitezh.ministock.Storage;
+
+
+/**
+ * Cache backed by an in-memory index of entries.
+ * <p/>
+ * The persisted JSON document is only parsed once per process. Lookups and
+ * puts work on the index, expired entries are evicted as they are found and
+ * the document is written back lazily, at most once per write-behind delay.
+ * The index is bounded by entry count and size so storage use stays flat.
+ */
+public class IndexedStorageCache extends Cache {
+
+    public static final String JSON_CACHE = StorageCache.JSON_CACHE;
+    public static final int DEFAULT_MAX_ENTRIES = 128;
+    public static final long DEFAULT_MAX_BYTES = 256 * 1024;
+    private static final long WRITE_BEHIND_DELAY_MS = 2000;
+
+    private static final Object sLock = new Object();
+    private static final Object sPersistLock = new Object();
+    private static final LruCacheIndex sIndex = new LruCacheIndex(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    private static boolean sLoaded = false;
+    private static boolean sPersistScheduled = false;
+    private static Storage sStorage = null;
+    private static ScheduledExecutorService sWriter = null;
+
+    static {
+        Metrics metrics = Metrics.getInstance();
+        metrics.gauge("cache.entries", new Metrics.Gauge() {
+            @Override
+            public long getValue() {
+                return getStats().getEntryCount();
+            }
+        });
+        metrics.gauge("cache.bytes", new Metrics.Gauge() {
+            @Override
+            public long getValue() {
+                return getStats().getBytes();
+            }
+        });
+        metrics.gauge("cache.evictions", new Metrics.Gauge() {
+            @Override
+            public long getValue() {
+                return getStats().getEvictionCount();
+            }
+        });
+    }
+
+    public IndexedStorageCache(Storage storage) {
+        synchronized (sLock) {
+            if (storage != null) {
+                sStorage = storage;
+            }
+        }
+    }
+
+    @Override
+    public void put(String key, String data, Integer ttl) {
+        if (ttl == null) {
+            return;
+        }
+
+        synchronized (sLock) {
+            this.ensureLoaded();
+            sIndex.put(key, data, System.currentTimeMillis() + ttl * 1000L);
+            this.schedulePersist();
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        long start = Metrics.now();
+        synchronized (sLock) {
+            this.ensureLoaded();
+            boolean wasPresent = sIndex.containsKey(key);
+            String value = sIndex.get(key, System.currentTimeMillis());
+            if (value == null && wasPresent) {
+                this.schedulePersist();
+            }
+            GET_TIMER.stop(start);
+            return value;
+        }
+    }
+
+    public static void setLimits(int maxEntries, long maxBytes) {
+        synchronized (sLock) {
+            sIndex.setLimits(maxEntries, maxBytes);
+        }
+    }
+
+    public static LruCacheIndex.Stats getStats() {
+        synchronized (sLock) {
+            return sIndex.getStats();
+        }
+    }
+
+    public int size() {
+        synchronized (sLock) {
+            this.ensureLoaded();
+            return sIndex.size();
+        }
+    }
+
+    /**
+     * Writes any pending changes to storage immediately
+     */
+    public void flush() {
+        // Flushes run one at a time so an older copy never overwrites a newer one
+        synchronized (sPersistLock) {
+            synchronized (sLock) {
+                sPersistScheduled = false;
+            }
+            this.persistCache(this.loadCache());
+        }
+    }
+
+    private void ensureLoaded() {
+        if (sLoaded || sStorage == null) {
+            return;
+        }
+        sLoaded = true;
+
+        try {
+            long now = System.currentTimeMillis();
+            JSONObject cache = new JSONObject(sStorage.getString(JSON_CACHE, ""));
+            for (Iterator<String> keys = cache.keys(); keys.hasNext(); ) {
+                String key = keys.next();
+                JSONObject item = cache.optJSONObject(key);
+                if (item == null) {
+                    continue;
+                }
+                long expiry = item.optLong("expiry");
+                if (expiry > now && !sIndex.containsKey(key)) {
+                    sIndex.put(key, item.optString("value"), expiry);
+                }
+            }
+        } catch (JSONException ignored) {
+        }
+    }
+
+    private void schedulePersist() {
+        if (sPersistScheduled || sStorage == null) {
+            return;
+        }
+        sPersistScheduled = true;
+
+        if (sWriter == null) {
+            sWriter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "IndexedStorageCache");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        sWriter.schedule(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, WRITE_BEHIND_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected JSONObject loadCache() {
+        JSONObject cache = new JSONObject();
+        synchronized (sLock) {
+            this.ensureLoaded();
+            sIndex.evictExpired(System.currentTimeMillis());
+
+            // Written from least to most recently used so the order survives a reload
+            for (Map.Entry<String, LruCacheIndex.Entry> entry : sIndex.entries()) {
+                try {
+                    JSONObject item = new JSONObject();
+                    item.put("value", entry.getValue().getValue());
+                    item.put("expiry", entry.getValue().getExpiry());
+                    cache.put(entry.getKey(), item);
+                } catch (JSONException ignored) {
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Writes a copy taken by loadCache, serializing it without holding the index lock
+     */
+    @Override
+    protected void persistCache(JSONObject cache) {
+        Storage storage;
+        synchronized (sLock) {
+            storage = sStorage;
+        }
+        if (storage != null) {
+            storage.putString(JSON_CACHE, cache.toString());
+            storage.apply();
+        }
+    }
+}
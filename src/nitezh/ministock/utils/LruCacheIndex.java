@@ -0,0 +1,228 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.utils;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Least recently used index of cache entries bounded by entry count and size.
+ * <p/>
+ * Sizes are estimated as the UTF-16 size of key and value plus a fixed per
+ * entry overhead. Whenever either budget is exceeded the least recently used
+ * entries are evicted. The index is not thread safe, callers synchronise.
+ */
+public class LruCacheIndex {
+
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxEntries;
+    private long maxBytes;
+    private long bytes = 0;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long expiredCount = 0;
+
+    public LruCacheIndex(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public static long sizeOf(String key, String value) {
+        return 2L * (key.length() + (value != null ? value.length() : 0)) + ENTRY_OVERHEAD_BYTES;
+    }
+
+    public void setLimits(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.trimToLimits();
+    }
+
+    public String get(String key, long now) {
+        Entry entry = this.entries.get(key);
+        if (entry == null) {
+            this.missCount++;
+            return null;
+        }
+        if (entry.isExpired(now)) {
+            this.removeEntry(key, entry);
+            this.expiredCount++;
+            this.missCount++;
+            return null;
+        }
+        this.hitCount++;
+        return entry.value;
+    }
+
+    public void put(String key, String value, long expiry) {
+        Entry entry = new Entry(value, expiry, sizeOf(key, value));
+
+        // Never keep an entry that could not fit on its own
+        if (entry.size > this.maxBytes) {
+            this.remove(key);
+            return;
+        }
+
+        Entry previous = this.entries.put(key, entry);
+        if (previous != null) {
+            this.bytes -= previous.size;
+        }
+        this.bytes += entry.size;
+        this.trimToLimits();
+    }
+
+    public boolean containsKey(String key) {
+        return this.entries.containsKey(key);
+    }
+
+    public void remove(String key) {
+        Entry entry = this.entries.get(key);
+        if (entry != null) {
+            this.removeEntry(key, entry);
+        }
+    }
+
+    public int evictExpired(long now) {
+        int count = 0;
+        for (Iterator<Map.Entry<String, Entry>> it = this.entries.entrySet().iterator(); it.hasNext(); ) {
+            Entry entry = it.next().getValue();
+            if (entry.isExpired(now)) {
+                it.remove();
+                this.bytes -= entry.size;
+                count++;
+            }
+        }
+        this.expiredCount += count;
+        return count;
+    }
+
+    /**
+     * Returns the entries from least to most recently used without changing their order
+     */
+    public Iterable<Map.Entry<String, Entry>> entries() {
+        return Collections.unmodifiableSet(this.entries.entrySet());
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public long getBytes() {
+        return this.bytes;
+    }
+
+    public Stats getStats() {
+        return new Stats(this.hitCount, this.missCount, this.evictionCount, this.expiredCount,
+                this.entries.size(), this.bytes);
+    }
+
+    private void removeEntry(String key, Entry entry) {
+        this.entries.remove(key);
+        this.bytes -= entry.size;
+    }
+
+    private void trimToLimits() {
+        Iterator<Map.Entry<String, Entry>> it = this.entries.entrySet().iterator();
+        while ((this.entries.size() > this.maxEntries || this.bytes > this.maxBytes) && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            this.bytes -= eldest.size;
+            this.evictionCount++;
+        }
+    }
+
+    public static class Entry {
+        private final String value;
+        private final long expiry;
+        private final long size;
+
+        Entry(String value, long expiry, long size) {
+            this.value = value;
+            this.expiry = expiry;
+            this.size = size;
+        }
+
+        public String getValue() {
+            return this.value;
+        }
+
+        public long getExpiry() {
+            return this.expiry;
+        }
+
+        boolean isExpired(long now) {
+            return this.expiry <= now;
+        }
+    }
+
+    public static class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long expiredCount;
+        private final int entryCount;
+        private final long bytes;
+
+        Stats(long hitCount, long missCount, long evictionCount, long expiredCount,
+              int entryCount, long bytes) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.expiredCount = expiredCount;
+            this.entryCount = entryCount;
+            this.bytes = bytes;
+        }
+
+        public long getHitCount() {
+            return this.hitCount;
+        }
+
+        public long getMissCount() {
+            return this.missCount;
+        }
+
+        public long getEvictionCount() {
+            return this.evictionCount;
+        }
+
+        public long getExpiredCount() {
+            return this.expiredCount;
+        }
+
+        public int getEntryCount() {
+            return this.entryCount;
+        }
+
+        public long getBytes() {
+            return this.bytes;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Registry of the counters, timers, ratios and gauges of the refresh pipeline.
+ * <p/>
+ * Metrics are created on first use by name and then only updated with
+ * atomic operations, so recording on a hot path takes no locks. Timers
+ * measure with System.nanoTime and keep their samples in power of two
+ * buckets, from which percentiles are estimated when a report is made.
+ */
+public class Metrics {
+
+    private static final Metrics INSTANCE = new Metrics();
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Ratio> ratios = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    public static Metrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the start time to pass to Timer.stop
+     */
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    public Counter counter(String name) {
+        Counter counter = this.counters.get(name);
+        if (counter == null) {
+            Counter created = new Counter();
+            counter = this.counters.putIfAbsent(name, created);
+            counter = counter != null ? counter : created;
+        }
+        return counter;
+    }
+
+    public Timer timer(String name) {
+        Timer timer = this.timers.get(name);
+        if (timer == null) {
+            Timer created = new Timer();
+            timer = this.timers.putIfAbsent(name, created);
+            timer = timer != null ? timer : created;
+        }
+        return timer;
+    }
+
+    public Ratio ratio(String name) {
+        Ratio ratio = this.ratios.get(name);
+        if (ratio == null) {
+            Ratio created = new Ratio();
+            ratio = this.ratios.putIfAbsent(name, created);
+            ratio = ratio != null ? ratio : created;
+        }
+        return ratio;
+    }
+
+    /**
+     * Adds a value that is read from elsewhere when a report is made
+     */
+    public void gauge(String name, Gauge gauge) {
+        this.gauges.put(name, gauge);
+    }
+
+    /**
+     * @return one line per metric, sorted by name
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Timer> entry : this.timers.entrySet()) {
+            Timer timer = entry.getValue();
+            lines.add(String.format(Locale.US,
+                    "%s: %d calls, mean %.2f ms, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms",
+                    entry.getKey(), timer.getCount(), timer.getMeanMs(), timer.getPercentileMs(50),
+                    timer.getPercentileMs(90), timer.getPercentileMs(99), timer.getMaxMs()));
+        }
+        for (Map.Entry<String, Ratio> entry : this.ratios.entrySet()) {
+            Ratio ratio = entry.getValue();
+            lines.add(String.format(Locale.US, "%s: %d hits, %d misses, %.1f%% hit ratio",
+                    entry.getKey(), ratio.getHits(), ratio.getMisses(), 100 * ratio.getHitRatio()));
+        }
+        for (Map.Entry<String, Counter> entry : this.counters.entrySet()) {
+            lines.add(entry.getKey() + ": " + entry.getValue().get());
+        }
+        for (Map.Entry<String, Gauge> entry : this.gauges.entrySet()) {
+            lines.add(entry.getKey() + ": " + entry.getValue().getValue());
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+
+    public boolean dump(File file) {
+        StringBuilder text = new StringBuilder();
+        for (String line : this.report()) {
+            text.append(line).append('\n');
+        }
+
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            out.write(text.toString().getBytes("UTF-8"));
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    public interface Gauge {
+        long getValue();
+    }
+
+    public static class Counter {
+
+        private final AtomicLong value = new AtomicLong();
+
+        public void increment() {
+            this.value.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            this.value.addAndGet(delta);
+        }
+
+        public long get() {
+            return this.value.get();
+        }
+    }
+
+    public static class Ratio {
+
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        public void record(boolean isHit) {
+            (isHit ? this.hits : this.misses).incrementAndGet();
+        }
+
+        public long getHits() {
+            return this.hits.get();
+        }
+
+        public long getMisses() {
+            return this.misses.get();
+        }
+
+        public double getHitRatio() {
+            long hits = this.hits.get();
+            long total = hits + this.misses.get();
+            return total > 0 ? (double) hits / total : 0;
+        }
+    }
+
+    public static class Timer {
+
+        // Bucket i holds durations below 2^i microseconds, the last one everything longer
+        static final int BUCKETS = 28;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        /**
+         * Records the time since a start time taken from Metrics.now
+         */
+        public void stop(long start) {
+            this.record(System.nanoTime() - start);
+        }
+
+        public void record(long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            this.buckets.incrementAndGet(bucket);
+            this.count.incrementAndGet();
+            this.totalNanos.addAndGet(nanos);
+
+            long max;
+            while (nanos > (max = this.maxNanos.get())) {
+                if (this.maxNanos.compareAndSet(max, nanos)) {
+                    break;
+                }
+            }
+        }
+
+        public long getCount() {
+            return this.count.get();
+        }
+
+        public double getMeanMs() {
+            long count = this.count.get();
+            return count > 0 ? this.totalNanos.get() / 1e6 / count : 0;
+        }
+
+        public double getMaxMs() {
+            return this.maxNanos.get() / 1e6;
+        }
+
+        /**
+         * @return the upper bound of the bucket the percentile falls in, at most the maximum
+         */
+        public double getPercentileMs(double percentile) {
+            long count = this.count.get();
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(percentile / 100 * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += this.buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min((1L << i) / 1000.0, this.getMaxMs());
+                }
+            }
+            return this.getMaxMs();
+        }
+    }
+}
@@ -24,9 +24,6 @@
 
 package nitezh.ministock.utils;
 
-import java.text.DecimalFormatSymbols;
-import java.text.NumberFormat;
-
 
 public class NumberTools {
 
@@ -35,7 +32,7 @@ public class NumberTools {
 
     public static String decimalPlaceFormat(String s) {
         try {
-            return String.format("%." + 2 + "f", Double.parseDouble(s));
+            return FixedPointFormat.format(Double.parseDouble(s), 2);
         } catch (Exception ignored) {
         }
 
@@ -60,12 +57,12 @@ public class NumberTools {
         // If there are more digits before the decimal place than the space
         // available then do the best we can and return with 0 dp.
         if (digits < decimalPos) {
-            return String.format("%.0f", number);
+            return FixedPointFormat.format(number, 0);
         }
         // If we have space to show the whole number, and the max precision
         // is null OR the number is greater than one then we always use 2 dp.
         if (Math.abs(number) >= 100 && (numberAsString.length() - 1 < digits)) {
-            return String.format("%.2f", number);
+            return FixedPointFormat.format(number, 2);
         }
         // If the number is greater than zero than the max precision is 2
         int precision = digits - decimalPos;
@@ -76,7 +73,7 @@ public class NumberTools {
             precision = Math.min(precision, 3);
         }
         // Trim precision as necessary (max precision 4)
-        return String.format("%." + Math.min(precision, 4) + "f", number);
+        return FixedPointFormat.format(number, Math.min(precision, 4));
     }
 
     public static String getTrimmedDouble(double number, int digits, Integer maxPrecision) {
@@ -93,12 +90,12 @@ public class NumberTools {
         // If there are more digits before the decimal place than the space
         // available then do the best we can and return with 0 dp.
         if (digits < decimalPos) {
-            return String.format("%.0f", number);
+            return FixedPointFormat.format(number, 0);
         }
         // If we have space to show the whole number, and the max precision
         // is null OR the number is greater than one then we always use 2 dp.
         if ((Math.abs(number) >= 10 || maxPrecision == null) && (numberAsString.length() - 1 < digits)) {
-            return String.format("%.2f", number);
+            return FixedPointFormat.format(number, 2);
         }
         // If the number is greater than zero than the max precision is 2
         int precision = digits - decimalPos;
@@ -109,7 +106,7 @@ public class NumberTools {
         if (maxPrecision == null)
             maxPrecision = precision;
         // Trim precision as necessary (max precision 4)
-        return String.format("%." + Math.min(precision, maxPrecision) + "f", number);
+        return FixedPointFormat.format(number, Math.min(precision, maxPrecision));
     }
 
     public static Double parseDouble(String value) {
@@ -117,31 +114,27 @@ public class NumberTools {
     }
 
     public static Double parseDouble(String value, Double defaultValue) {
-        try {
-            char separator = new DecimalFormatSymbols().getDecimalSeparator();
-            value = value.replace('.', separator);
-            return NumberFormat.getInstance().parse(value).doubleValue();
-        } catch (Exception e) {
-            return defaultValue;
-        }
+        return FixedPointFormat.parse(value, defaultValue);
     }
 
     public static String getNormalisedVolume(String value) {
-        Double volume;
         try {
-            volume = parseDouble(value);
-            if (volume > 999999999999D)
-                value = String.format("%.0fT", volume / 1000000000000D);
-            else if (volume > 999999999D)
-                value = String.format("%.0fB", volume / 1000000000D);
-            else if (volume > 999999D)
-                value = String.format("%.0fM", volume / 1000000D);
-            else if (volume > 999D)
-                value = String.format("%.0fK", volume / 1000D);
-            else
-                value = String.format("%.0f", volume);
+            return getNormalisedVolume(parseDouble(value));
         } catch (Exception ignored) {
         }
         return value;
     }
+
+    public static String getNormalisedVolume(double volume) {
+        if (volume > 999999999999D)
+            return FixedPointFormat.format(volume / 1000000000000D, 0) + "T";
+        else if (volume > 999999999D)
+            return FixedPointFormat.format(volume / 1000000000D, 0) + "B";
+        else if (volume > 999999D)
+            return FixedPointFormat.format(volume / 1000000D, 0) + "M";
+        else if (volume > 999D)
+            return FixedPointFormat.format(volume / 1000D, 0) + "K";
+        else
+            return FixedPointFormat.format(volume, 0);
+    }
 }
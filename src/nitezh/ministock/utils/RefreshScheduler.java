@@ -0,0 +1,238 @@
+/*
+ The MIT License
+
+ Copyright (c) 2013 Nitesh Patel http://niteshpatel.github.io/ministocks
+
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+
+ The above copyright notice and this permission notice shall be included in
+ all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ THE SOFTWARE.
+ */
+
+package nitezh.ministock.utils;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Small worker pool that runs keyed refresh tasks by priority.
+ * <p/>
+ * Lower priority values run first, ties run in the order they were scheduled.
+ * A task scheduled while another with the same key is still waiting replaces
+ * it, keeping the earlier place in the queue and the higher of the two
+ * priorities. So the queue never holds more than one task per key and no
+ * request is rejected.
+ */
+public class RefreshScheduler {
+
+    public static final int PRIORITY_USER = 0;
+    public static final int PRIORITY_BACKGROUND = 10;
+
+    private final ThreadPoolExecutor executor;
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final HashMap<Object, Entry> pending = new HashMap<>();
+    private long sequence = 0;
+
+    private long scheduledCount = 0;
+    private long coalescedCount = 0;
+    private long completedCount = 0;
+    private long failedCount = 0;
+    private int maxQueueDepth = 0;
+    private long totalLatencyMs = 0;
+    private long maxLatencyMs = 0;
+
+    public RefreshScheduler(int workers, final String name) {
+        this.executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, name + " #" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues the task, returns false if it replaced a waiting task with the same key
+     */
+    public boolean schedule(Object key, int priority, Runnable task) {
+        synchronized (this) {
+            this.scheduledCount++;
+            Entry waiting = this.pending.get(key);
+            if (waiting != null) {
+                this.coalescedCount++;
+                waiting.task = task;
+                if (priority < waiting.priority) {
+                    // Re-queue so the raised priority takes effect
+                    this.queue.remove(waiting);
+                    waiting.priority = priority;
+                    this.queue.add(waiting);
+                }
+                return false;
+            }
+
+            Entry entry = new Entry(key, priority, this.sequence++, task, System.currentTimeMillis());
+            this.pending.put(key, entry);
+            this.queue.add(entry);
+            this.maxQueueDepth = Math.max(this.maxQueueDepth, this.queue.size());
+        }
+
+        // One worker run per queued entry, each takes whichever entry is first
+        this.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                runNext();
+            }
+        });
+        return true;
+    }
+
+    private void runNext() {
+        Entry entry;
+        synchronized (this) {
+            entry = this.queue.poll();
+            if (entry == null) {
+                return;
+            }
+            this.pending.remove(entry.key);
+        }
+
+        RuntimeException failure = null;
+        try {
+            entry.task.run();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+
+        long latency = System.currentTimeMillis() - entry.queuedAt;
+        synchronized (this) {
+            if (failure != null) {
+                this.failedCount++;
+            } else {
+                this.completedCount++;
+            }
+            this.totalLatencyMs += latency;
+            this.maxLatencyMs = Math.max(this.maxLatencyMs, latency);
+        }
+
+        // The worker carries on with the next task, so keep a record of what failed
+        if (failure != null) {
+            Log.w("RefreshScheduler", "Refresh task for " + entry.key + " failed", failure);
+        }
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(this.queue.size(), this.maxQueueDepth, this.scheduledCount,
+                this.coalescedCount, this.completedCount, this.failedCount,
+                this.totalLatencyMs, this.maxLatencyMs);
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private final Object key;
+        private final long sequence;
+        private final long queuedAt;
+        private int priority;
+        private Runnable task;
+
+        Entry(Object key, int priority, long sequence, Runnable task, long queuedAt) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+            this.queuedAt = queuedAt;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (this.priority != other.priority) {
+                return this.priority < other.priority ? -1 : 1;
+            }
+            return this.sequence < other.sequence ? -1 : (this.sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    public static class Stats {
+        private final int queueDepth;
+        private final int maxQueueDepth;
+        private final long scheduledCount;
+        private final long coalescedCount;
+        private final long completedCount;
+        private final long failedCount;
+        private final long totalLatencyMs;
+        private final long maxLatencyMs;
+
+        Stats(int queueDepth, int maxQueueDepth, long scheduledCount, long coalescedCount,
+              long completedCount, long failedCount, long totalLatencyMs, long maxLatencyMs) {
+            this.queueDepth = queueDepth;
+            this.maxQueueDepth = maxQueueDepth;
+            this.scheduledCount = scheduledCount;
+            this.coalescedCount = coalescedCount;
+            this.completedCount = completedCount;
+            this.failedCount = failedCount;
+            this.totalLatencyMs = totalLatencyMs;
+            this.maxLatencyMs = maxLatencyMs;
+        }
+
+        public int getQueueDepth() {
+            return this.queueDepth;
+        }
+
+        public int getMaxQueueDepth() {
+            return this.maxQueueDepth;
+        }
+
+        public long getScheduledCount() {
+            return this.scheduledCount;
+        }
+
+        public long getCoalescedCount() {
+            return this.coalescedCount;
+        }
+
+        public long getCompletedCount() {
+            return this.completedCount;
+        }
+
+        public long getFailedCount() {
+            return this.failedCount;
+        }
+
+        /**
+         * Returns the mean time from scheduling to completion
+         */
+        public long getAverageLatencyMs() {
+            long runCount = this.completedCount + this.failedCount;
+            return runCount > 0 ? this.totalLatencyMs / runCount : 0;
+        }
+
+        public long getMaxLatencyMs() {
+            return this.maxLatencyMs;
+        }
+    }
+}
@@ -24,51 +24,50 @@
 
 package nitezh.ministock.utils;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
-
 
 public class UrlDataTools {
 
+    private static final Metrics.Timer FETCH_TIMER = Metrics.getInstance().timer("url.fetch");
+    private static final Metrics.Ratio CACHE_RATIO = Metrics.getInstance().ratio("cache.get");
+
+    private static volatile UrlFetcher sFetcher = HttpFetcher.getInstance();
+
     private UrlDataTools() {
     }
 
-    private static String inputStreamToString(InputStream stream) throws IOException {
-        BufferedReader r = new BufferedReader(new InputStreamReader(stream));
-        StringBuilder builder = new StringBuilder();
-        String line;
-        while ((line = r.readLine()) != null) {
-            builder.append(line).append("\n");
-        }
-        return builder.toString();
+    /**
+     * Replaces the fetcher used for all URLs, or restores HTTP if null
+     */
+    public static void setFetcher(UrlFetcher fetcher) {
+        sFetcher = fetcher != null ? fetcher : HttpFetcher.getInstance();
     }
 
     private static String getUrlData(String url) {
-        // Ensure we always request some data
-        if (!url.contains("INDU")) {
-            url = url.replace("&s=", "&s=INDU+");
+        // Ensure we always request some data, only needed when no symbols are given
+        if (url.endsWith("&s=")) {
+            url += "INDU";
         }
 
+        long start = Metrics.now();
         try {
-            URLConnection connection = new URL(url).openConnection();
-            connection.setConnectTimeout(30000);
-            connection.setReadTimeout(60000);
-            return inputStreamToString(connection.getInputStream());
-        } catch (IOException ignored) {
+            return sFetcher.fetch(url);
+        } finally {
+            FETCH_TIMER.stop(start);
         }
-        return null;
     }
 
     public static String getCachedUrlData(String url, Cache cache, Integer ttl) {
+        // Only URLs that are cached can hit, so the others are not counted
         String data;
-        if (ttl != null && (data = cache.get(url)) != null) {
-            return data;
+        if (ttl != null) {
+            data = cache.get(url);
+            CACHE_RATIO.record(data != null);
+            if (data != null) {
+                return data;
+            }
         }
 
+        // A body the server reports as not modified refreshes the cache entry too
         data = getUrlData(url);
         if (data != null) {
             cache.put(url, data, ttl);